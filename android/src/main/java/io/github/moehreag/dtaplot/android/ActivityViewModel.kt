@@ -23,6 +23,7 @@ import java.time.Instant
 import java.time.ZoneId
 import java.time.ZonedDateTime
 import java.util.*
+import java.util.stream.Collectors
 import kotlin.io.path.bufferedReader
 import kotlin.io.path.exists
 import kotlin.io.path.moveTo
@@ -102,9 +103,11 @@ class ActivityViewModel : ViewModel() {
     private fun getDataFile(address: InetSocketAddress): Collection<Map<String, Value<*>>> {
         val location = "http://${address.hostString}/NewProc"
         Log.i("DtaPlot/IO", "Fetching data... location: $location")
-        val bytes = URL(location).openStream().readBytes()
+        // records are decoded as the response comes in instead of after buffering all of it
+        val data = URL(location).openStream().use { input ->
+            DtaParser.stream(input).map { it.toMap() }.collect(Collectors.toList())
+        }
         Log.i("DtaPlot/IO", "Fetched data!")
-        val data = DtaParser.get(bytes).datapoints
         Log.i("DtaPlot/IO", "new size: " + data.size)
         return data
     }
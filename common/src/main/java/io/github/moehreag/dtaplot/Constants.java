@@ -13,6 +13,12 @@ public class Constants {
 	// Content of response that is contained in responses to discovery broadcast
 	static final String DISCOVERY_RESPONSE_PREFIX = "2500;111;";
 	public static final int WRITE_TIMEOUT = 2;
+	// Time (in milliseconds) to wait for a heat pump to accept a connection
+	public static final int CONNECT_TIMEOUT = 5000;
+	// Time (in milliseconds) a heat pump may stay silent before a download is given up
+	public static final int READ_TIMEOUT = 15000;
+	// Time (in milliseconds) between two polls of the calculations shown live
+	public static final int POLL_INTERVAL = 1000;
 	public static final int PARAMETERS_WRITE = 3002;
 	public static final int PARAMETERS_READ = 3003;
 	public static final int CALCULATIONS_READ = 3004;
@@ -1,14 +1,25 @@
 package io.github.moehreag.dtaplot;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.lang.reflect.Array;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
-import io.toadlabs.jfgjds.JsonDeserializer;
-import io.toadlabs.jfgjds.JsonSerializer;
+import io.github.moehreag.dtaplot.data.Archive;
+import io.github.moehreag.dtaplot.data.BitColumn;
+import io.github.moehreag.dtaplot.data.Column;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.data.ColumnarFile;
+import io.github.moehreag.dtaplot.data.DoubleColumn;
+import io.github.moehreag.dtaplot.data.Rollups;
 import io.toadlabs.jfgjds.data.JsonArray;
 import io.toadlabs.jfgjds.data.JsonObject;
 import io.toadlabs.jfgjds.data.JsonValue;
@@ -16,27 +27,121 @@ import lombok.Getter;
 
 public class DataLoader {
 
+	private static final String TEMP = ".tmp";
+
 	@Getter
 	private static final DataLoader instance = new DataLoader();
 
+	/**
+	 * Reads JSON, by its extension a {@link ColumnarFile} or, given its manifest, a whole {@link Archive}.
+	 */
 	public Collection<Map<String, Value<?>>> load(Path file) {
-		try {
-			JsonArray object = JsonDeserializer.read(Files.newBufferedReader(file)).asArrayOrNull();
-			return load(object);
+		if (Archive.isArchive(file)) {
+			Archive archive = Archive.open(file.toAbsolutePath().getParent());
+			return archive.load(archive.getStart(), archive.getEnd());
+		}
+		if (ColumnarFile.isColumnarFile(file)) {
+			return ColumnarFile.read(file).toDatapoints();
+		}
+		try (JsonRecordReader reader = new JsonRecordReader(Files.newBufferedReader(file))) {
+			return load(reader);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	public Collection<Map<String, Value<?>>> load(String json) {
-		try {
-			JsonArray object = JsonDeserializer.fromString(json).asArrayOrNull();
-			return load(object);
+		try (JsonRecordReader reader = new JsonRecordReader(new StringReader(json))) {
+			return load(reader);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private static List<Map<String, Value<?>>> load(JsonRecordReader reader) throws IOException {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		while (reader.nextRecord()) {
+			list.add(reader.readRecord());
+		}
+		return list;
+	}
+
+	/**
+	 * Reads numbers and booleans straight into columns, without a map or boxed value per record.
+	 * A channel keeps the type of its first value, later values of another type as well as strings and arrays are skipped.
+	 * Rows without a value of a channel are marked by {@link ColumnarFile#isPresent(String, int)} and hold {@code NaN}
+	 * in analog channels.
+	 */
+	public ColumnarFile loadColumns(Path file) {
+		if (ColumnarFile.isColumnarFile(file)) {
+			return ColumnarFile.read(file);
+		}
+		try (JsonRecordReader reader = new JsonRecordReader(Files.newBufferedReader(file))) {
+			ColumnarData columns = new ColumnarData();
+			// per column, the rows that have a value
+			List<long[]> present = new ArrayList<>();
+			while (reader.nextRecord()) {
+				int row = columns.addRows(1);
+				String key;
+				while ((key = reader.nextKey()) != null) {
+					int type = reader.peek();
+					if (type == JsonRecordReader.NUMBER && "time".equals(key)) {
+						columns.setTime(row, (int) reader.nextNumber());
+						continue;
+					}
+					int index = columns.indexOf(key);
+					if (index == -1 && (type == JsonRecordReader.NUMBER || type == JsonRecordReader.BOOLEAN)) {
+						index = columns.addColumn(type == JsonRecordReader.NUMBER
+								? new DoubleColumn(null, key, 0) : new BitColumn(null, key, 0));
+						present.add(new long[0]);
+					}
+					Column column = index == -1 ? null : columns.getColumn(index);
+					if (type == JsonRecordReader.NUMBER && column instanceof DoubleColumn c) {
+						c.set(row, reader.nextNumber());
+					} else if (type == JsonRecordReader.BOOLEAN && column instanceof BitColumn c) {
+						c.set(row, reader.nextBoolean());
+					} else {
+						reader.nextValue();
+						continue;
+					}
+					long[] words = present.get(index);
+					if (words.length <= row >>> 6) {
+						words = Arrays.copyOf(words, Math.max((row >>> 6) + 1, words.length * 2));
+						present.set(index, words);
+					}
+					words[row >>> 6] |= 1L << row;
+				}
+			}
+			columns.trim();
+			int rows = columns.getSize();
+			long[][] gaps = new long[present.size()][];
+			for (int i = 0; i < gaps.length; i++) {
+				long[] words = Arrays.copyOf(present.get(i), BitColumn.wordCount(rows));
+				int count = 0;
+				for (long word : words) {
+					count += Long.bitCount(word);
+				}
+				if (count == rows) {
+					continue;
+				}
+				gaps[i] = words;
+				if (columns.getColumn(i) instanceof DoubleColumn c) {
+					for (int row = 0; row < rows; row++) {
+						if ((words[row >>> 6] & (1L << row)) == 0) {
+							c.set(row, Double.NaN);
+						}
+					}
+				}
+			}
+			return ColumnarFile.of(columns, gaps);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Converts records parsed by jfgjds into the form {@link #load(Path)} returns, arrays included.
+	 */
 	public Collection<Map<String, Value<?>>> load(JsonArray object) {
 		List<Map<String, Value<?>>> list = new ArrayList<>();
 		if (object != null) {
@@ -44,22 +149,10 @@ public class DataLoader {
 				Map<String, Value<?>> map = new HashMap<>();
 				JsonObject o = jsonValue.asObject();
 				o.forEach((s, val) -> {
-
-					if (val.isNull()) {
-						return;
-					}
-
-					Object value;
-					if (val.isNumber()) {
-						value = val.getDoubleNumberValue();
-					} else if (val.isArray()) {
-						value = val.asArray().stream().map(JsonValue::getBooleanValue).toArray(Boolean[]::new);
-					} else if (val.isBoolean()) {
-						value = val.getBooleanValue();
-					} else {
-						value = val.getStringValue();
+					Object value = value(val);
+					if (value != null) {
+						map.put(s, Value.of(value));
 					}
-					map.put(s, Value.of(value));
 				});
 				list.add(map);
 			});
@@ -67,6 +160,19 @@ public class DataLoader {
 		return list;
 	}
 
+	private static Object value(JsonValue val) {
+		if (val.isNull()) {
+			return null;
+		} else if (val.isNumber()) {
+			return val.getDoubleNumberValue();
+		} else if (val.isArray()) {
+			return JsonRecordReader.toArray(val.asArray().stream().map(DataLoader::value).toList());
+		} else if (val.isBoolean()) {
+			return val.getBooleanValue();
+		}
+		return val.getStringValue();
+	}
+
 	public JsonArray save(Collection<Map<String, Value<?>>> data) {
 		JsonArray object = new JsonArray();
 		data.forEach((map) -> {
@@ -91,41 +197,150 @@ public class DataLoader {
 		return object;
 	}
 
+	/**
+	 * Writes JSON, along with its {@link Rollups} if it is plot data, or, by its extension, a {@link ColumnarFile}.
+	 */
 	public void save(Collection<Map<String, Value<?>>> data, Path file) {
+		if (ColumnarFile.isColumnarFile(file)) {
+			ColumnarFile.of(data).write(file);
+			return;
+		}
 		try {
 			if (file.getParent() != null) {
 				Files.createDirectories(file.getParent());
 			}
-			BufferedWriter writer = Files.newBufferedWriter(file);
-			JsonSerializer.write(save(data), writer);
+			Files.deleteIfExists(TimeIndex.path(file));
+			try (JsonRecordWriter writer = new JsonRecordWriter(Files.newBufferedWriter(file))) {
+				for (Map<String, Value<?>> map : data) {
+					writer.write(map);
+				}
+			}
+			if (data.stream().anyMatch(map -> map.containsKey("time"))) {
+				Rollups.of(data).write(file);
+			} else {
+				Rollups.delete(file);
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Adds the records of times not yet in the file at its end.
+	 * The records are added to JSON files without parsing them again, using a {@link TimeIndex} next to them to find the
+	 * times already present, and their {@link Rollups} are updated with the new records. The file is replaced as a whole,
+	 * so it is never left half written.
+	 * Given the manifest of an {@link Archive}, the records are filed into its segments.
+	 */
 	public void append(Collection<Map<String, Value<?>>> data, Path file) {
-		Collection<Map<String, Value<?>>> existing = load(file);
-		insert(existing, data);
-		save(existing, file);
-	}
-
-	public void insert(Collection<Map<String, Value<?>>> data1, Collection<Map<String, Value<?>>> data2) {
-		for (Map<String, Value<?>> map : data2) {
-			if (map.containsKey("time")) {
-				int time = ((Number) map.get("time").get()).intValue();
-
-				boolean in = false;
-				for (Map<String, Value<?>> e : data1) {
-					if (((Number) e.get("time").get()).intValue() == time) {
-						in = true;
+		if (Archive.isArchive(file)) {
+			Archive.open(file.toAbsolutePath().getParent()).add(data);
+			return;
+		}
+		if (ColumnarFile.isColumnarFile(file)) {
+			Collection<Map<String, Value<?>>> existing = load(file);
+			insert(existing, data);
+			save(existing, file);
+			return;
+		}
+		try {
+			TimeIndex index = TimeIndex.of(file);
+			List<Map<String, Value<?>>> added = new ArrayList<>();
+			Set<Integer> times = new HashSet<>();
+			for (Map<String, Value<?>> map : data) {
+				if (map.containsKey("time")) {
+					int time = time(map);
+					if (!index.contains(time) && times.add(time)) {
+						added.add(map);
 					}
 				}
+			}
+			if (added.isEmpty() && Files.exists(file)) {
+				return;
+			}
+			// outdated ones are dropped, the next save computes them anew
+			Rollups rollups = Rollups.read(file);
 
-				if (!in) {
-					data1.add(map);
+			// the records are written behind a copy of the file, which then replaces it, so the file stays valid if this fails
+			Path temp = file.resolveSibling(file.getFileName() + TEMP);
+			try {
+				try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE)) {
+					boolean empty = true;
+					if (Files.exists(file)) {
+						try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+							empty = copyArray(in, out, file);
+						}
+					}
+					try (JsonRecordWriter writer = out.size() == 0
+							? new JsonRecordWriter(Channels.newWriter(out, StandardCharsets.UTF_8))
+							: new JsonRecordWriter(Channels.newWriter(out, StandardCharsets.UTF_8), empty)) {
+						for (Map<String, Value<?>> map : added) {
+							writer.write(map);
+						}
+					}
 				}
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+			// a failure from here on leaves the index and rollups older than the file, the index is rebuilt then and the rollups are ignored
+			index.add(times.stream().mapToInt(Integer::intValue).toArray());
+			index.write(file);
+			if (rollups != null) {
+				rollups.add(added);
+				rollups.write(file);
+			} else {
+				Rollups.delete(file);
 			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Copies a JSON array up to its closing bracket, leaving the channel positioned to continue it.
+	 *
+	 * @return whether the array is empty
+	 */
+	private static boolean copyArray(FileChannel in, FileChannel out, Path file) throws IOException {
+		long end = in.size();
+		if (end == 0) {
+			return true;
 		}
+		ByteBuffer tail = ByteBuffer.allocate((int) Math.min(end, 256));
+		in.read(tail, end - tail.capacity());
+		int i = tail.capacity() - 1;
+		while (i >= 0 && Character.isWhitespace(tail.get(i))) {
+			i--;
+		}
+		if (i < 0 || tail.get(i) != ']') {
+			throw new IllegalStateException("Not a JSON array: " + file);
+		}
+		long bracket = end - tail.capacity() + i;
+		do {
+			i--;
+		} while (i >= 0 && Character.isWhitespace(tail.get(i)));
+		for (long position = 0; position < bracket; ) {
+			position += in.transferTo(position, bracket - position, out);
+		}
+		return i >= 0 && tail.get(i) == '[';
+	}
+
+	public void insert(Collection<Map<String, Value<?>>> data1, Collection<Map<String, Value<?>>> data2) {
+		Set<Integer> times = new HashSet<>();
+		for (Map<String, Value<?>> e : data1) {
+			times.add(time(e));
+		}
+		for (Map<String, Value<?>> map : data2) {
+			if (map.containsKey("time") && times.add(time(map))) {
+				data1.add(map);
+			}
+		}
+	}
+
+	private static int time(Map<String, Value<?>> map) {
+		return ((Number) map.get("time").get()).intValue();
 	}
 
 }
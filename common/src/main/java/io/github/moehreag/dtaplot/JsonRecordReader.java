@@ -0,0 +1,428 @@
+package io.github.moehreag.dtaplot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Pull parser for the JSON arrays of records written by {@link DataLoader}, reading one value at a time
+ * so a file never has to be held in memory as a whole.
+ * Accepts the same syntax as the jfgjds parser used before.
+ */
+class JsonRecordReader implements Closeable {
+
+	static final int NULL = 0, BOOLEAN = 1, NUMBER = 2, STRING = 3, ARRAY = 4, OBJECT = 5;
+
+	private static final double[] POWERS = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final Reader in;
+	private final char[] buf = new char[64 * 1024];
+	private int pos, limit;
+	private final StringBuilder text = new StringBuilder();
+
+	private boolean done, firstRecord = true, firstKey;
+	// the keys of the previous record by position, records usually repeat them
+	private String[] keys = new String[16];
+	private boolean[] plain = new boolean[16];
+	private int keyIndex;
+
+	JsonRecordReader(Reader in) throws IOException {
+		this.in = in;
+		skipWhitespace();
+		// anything but an array holds no records
+		if (peekChar() == '[') {
+			pos++;
+		} else {
+			done = true;
+		}
+	}
+
+	/**
+	 * Moves to the next record.
+	 *
+	 * @return {@code false} after the last one
+	 */
+	boolean nextRecord() throws IOException {
+		if (done) {
+			return false;
+		}
+		skipWhitespace();
+		if (peekChar() == ']') {
+			done = true;
+			return false;
+		}
+		if (!firstRecord) {
+			expect(',');
+			skipWhitespace();
+		}
+		firstRecord = false;
+		expect('{');
+		firstKey = true;
+		keyIndex = 0;
+		return true;
+	}
+
+	/**
+	 * @return the key of the next value of the current record, or {@code null} at its end
+	 */
+	String nextKey() throws IOException {
+		skipWhitespace();
+		if (peekChar() == '}') {
+			pos++;
+			return null;
+		}
+		if (!firstKey) {
+			expect(',');
+			skipWhitespace();
+		}
+		firstKey = false;
+		if (keyIndex == keys.length) {
+			keys = Arrays.copyOf(keys, keys.length * 2);
+			plain = Arrays.copyOf(plain, plain.length * 2);
+		}
+		String key = keys[keyIndex];
+		if (plain[keyIndex] && matches(key)) {
+			pos += key.length() + 2;
+		} else {
+			readString();
+			if (key == null || !key.contentEquals(text)) {
+				key = keys[keyIndex] = text.toString();
+				plain[keyIndex] = isPlain(key);
+			}
+		}
+		keyIndex++;
+		skipWhitespace();
+		expect(':');
+		skipWhitespace();
+		return key;
+	}
+
+	// whether the quoted key at the current position is written without escapes and equals the given one
+	private boolean matches(String key) {
+		int end = pos + key.length() + 1;
+		if (end >= limit || buf[pos] != '"' || buf[end] != '"') {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (buf[pos + 1 + i] != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPlain(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c < 0x20 || c == '\\' || c == '"') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the type of the next value
+	 */
+	int peek() throws IOException {
+		return switch (peekChar()) {
+			case 'n' -> NULL;
+			case 't', 'f' -> BOOLEAN;
+			case '"' -> STRING;
+			case '[' -> ARRAY;
+			case '{' -> OBJECT;
+			default -> NUMBER;
+		};
+	}
+
+	boolean nextBoolean() throws IOException {
+		if (peekChar() == 't') {
+			literal("true");
+			return true;
+		}
+		literal("false");
+		return false;
+	}
+
+	void nextNull() throws IOException {
+		literal("null");
+	}
+
+	String nextString() throws IOException {
+		readString();
+		return text.toString();
+	}
+
+	double nextNumber() throws IOException {
+		// a decimal lying completely in the buffer whose digits fit into a double and whose power of ten is exact
+		// needs a single rounding step, which covers most of what Double.toString writes for sensor values
+		int i = pos;
+		boolean negative = i < limit && buf[i] == '-';
+		if (negative) {
+			i++;
+		}
+		int start = i, digits = 0, exponent = 0;
+		long mantissa = 0;
+		boolean fraction = false;
+		for (; i < limit; i++) {
+			char c = buf[i];
+			if (c >= '0' && c <= '9') {
+				if (mantissa != 0 || c != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (c - '0');
+				if (fraction) {
+					exponent--;
+				}
+			} else if (c == '.' && !fraction && i > start) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		boolean valid = i > start && buf[i - 1] != '.' && !(buf[start] == '0' && start + 1 < i && buf[start + 1] != '.');
+		if (valid && i < limit && (buf[i] == 'e' || buf[i] == 'E')) {
+			int j = i + 1, sign = 1, value = 0;
+			if (j < limit && (buf[j] == '+' || buf[j] == '-')) {
+				sign = buf[j++] == '-' ? -1 : 1;
+			}
+			int first = j;
+			for (; j < limit && buf[j] >= '0' && buf[j] <= '9' && j - first < 4; j++) {
+				value = value * 10 + (buf[j] - '0');
+			}
+			valid = j > first;
+			exponent += sign * value;
+			i = j;
+		}
+		if (valid && i < limit && !isNumberChar(buf[i]) && digits <= 18 && mantissa <= 1L << 53 && Math.abs(exponent) < POWERS.length) {
+			pos = i;
+			double value = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+			return negative ? -value : value;
+		}
+
+		text.setLength(0);
+		int c;
+		while ((c = peekChar()) >= 0 && isNumberChar((char) c)) {
+			text.append((char) c);
+			pos++;
+		}
+		if (!isJsonNumber(text)) {
+			throw error("Failed to parse number '" + text + "'");
+		}
+		return Double.parseDouble(text.toString());
+	}
+
+	// -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?, Double.parseDouble is more lenient
+	private static boolean isJsonNumber(CharSequence s) {
+		int i = s.length() > 0 && s.charAt(0) == '-' ? 1 : 0;
+		int start = i;
+		i = digits(s, i);
+		if (i == start || s.charAt(start) == '0' && i > start + 1) {
+			return false;
+		}
+		if (i < s.length() && s.charAt(i) == '.') {
+			start = ++i;
+			i = digits(s, i);
+			if (i == start) {
+				return false;
+			}
+		}
+		if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			if (i < s.length() && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+				i++;
+			}
+			start = i;
+			i = digits(s, i);
+			if (i == start) {
+				return false;
+			}
+		}
+		return i == s.length();
+	}
+
+	private static int digits(CharSequence s, int i) {
+		while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isNumberChar(char c) {
+		return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+	}
+
+	/**
+	 * @return a {@code boolean[]} or {@code double[]} if all elements are booleans or numbers, an {@code Object[]} otherwise
+	 */
+	Object nextArray() throws IOException {
+		expect('[');
+		List<Object> values = new ArrayList<>();
+		skipWhitespace();
+		while (peekChar() != ']') {
+			if (!values.isEmpty()) {
+				expect(',');
+				skipWhitespace();
+			}
+			values.add(nextValue());
+			skipWhitespace();
+		}
+		pos++;
+		return toArray(values);
+	}
+
+	/**
+	 * @return a {@code boolean[]} or {@code double[]} if all values are booleans or numbers, an {@code Object[]} otherwise
+	 */
+	static Object toArray(List<Object> values) {
+		boolean booleans = true, numbers = true;
+		for (Object value : values) {
+			booleans &= value instanceof Boolean;
+			numbers &= value instanceof Double;
+		}
+		if (booleans) {
+			boolean[] array = new boolean[values.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = (Boolean) values.get(i);
+			}
+			return array;
+		} else if (numbers) {
+			double[] array = new double[values.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = (Double) values.get(i);
+			}
+			return array;
+		}
+		return values.toArray();
+	}
+
+	/**
+	 * @return the next value boxed, {@code null} for JSON {@code null}
+	 */
+	Object nextValue() throws IOException {
+		return switch (peek()) {
+			case NULL -> {
+				nextNull();
+				yield null;
+			}
+			case BOOLEAN -> nextBoolean();
+			case STRING -> nextString();
+			case ARRAY -> nextArray();
+			case NUMBER -> nextNumber();
+			default -> throw error("Unsupported nested object");
+		};
+	}
+
+	/**
+	 * Reads the rest of the current record, in the form {@link DataLoader#load(java.nio.file.Path)} returns.
+	 */
+	Map<String, Value<?>> readRecord() throws IOException {
+		Map<String, Value<?>> map = new HashMap<>();
+		String key;
+		while ((key = nextKey()) != null) {
+			Object value = nextValue();
+			if (value != null) {
+				map.put(key, Value.of(value));
+			}
+		}
+		return map;
+	}
+
+	private void readString() throws IOException {
+		expect('"');
+		text.setLength(0);
+		while (true) {
+			if (pos == limit && !fill()) {
+				throw error("Expected '\"' but got EOF");
+			}
+			char c = buf[pos++];
+			if (c == '"') {
+				return;
+			} else if (c < 0x20) {
+				throw error("Found unescaped control character within string");
+			} else if (c == '\\') {
+				int seq = read();
+				switch (seq) {
+					case '\\', '/', '"' -> text.append((char) seq);
+					case 'b' -> text.append('\b');
+					case 'f' -> text.append('\f');
+					case 'n' -> text.append('\n');
+					case 'r' -> text.append('\r');
+					case 't' -> text.append('\t');
+					case 'u' -> {
+						int value = 0;
+						for (int i = 0; i < 4; i++) {
+							int digit = Character.digit(read(), 16);
+							if (digit < 0) {
+								throw error("Invalid hex sequence");
+							}
+							value = value << 4 | digit;
+						}
+						text.append((char) value);
+					}
+					case -1 -> throw error("Expected an escape sequence but got EOF");
+					default -> throw error("Invalid escape sequence: \\" + (char) seq);
+				}
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	private void literal(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw error("Expected " + literal);
+			}
+		}
+	}
+
+	private void expect(char c) throws IOException {
+		int actual = read();
+		if (actual != c) {
+			throw error("Expected '" + c + "' but got " + (actual == -1 ? "EOF" : "'" + (char) actual + "'"));
+		}
+	}
+
+	private void skipWhitespace() throws IOException {
+		int c;
+		while ((c = peekChar()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+			pos++;
+		}
+	}
+
+	private int peekChar() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buf[pos];
+	}
+
+	private int read() throws IOException {
+		int c = peekChar();
+		if (c >= 0) {
+			pos++;
+		}
+		return c;
+	}
+
+	private boolean fill() throws IOException {
+		int read = in.read(buf, 0, buf.length);
+		pos = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
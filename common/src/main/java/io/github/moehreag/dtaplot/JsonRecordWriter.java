@@ -0,0 +1,144 @@
+package io.github.moehreag.dtaplot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.toadlabs.jfgjds.JsonSerializer;
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * Writes datapoints as a JSON array one record at a time, producing exactly what {@link JsonSerializer}
+ * makes of the tree built by {@link DataLoader#save(java.util.Collection)}.
+ */
+class JsonRecordWriter implements Closeable {
+
+	private final Writer out;
+	private final StringBuilder record = new StringBuilder();
+	private boolean first = true;
+
+	// keys of the previous record in its own order, and in the order the HashMap of a JsonObject iterates them
+	private String[] keys = new String[0];
+	private int keyCount;
+	private String[] order = new String[0];
+
+	JsonRecordWriter(Writer out) throws IOException {
+		this(out, true);
+		out.write('[');
+	}
+
+	/**
+	 * Continues an array whose closing bracket has been cut off.
+	 *
+	 * @param empty whether the array has no records yet
+	 */
+	JsonRecordWriter(Writer out, boolean empty) {
+		this.out = out;
+		this.first = empty;
+	}
+
+	void write(Map<String, Value<?>> map) throws IOException {
+		record.setLength(0);
+		if (!first) {
+			record.append(',');
+		}
+		first = false;
+
+		record.append('{');
+		String[] order = order(map);
+		for (int i = 0; i < order.length; i++) {
+			if (i > 0) {
+				record.append(',');
+			}
+			writeString(order[i]);
+			record.append(':');
+			Object value = map.get(order[i]).get();
+			if (value != null && value.getClass().isArray()) {
+				record.append('[');
+				for (int j = 0; j < Array.getLength(value); j++) {
+					if (j > 0) {
+						record.append(',');
+					}
+					writeValue(Array.get(value, j));
+				}
+				record.append(']');
+			} else {
+				writeValue(value);
+			}
+		}
+		record.append('}');
+		out.append(record);
+	}
+
+	private String[] order(Map<String, Value<?>> map) {
+		int count = 0;
+		boolean same = map.size() == keyCount;
+		if (keys.length < map.size()) {
+			keys = Arrays.copyOf(keys, map.size());
+		}
+		for (String key : map.keySet()) {
+			same &= key.equals(keys[count]);
+			keys[count++] = key;
+		}
+		if (!same) {
+			keyCount = count;
+			Map<String, Boolean> json = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				json.put(keys[i], true);
+			}
+			order = json.keySet().toArray(String[]::new);
+		}
+		return order;
+	}
+
+	private void writeValue(Object value) {
+		if (value == null) {
+			record.append("null");
+		} else if (value instanceof String s) {
+			writeString(s);
+		} else if (value instanceof Number n) {
+			double d = n.doubleValue();
+			if (Double.isInfinite(d)) {
+				record.append(d < 0 ? "-1E99999" : "1E99999");
+			} else if (Double.isNaN(d)) {
+				record.append("null");
+			} else {
+				record.append(d);
+			}
+		} else if (value instanceof Boolean b) {
+			record.append(b.booleanValue());
+		} else {
+			record.append(JsonSerializer.toString(JsonValue.coerce(value)));
+		}
+	}
+
+	private void writeString(String s) {
+		record.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '\\', '"' -> record.append('\\').append(c);
+				case '\b' -> record.append("\\b");
+				case '\f' -> record.append("\\f");
+				case '\n' -> record.append("\\n");
+				case '\r' -> record.append("\\r");
+				case '\t' -> record.append("\\t");
+				default -> record.append(c);
+			}
+		}
+		record.append('"');
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.write(']');
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package io.github.moehreag.dtaplot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorted times of the records of a JSON data file, kept next to it so that appending does not have to read the file again.
+ * <p>
+ * Stored little endian as {@code int magic "TIX1", long file size, long file modification time, int count, int[count] times}.
+ * An index whose size or modification time no longer match its data file is rebuilt by scanning the file.
+ */
+class TimeIndex {
+
+	static final String EXTENSION = ".idx";
+
+	private static final int MAGIC = 0x31584954;
+	private static final int HEADER = 24;
+
+	private int[] times;
+	private int size;
+
+	private TimeIndex(int[] times, int size) {
+		this.times = times;
+		this.size = size;
+	}
+
+	static Path path(Path file) {
+		return file.resolveSibling(file.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Reads the index of a data file, rebuilding it if it is missing or stale.
+	 */
+	static TimeIndex of(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return new TimeIndex(new int[16], 0);
+		}
+		TimeIndex index = read(path(file), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+		return index != null ? index : scan(file);
+	}
+
+	private static TimeIndex read(Path path, long fileSize, long modified) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0) ;
+			header.flip();
+			if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getLong() != fileSize || header.getLong() != modified) {
+				return null;
+			}
+			int count = header.getInt();
+			if (count < 0 || channel.size() != HEADER + 4L * count) {
+				return null;
+			}
+			ByteBuffer body = ByteBuffer.allocate(4 * count).order(ByteOrder.LITTLE_ENDIAN);
+			while (body.hasRemaining() && channel.read(body) >= 0) ;
+			int[] times = new int[Math.max(count, 16)];
+			body.flip().asIntBuffer().get(times, 0, count);
+			return new TimeIndex(times, count);
+		}
+	}
+
+	private static TimeIndex scan(Path file) throws IOException {
+		int[] times = new int[1024];
+		int size = 0;
+		try (JsonRecordReader reader = new JsonRecordReader(Files.newBufferedReader(file))) {
+			while (reader.nextRecord()) {
+				String key;
+				while ((key = reader.nextKey()) != null) {
+					if ("time".equals(key) && reader.peek() == JsonRecordReader.NUMBER) {
+						if (size == times.length) {
+							times = Arrays.copyOf(times, size + (size >> 1));
+						}
+						times[size++] = (int) reader.nextNumber();
+					} else {
+						reader.nextValue();
+					}
+				}
+			}
+		}
+		Arrays.sort(times, 0, size);
+		return new TimeIndex(times, size);
+	}
+
+	boolean contains(int time) {
+		return Arrays.binarySearch(times, 0, size, time) >= 0;
+	}
+
+	/**
+	 * Merges times that are not in the index yet.
+	 */
+	void add(int[] added) {
+		int[] sorted = added.clone();
+		Arrays.sort(sorted);
+		int[] merged = new int[Math.max(size + sorted.length, 16)];
+		int i = 0, j = 0, k = 0;
+		while (i < size || j < sorted.length) {
+			merged[k++] = j == sorted.length || i < size && times[i] <= sorted[j] ? times[i++] : sorted[j++];
+		}
+		times = merged;
+		size = k;
+	}
+
+	/**
+	 * Writes the index next to its data file, stamped with the current size and modification time of the file.
+	 */
+	void write(Path file) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(HEADER + 4 * size).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC).putLong(Files.size(file)).putLong(Files.getLastModifiedTime(file).toMillis()).putInt(size);
+		buf.asIntBuffer().put(times, 0, size);
+		try (FileChannel channel = FileChannel.open(path(file), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			buf.clear();
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		}
+	}
+}
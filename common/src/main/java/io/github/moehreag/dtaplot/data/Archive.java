@@ -0,0 +1,354 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+import io.github.moehreag.dtaplot.Value;
+import io.toadlabs.jfgjds.JsonDeserializer;
+import io.toadlabs.jfgjds.JsonSerializer;
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonObject;
+import io.toadlabs.jfgjds.data.JsonValue;
+import lombok.Getter;
+
+/**
+ * History of unlimited length, kept in a directory as one compressed {@link ColumnarFile} per UTC day
+ * and a manifest of the time span of each, so that reading a range only opens the segments overlapping it.
+ * <p>
+ * Segments are never modified in place: adding data to a day writes its segment anew and replaces the old one.
+ */
+public class Archive {
+
+	public static final String MANIFEST = "manifest.json";
+	/**
+	 * How much of an archive the plots show when opening it.
+	 */
+	public static final int RECENT_DAYS = 7;
+
+	private static final int DAY = 24 * 60 * 60;
+	private static final String TEMP = ".tmp";
+
+	@Getter
+	private final Path directory;
+	// by epoch day
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+	private Archive(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return whether the file is the manifest of an archive, which stands for the whole archive in file dialogs
+	 */
+	public static boolean isArchive(Path file) {
+		return file.getFileName().toString().equals(MANIFEST);
+	}
+
+	/**
+	 * Opens an archive, creating the directory if necessary. A missing manifest is rebuilt from the segments present.
+	 */
+	public static Archive open(Path directory) {
+		Archive archive = new Archive(directory);
+		try {
+			Files.createDirectories(directory);
+			Path manifest = directory.resolve(MANIFEST);
+			if (Files.exists(manifest)) {
+				archive.readManifest(manifest);
+			} else {
+				archive.scan();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return archive;
+	}
+
+	private void readManifest(Path manifest) throws IOException {
+		try (var reader = Files.newBufferedReader(manifest)) {
+			JsonArray list = JsonDeserializer.read(reader).asObject().get("segments").asArray();
+			for (JsonValue value : list) {
+				JsonObject o = value.asObject();
+				Segment segment = new Segment(o.get("file").getStringValue(), o.get("from").getIntNumberValue(),
+						o.get("to").getIntNumberValue(), o.get("rows").getIntNumberValue());
+				segments.put(day(segment.from()), segment);
+			}
+		}
+	}
+
+	private void scan() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.filter(f -> f.getFileName().toString().endsWith(ColumnarFile.COMPRESSED_EXTENSION)
+					&& !f.getFileName().toString().contains(TEMP)).toList()) {
+				ColumnarData times = ColumnarFile.read(file, Set.of()).getColumns();
+				if (times.getSize() == 0) {
+					continue;
+				}
+				int from = Integer.MAX_VALUE, to = Integer.MIN_VALUE;
+				for (int time : times.getTimes()) {
+					from = Math.min(from, time);
+					to = Math.max(to, time);
+				}
+				segments.put(day(from), new Segment(file.getFileName().toString(), from, to, times.getSize()));
+			}
+		}
+		if (!segments.isEmpty()) {
+			writeManifest();
+		}
+	}
+
+	public boolean isEmpty() {
+		return segments.isEmpty();
+	}
+
+	public int getStart() {
+		return segments.isEmpty() ? 0 : segments.firstEntry().getValue().from();
+	}
+
+	public int getEnd() {
+		return segments.isEmpty() ? 0 : segments.lastEntry().getValue().to();
+	}
+
+	public int getSize() {
+		return segments.values().stream().mapToInt(Segment::rows).sum();
+	}
+
+	/**
+	 * Files records into the segments of their days. Records without a time, or with a time already archived, are skipped.
+	 * Like {@link ColumnarFile#of(Collection)}, only numbers and booleans are kept, strings and arrays are dropped.
+	 */
+	public synchronized void add(Collection<Map<String, Value<?>>> data) {
+		Map<Long, List<Map<String, Value<?>>>> days = new TreeMap<>();
+		for (Map<String, Value<?>> map : data) {
+			Value<?> time = map.get("time");
+			if (time != null && time.get() instanceof Number n) {
+				days.computeIfAbsent(day(n.intValue()), d -> new ArrayList<>()).add(map);
+			}
+		}
+		if (days.isEmpty()) {
+			return;
+		}
+		try {
+			for (Map.Entry<Long, List<Map<String, Value<?>>>> e : days.entrySet()) {
+				Segment segment = segments.get(e.getKey());
+				List<Map<String, Value<?>>> records = segment == null ? new ArrayList<>()
+						: ColumnarFile.read(directory.resolve(segment.file())).toDatapoints();
+				Set<Integer> times = new HashSet<>();
+				for (Map<String, Value<?>> map : records) {
+					times.add(time(map));
+				}
+				int before = records.size();
+				for (Map<String, Value<?>> map : e.getValue()) {
+					if (times.add(time(map))) {
+						records.add(map);
+					}
+				}
+				if (records.size() == before) {
+					continue;
+				}
+				records.sort(Comparator.comparingInt(Archive::time));
+				segments.put(e.getKey(), write(e.getKey(), records));
+			}
+			writeManifest();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Segment write(long day, List<Map<String, Value<?>>> records) throws IOException {
+		String name = LocalDate.ofEpochDay(day) + ColumnarFile.COMPRESSED_EXTENSION;
+		Path temp = directory.resolve(name + TEMP + ColumnarFile.COMPRESSED_EXTENSION);
+		ColumnarFile.of(records).write(temp);
+		Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return new Segment(name, time(records.get(0)), time(records.get(records.size() - 1)), records.size());
+	}
+
+	private void writeManifest() throws IOException {
+		JsonArray list = new JsonArray();
+		for (Segment segment : segments.values()) {
+			list.add(new JsonObject()
+					.put("file", segment.file())
+					.put("from", segment.from())
+					.put("to", segment.to())
+					.put("rows", segment.rows()));
+		}
+		Path temp = directory.resolve(MANIFEST + TEMP);
+		try (Writer writer = Files.newBufferedWriter(temp)) {
+			JsonSerializer.write(new JsonObject().put("segments", list), writer);
+		}
+		Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return the values of one channel within {@code [from, to]}
+	 */
+	public ColumnarFile range(String channel, int from, int to) {
+		return range(from, to, Set.of(channel));
+	}
+
+	/**
+	 * Reads the given channels, or all for {@code null}, within {@code [from, to]}.
+	 * Only the segments overlapping the range are opened, and of those only the blocks of the requested channels.
+	 * Rows without a value of a channel, e.g. of days that did not record it, are marked by
+	 * {@link ColumnarFile#isPresent(String, int)} and hold {@code NaN} in analog channels.
+	 */
+	public ColumnarFile range(int from, int to, Set<String> channels) {
+		ColumnarData result = new ColumnarData();
+		// per column of the result, the rows that have a value
+		List<long[]> present = new ArrayList<>();
+		for (Segment segment : overlapping(from, to)) {
+			append(result, present, ColumnarFile.read(directory.resolve(segment.file()), channels), from, to);
+		}
+		result.trim();
+		int rows = result.getSize();
+		long[][] gaps = new long[result.getColumns().size()][];
+		for (int i = 0; i < gaps.length; i++) {
+			long[] words = Arrays.copyOf(present.get(i), BitColumn.wordCount(rows));
+			int count = 0;
+			for (long word : words) {
+				count += Long.bitCount(word);
+			}
+			if (count == rows) {
+				continue;
+			}
+			gaps[i] = words;
+			Column column = result.getColumn(i);
+			for (int row = 0; row < rows; row++) {
+				if ((words[row >>> 6] & (1L << row)) != 0) {
+					continue;
+				}
+				if (column instanceof DoubleColumn d) {
+					d.set(row, Double.NaN);
+				} else if (column instanceof FloatColumn f) {
+					f.set(row, Float.NaN);
+				}
+			}
+		}
+		return ColumnarFile.of(result, result.getColumns(), gaps);
+	}
+
+	/**
+	 * @return the toggles of a digital channel within {@code [from, to]}, reading only that channel.
+	 * Rows without a state of the channel are left out rather than read as off.
+	 * @throws IllegalArgumentException if the channel is not digital
+	 */
+	public Transitions transitions(String channel, int from, int to) {
+		ColumnarFile file = range(channel, from, to);
+		ColumnarData data = file.getColumns();
+		Column column = data.getColumn(channel);
+		if (column == null) {
+			return Transitions.of(new int[0], new BitColumn(null, channel, 0), 0);
+		}
+		if (!(column instanceof BitColumn bits)) {
+			throw new IllegalArgumentException("Not a digital channel: " + channel);
+		}
+		int[] times = new int[data.getSize()];
+		BitColumn states = new BitColumn(bits.getCategory(), channel, data.getSize());
+		int rows = 0;
+		for (int row = 0; row < data.getSize(); row++) {
+			if (file.isPresent(channel, row)) {
+				times[rows] = data.getTime(row);
+				states.set(rows++, bits.get(row));
+			}
+		}
+		return Transitions.of(times, states, rows);
+	}
+
+	/**
+	 * @return the records within {@code [from, to]}, as {@link io.github.moehreag.dtaplot.DataLoader#load(Path)} returns them
+	 */
+	public List<Map<String, Value<?>>> load(int from, int to) {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		for (Segment segment : overlapping(from, to)) {
+			for (Map<String, Value<?>> map : ColumnarFile.read(directory.resolve(segment.file())).toDatapoints()) {
+				int time = time(map);
+				if (time >= from && time <= to) {
+					list.add(map);
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return the records of the last {@link #RECENT_DAYS} days of the archive
+	 */
+	public List<Map<String, Value<?>>> loadRecent() {
+		return load(getRecentStart(), getEnd());
+	}
+
+	/**
+	 * @return the start of the span {@link #loadRecent()} covers
+	 */
+	public int getRecentStart() {
+		return getEnd() - RECENT_DAYS * DAY;
+	}
+
+	private Collection<Segment> overlapping(int from, int to) {
+		if (from > to) {
+			return List.of();
+		}
+		return segments.subMap(day(from), true, day(to), true).values().stream()
+				.filter(s -> s.to() >= from && s.from() <= to)
+				.toList();
+	}
+
+	private static void append(ColumnarData target, List<long[]> present, ColumnarFile segment, int from, int to) {
+		ColumnarData data = segment.getColumns();
+		List<Column> columns = segment.all;
+		Column[] targets = new Column[columns.size()];
+		int[] indices = new int[targets.length];
+		for (int i = 0; i < targets.length; i++) {
+			Column c = columns.get(i);
+			Column t = target.getColumn(c.getName());
+			if (t == null) {
+				t = target.getColumn(target.addColumn(ColumnarFile.type(c).create(c.getCategory(), c.getName(), 0)));
+				present.add(new long[0]);
+			}
+			// a channel keeps the type it was first read with
+			targets[i] = ColumnarFile.type(t) == ColumnarFile.type(c) ? t : null;
+			indices[i] = target.indexOf(c.getName());
+		}
+		for (int row = 0; row < data.getSize(); row++) {
+			int time = data.getTime(row);
+			if (time < from || time > to) {
+				continue;
+			}
+			int r = target.addRow(time);
+			for (int i = 0; i < targets.length; i++) {
+				if (targets[i] == null || !segment.isPresent(i, row)) {
+					continue;
+				}
+				if (targets[i] instanceof DoubleColumn d) {
+					d.set(r, ((DoubleColumn) columns.get(i)).get(row));
+				} else if (targets[i] instanceof FloatColumn f) {
+					f.set(r, ((FloatColumn) columns.get(i)).get(row));
+				} else if (targets[i] instanceof BitColumn b) {
+					b.set(r, ((BitColumn) columns.get(i)).get(row));
+				}
+				long[] words = present.get(indices[i]);
+				if (words.length <= r >>> 6) {
+					words = Arrays.copyOf(words, Math.max(BitColumn.wordCount(r + 1), words.length * 2));
+					present.set(indices[i], words);
+				}
+				words[r >>> 6] |= 1L << r;
+			}
+		}
+	}
+
+	private static long day(int time) {
+		return Math.floorDiv(time, DAY);
+	}
+
+	private static int time(Map<String, Value<?>> map) {
+		return ((Number) map.get("time").get()).intValue();
+	}
+
+	private record Segment(String file, int from, int to, int rows) {
+	}
+}
@@ -0,0 +1,71 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.Arrays;
+
+import io.github.moehreag.dtaplot.Value;
+
+/**
+ * A digital channel, packed into 64 rows per {@code long}.
+ */
+public class BitColumn extends Column {
+
+	// immutable, so every row shares them instead of boxing its own
+	private static final Value<Boolean> TRUE = Value.of(true), FALSE = Value.of(false);
+
+	private long[] words;
+
+	public BitColumn(String category, String name, int capacity) {
+		super(category, name);
+		words = new long[wordCount(capacity)];
+	}
+
+	public boolean get(int row) {
+		return (words[row >>> 6] & (1L << row)) != 0;
+	}
+
+	public void set(int row, boolean value) {
+		if (value) {
+			words[row >>> 6] |= 1L << row;
+		} else {
+			words[row >>> 6] &= ~(1L << row);
+		}
+	}
+
+	public long[] getWords() {
+		return words;
+	}
+
+	@Override
+	public boolean isNumeric() {
+		return false;
+	}
+
+	@Override
+	public double getDouble(int row) {
+		return get(row) ? 1 : 0;
+	}
+
+	@Override
+	public Value<?> getValue(int row) {
+		return get(row) ? TRUE : FALSE;
+	}
+
+	@Override
+	void set(int row, Object value) {
+		set(row, ((Boolean) value).booleanValue());
+	}
+
+	@Override
+	int capacity() {
+		return words.length << 6;
+	}
+
+	@Override
+	void resize(int capacity) {
+		words = Arrays.copyOf(words, wordCount(capacity));
+	}
+
+	public static int wordCount(int rows) {
+		return (rows + 63) >>> 6;
+	}
+}
@@ -0,0 +1,29 @@
+package io.github.moehreag.dtaplot.data;
+
+import io.github.moehreag.dtaplot.Value;
+import lombok.Getter;
+
+@Getter
+public abstract class Column {
+
+	private final String category, name;
+
+	protected Column(String category, String name) {
+		this.category = category;
+		this.name = name;
+	}
+
+	public boolean isNumeric() {
+		return true;
+	}
+
+	public abstract double getDouble(int row);
+
+	public abstract Value<?> getValue(int row);
+
+	abstract void set(int row, Object value);
+
+	abstract int capacity();
+
+	abstract void resize(int capacity);
+}
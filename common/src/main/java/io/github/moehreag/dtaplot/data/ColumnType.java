@@ -0,0 +1,24 @@
+package io.github.moehreag.dtaplot.data;
+
+public enum ColumnType {
+	DOUBLE {
+		@Override
+		public Column create(String category, String name, int capacity) {
+			return new DoubleColumn(category, name, capacity);
+		}
+	},
+	FLOAT {
+		@Override
+		public Column create(String category, String name, int capacity) {
+			return new FloatColumn(category, name, capacity);
+		}
+	},
+	BIT {
+		@Override
+		public Column create(String category, String name, int capacity) {
+			return new BitColumn(category, name, capacity);
+		}
+	};
+
+	public abstract Column create(String category, String name, int capacity);
+}
@@ -0,0 +1,171 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.dta.DataField;
+
+/**
+ * Time series stored as one primitive array per channel, sharing a common {@code int} time column.
+ */
+public class ColumnarData {
+
+	private int size;
+	private int[] times;
+	private final List<Column> columns = new ArrayList<>();
+	private final Map<String, Integer> indices = new HashMap<>();
+
+	public ColumnarData() {
+		this(16);
+	}
+
+	public ColumnarData(int capacity) {
+		times = new int[Math.max(capacity, 1)];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getTime(int row) {
+		return times[row];
+	}
+
+	public int[] getTimes() {
+		trim();
+		return times;
+	}
+
+	public List<Column> getColumns() {
+		return Collections.unmodifiableList(columns);
+	}
+
+	public Set<String> getChannels() {
+		return Collections.unmodifiableSet(indices.keySet());
+	}
+
+	public Column getColumn(String name) {
+		Integer index = indices.get(name);
+		return index == null ? null : columns.get(index);
+	}
+
+	public Column getColumn(int index) {
+		return columns.get(index);
+	}
+
+	public int indexOf(String name) {
+		return indices.getOrDefault(name, -1);
+	}
+
+	/**
+	 * Adds a column, replacing any existing column of the same name in place.
+	 *
+	 * @return the index of the column
+	 */
+	public int addColumn(Column column) {
+		if (column.capacity() < times.length) {
+			column.resize(times.length);
+		}
+		Integer existing = indices.get(column.getName());
+		if (existing != null) {
+			columns.set(existing, column);
+			return existing;
+		}
+		columns.add(column);
+		indices.put(column.getName(), columns.size() - 1);
+		return columns.size() - 1;
+	}
+
+	public int addRow(int time) {
+		if (size == times.length) {
+			resize(Math.max(16, size + (size >> 1)));
+		}
+		times[size] = time;
+		return size++;
+	}
+
+	/**
+	 * Appends {@code count} zeroed rows to be filled in through the column setters.
+	 *
+	 * @return the index of the first new row
+	 */
+	public int addRows(int count) {
+		if (size + count > times.length) {
+			resize(Math.max(size + count, size + (size >> 1)));
+		}
+		int first = size;
+		size += count;
+		return first;
+	}
+
+	public void setTime(int row, int time) {
+		times[row] = time;
+	}
+
+	/**
+	 * Stores a field produced by the {@link DataField} based readers, creating the matching column on first use.
+	 */
+	public void set(int row, DataField<?> field) {
+		Object value = field.getValue().get();
+		if ("time".equals(field.getName())) {
+			times[row] = ((Number) value).intValue();
+			return;
+		}
+		Column column = getColumn(field.getName());
+		if (column == null || !accepts(column, value)) {
+			column = createColumn(field.getCategory(), field.getName(), value);
+			addColumn(column);
+		}
+		column.set(row, value);
+	}
+
+	private static boolean accepts(Column column, Object value) {
+		if (column instanceof DoubleColumn) {
+			return value instanceof Number && !(value instanceof Float);
+		} else if (column instanceof FloatColumn) {
+			return value instanceof Float;
+		}
+		return column instanceof BitColumn && value instanceof Boolean;
+	}
+
+	private Column createColumn(String category, String name, Object value) {
+		if (value instanceof Float) {
+			return new FloatColumn(category, name, times.length);
+		} else if (value instanceof Number) {
+			return new DoubleColumn(category, name, times.length);
+		} else if (value instanceof Boolean) {
+			return new BitColumn(category, name, times.length);
+		}
+		throw new IllegalArgumentException("Unsupported value for column " + name + ": " + value);
+	}
+
+	public void trim() {
+		if (times.length != size) {
+			resize(size);
+		}
+	}
+
+	private void resize(int capacity) {
+		times = Arrays.copyOf(times, capacity);
+		for (Column c : columns) {
+			c.resize(capacity);
+		}
+	}
+
+	public Map<String, Value<?>> getRow(int row) {
+		Map<String, Value<?>> map = new HashMap<>();
+		map.put("time", Value.of(times[row]));
+		for (Column c : columns) {
+			map.put(c.getName(), c.getValue(row));
+		}
+		return map;
+	}
+
+	public List<Map<String, Value<?>>> toDatapoints() {
+		List<Map<String, Value<?>>> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(getRow(i));
+		}
+		return list;
+	}
+}
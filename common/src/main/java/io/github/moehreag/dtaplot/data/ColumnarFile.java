@@ -0,0 +1,428 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+
+/**
+ * Binary storage for plot data, laid out so a memory mapped file can be copied into {@link ColumnarData} one block per channel.
+ * <p>
+ * Everything is little endian and every block starts 8 byte aligned:
+ * <pre>
+ * int magic "DPC1", int rows, int channels
+ * per channel: byte {@link ColumnType} ordinal, byte flags, string category, string name, long block offset
+ * int[rows] times
+ * per channel: long[words] rows that have a value (only if flagged), then double[rows], float[rows] or long[words] bits
+ * </pre>
+ * Strings are stored as their UTF-8 length, {@code -1} for {@code null}, followed by the bytes.
+ * A channel holding different types of values in different rows, as in merged files of different versions,
+ * is stored as one channel of the same name per type.
+ * Files are mapped as a whole and therefore limited to 2 GiB.
+ * <p>
+ * Files with the {@link #COMPRESSED_EXTENSION} hold the same channels in the {@link CompressedFormat} instead.
+ */
+public class ColumnarFile {
+
+	public static final String EXTENSION = ".dpc";
+	public static final String COMPRESSED_EXTENSION = ".dpz";
+
+	private static final int MAGIC = 0x31435044;
+	private static final int FLAG_GAPS = 1;
+	private static final String TEMP = ".tmp";
+
+	private final ColumnarData columns;
+	// every stored channel, including the second one of names with mixed types
+	final List<Column> all;
+	// per stored channel, null if every row has a value
+	final long[][] present;
+
+	private ColumnarFile(ColumnarData columns, List<Column> all, long[][] present) {
+		this.columns = columns;
+		this.all = all;
+		this.present = present;
+	}
+
+	public static boolean isColumnarFile(Path file) {
+		String name = file.getFileName().toString();
+		return name.endsWith(EXTENSION) || isCompressed(file);
+	}
+
+	private static boolean isCompressed(Path file) {
+		return file.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+	}
+
+	public static ColumnarFile of(ColumnarData columns) {
+		return new ColumnarFile(columns, columns.getColumns(), new long[columns.getColumns().size()][]);
+	}
+
+	/**
+	 * @param present per column of {@code columns}, the rows that have a value, {@code null} if all have one
+	 */
+	public static ColumnarFile of(ColumnarData columns, long[][] present) {
+		if (present.length != columns.getColumns().size()) {
+			throw new IllegalArgumentException("Expected " + columns.getColumns().size() + " presence bitmaps, got " + present.length);
+		}
+		return new ColumnarFile(columns, columns.getColumns(), present);
+	}
+
+	/**
+	 * Converts plot data, as produced by {@link ColumnarData#toDatapoints()}.
+	 * Rows may lack channels. Only numbers and booleans are stored, strings and arrays are dropped.
+	 */
+	public static ColumnarFile of(Collection<Map<String, Value<?>>> data) {
+		int rows = data.size();
+		int[] times = new int[rows];
+		Map<String, Builder> builders = new LinkedHashMap<>();
+		int row = 0;
+		for (Map<String, Value<?>> map : data) {
+			Value<?> time = map.get("time");
+			if (time == null || !(time.get() instanceof Number)) {
+				throw new IllegalArgumentException("Only plot data can be stored as " + EXTENSION + ", found a row without time");
+			}
+			times[row] = ((Number) time.get()).intValue();
+			for (Map.Entry<String, Value<?>> e : map.entrySet()) {
+				Object value = e.getValue() == null ? null : e.getValue().get();
+				if (!"time".equals(e.getKey()) && (value instanceof Number || value instanceof Boolean)) {
+					builders.computeIfAbsent(e.getKey(), n -> new Builder(n, rows)).set(row, value);
+				}
+			}
+			row++;
+		}
+
+		ColumnarData columns = new ColumnarData(rows);
+		columns.addRows(rows);
+		for (int i = 0; i < rows; i++) {
+			columns.setTime(i, times[i]);
+		}
+		List<Column> all = new ArrayList<>();
+		List<long[]> present = new ArrayList<>();
+		for (Builder b : builders.values()) {
+			b.build(rows, all, present);
+		}
+		addPrimary(columns, all);
+		return new ColumnarFile(columns, all, present.toArray(long[][]::new));
+	}
+
+	/**
+	 * @return the channels as columns, rows without a value hold {@code 0}, {@code NaN} or {@code false}.
+	 * Of a channel with mixed types only the first one stored is included.
+	 */
+	public ColumnarData getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return whether the row holds a value of the channel
+	 */
+	public boolean isPresent(String channel, int row) {
+		Column column = columns.getColumn(channel);
+		return column != null && isPresent(all.indexOf(column), row);
+	}
+
+	boolean isPresent(int column, int row) {
+		long[] words = present[column];
+		return words == null || (words[row >>> 6] & (1L << row)) != 0;
+	}
+
+	public List<Map<String, Value<?>>> toDatapoints() {
+		if (Arrays.stream(present).allMatch(Objects::isNull)) {
+			return columns.toDatapoints();
+		}
+		List<Map<String, Value<?>>> list = new ArrayList<>(columns.getSize());
+		for (int row = 0; row < columns.getSize(); row++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(columns.getTime(row)));
+			for (int c = 0; c < present.length; c++) {
+				if (isPresent(c, row)) {
+					Column column = all.get(c);
+					map.put(column.getName(), column.getValue(row));
+				}
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	public void write(Path file) {
+		if (isCompressed(file)) {
+			CompressedFormat.write(this, file);
+			return;
+		}
+		int rows = columns.getSize();
+		int words = BitColumn.wordCount(rows);
+
+		List<byte[]> strings = new ArrayList<>();
+		long header = 12;
+		for (Column c : all) {
+			byte[] category = c.getCategory() == null ? null : c.getCategory().getBytes(StandardCharsets.UTF_8);
+			byte[] name = c.getName().getBytes(StandardCharsets.UTF_8);
+			strings.add(category);
+			strings.add(name);
+			header += 2 + 4 + (category == null ? 0 : category.length) + 4 + name.length + 8;
+		}
+		long[] offsets = new long[all.size()];
+		long size = align(header) + align(4L * rows);
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = size;
+			size += (present[i] == null ? 0 : 8L * words) + align(switch (type(all.get(i))) {
+				case DOUBLE -> 8L * rows;
+				case FLOAT -> 4L * rows;
+				case BIT -> 8L * words;
+			});
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too much data for a single " + EXTENSION + " file: " + size + " bytes");
+		}
+
+		ByteBuffer head = allocate(header);
+		head.putInt(MAGIC).putInt(rows).putInt(all.size());
+		for (int i = 0; i < offsets.length; i++) {
+			head.put((byte) type(all.get(i)).ordinal());
+			head.put((byte) (present[i] == null ? 0 : FLAG_GAPS));
+			putString(head, strings.get(2 * i));
+			putString(head, strings.get(2 * i + 1));
+			head.putLong(offsets[i]);
+		}
+
+		replace(file, channel -> {
+			write(channel, head);
+
+			ByteBuffer times = allocate(4L * rows);
+			times.asIntBuffer().put(columns.getTimes(), 0, rows);
+			write(channel, times);
+			for (int i = 0; i < offsets.length; i++) {
+				Column c = all.get(i);
+				long length = switch (type(c)) {
+					case DOUBLE -> 8L * rows;
+					case FLOAT -> 4L * rows;
+					case BIT -> 8L * words;
+				};
+				ByteBuffer block = allocate((present[i] == null ? 0 : 8L * words) + length);
+				if (present[i] != null) {
+					block.asLongBuffer().put(present[i], 0, words);
+					block.position(8 * words);
+				}
+				switch (type(c)) {
+					case DOUBLE -> block.asDoubleBuffer().put(((DoubleColumn) c).getValues(), 0, rows);
+					case FLOAT -> block.asFloatBuffer().put(((FloatColumn) c).getValues(), 0, rows);
+					case BIT -> block.asLongBuffer().put(((BitColumn) c).getWords(), 0, words);
+				}
+				write(channel, block);
+			}
+		});
+	}
+
+	/**
+	 * Writes a file next to {@code file} and then moves it over the original, so that a failed write never leaves a
+	 * partial file behind, and the original is not written to while it may still be mapped by {@link #read(Path)}.
+	 */
+	static void replace(Path file, Contents contents) {
+		Path temp = file.resolveSibling(file.getFileName() + TEMP);
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE)) {
+					contents.write(channel);
+				}
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	interface Contents {
+		void write(FileChannel channel) throws IOException;
+	}
+
+	// padded to the alignment of the next block
+	private static ByteBuffer allocate(long size) {
+		return ByteBuffer.allocate((int) align(size)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// writes the whole buffer, including what lies past its position
+	private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+		buf.clear();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	public static ColumnarFile read(Path file) {
+		return read(file, null);
+	}
+
+	/**
+	 * @param channels the channels to read, or {@code null} for all of them. The blocks of the others are not touched.
+	 */
+	public static ColumnarFile read(Path file, Set<String> channels) {
+		if (isCompressed(file)) {
+			return CompressedFormat.read(file, channels);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			if (buf.limit() < 12 || buf.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a " + EXTENSION + " file: " + file);
+			}
+			int rows = buf.getInt();
+			int count = buf.getInt();
+			int words = BitColumn.wordCount(rows);
+
+			ColumnarData columns = new ColumnarData(rows);
+			columns.addRows(rows);
+			List<long[]> present = new ArrayList<>();
+			List<Column> read = new ArrayList<>();
+			List<Long> offsets = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				ColumnType type = ColumnType.values()[buf.get()];
+				boolean gaps = (buf.get() & FLAG_GAPS) != 0;
+				String category = getString(buf);
+				String name = getString(buf);
+				long offset = buf.getLong();
+				if (channels != null && !channels.contains(name)) {
+					continue;
+				}
+				read.add(type.create(category, name, rows));
+				present.add(gaps ? new long[words] : null);
+				offsets.add(offset);
+			}
+
+			at(buf, align(buf.position())).asIntBuffer().get(columns.getTimes(), 0, rows);
+			for (int i = 0; i < read.size(); i++) {
+				ByteBuffer block = at(buf, offsets.get(i));
+				if (present.get(i) != null) {
+					block.asLongBuffer().get(present.get(i));
+					block = at(buf, offsets.get(i) + 8L * words);
+				}
+				Column c = read.get(i);
+				switch (type(c)) {
+					case DOUBLE -> block.asDoubleBuffer().get(((DoubleColumn) c).getValues(), 0, rows);
+					case FLOAT -> block.asFloatBuffer().get(((FloatColumn) c).getValues(), 0, rows);
+					case BIT -> block.asLongBuffer().get(((BitColumn) c).getWords(), 0, words);
+				}
+			}
+			return of(columns, read, present.toArray(long[][]::new));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static ColumnarFile of(ColumnarData columns, List<Column> all, long[][] present) {
+		addPrimary(columns, all);
+		return new ColumnarFile(columns, all, present);
+	}
+
+	private static void addPrimary(ColumnarData columns, List<Column> all) {
+		for (Column c : all) {
+			if (columns.indexOf(c.getName()) == -1) {
+				columns.addColumn(c);
+			}
+		}
+	}
+
+	static ColumnType type(Column column) {
+		if (column instanceof BitColumn) {
+			return ColumnType.BIT;
+		} else if (column instanceof FloatColumn) {
+			return ColumnType.FLOAT;
+		}
+		return ColumnType.DOUBLE;
+	}
+
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	private static ByteBuffer at(ByteBuffer buf, long offset) {
+		// duplicates are big endian again
+		return buf.duplicate().position((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void putString(ByteBuffer buf, byte[] s) {
+		if (s == null) {
+			buf.putInt(-1);
+		} else {
+			buf.putInt(s.length).put(s);
+		}
+	}
+
+	private static String getString(ByteBuffer buf) {
+		int length = buf.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Collects the values of one channel while converting rows.
+	 */
+	private static class Builder {
+		private final String name;
+		private final double[] values;
+		// rows holding each of the column types, by ordinal
+		private final long[][] rows = new long[ColumnType.values().length][];
+		private final int[] counts = new int[rows.length];
+
+		private Builder(String name, int rows) {
+			this.name = name;
+			values = new double[rows];
+			for (int i = 0; i < this.rows.length; i++) {
+				this.rows[i] = new long[BitColumn.wordCount(rows)];
+			}
+		}
+
+		private void set(int row, Object value) {
+			ColumnType type;
+			if (value instanceof Boolean b) {
+				type = ColumnType.BIT;
+				values[row] = b ? 1 : 0;
+			} else if (value instanceof Number n) {
+				type = value instanceof Float ? ColumnType.FLOAT : ColumnType.DOUBLE;
+				values[row] = n.doubleValue();
+			} else {
+				throw new IllegalArgumentException("Unsupported value for channel " + name + ": " + value);
+			}
+			rows[type.ordinal()][row >>> 6] |= 1L << row;
+			counts[type.ordinal()]++;
+		}
+
+		private void build(int size, List<Column> columns, List<long[]> present) {
+			for (ColumnType type : new ColumnType[]{ColumnType.DOUBLE, ColumnType.FLOAT, ColumnType.BIT}) {
+				long[] words = rows[type.ordinal()];
+				if (counts[type.ordinal()] == 0) {
+					continue;
+				}
+				Column column = type.create(null, name, size);
+				for (int i = 0; i < size; i++) {
+					if ((words[i >>> 6] & (1L << i)) == 0) {
+						continue;
+					}
+					switch (type) {
+						case DOUBLE -> ((DoubleColumn) column).set(i, values[i]);
+						case FLOAT -> ((FloatColumn) column).set(i, (float) values[i]);
+						case BIT -> ((BitColumn) column).set(i, values[i] != 0);
+					}
+				}
+				columns.add(column);
+				present.add(counts[type.ordinal()] == size ? null : words);
+			}
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compressed encoding of a {@link ColumnarFile}, for histories that are kept for years.
+ * <p>
+ * Samples arrive at regular intervals and most channels change slowly, so times are stored as
+ * zigzag varints of their delta of delta and analogue values as the XOR against the previous value of the channel,
+ * as described in "Gorilla: A Fast, Scalable, In-Memory Time Series Database" (Pelkonen et al., 2015).
+ * Bits and the rows present in a channel are stored as varint run lengths.
+ * <pre>
+ * int magic "DPZ1", int rows, int channels
+ * per channel: byte {@link ColumnType} ordinal, byte flags, string category, string name, int block length
+ * times
+ * per channel: runs of rows that have a value (only if flagged), then XOR stream or runs of bits
+ * </pre>
+ * The header is little endian like that of {@link ColumnarFile}, the XOR streams are read most significant bit first.
+ */
+final class CompressedFormat {
+
+	static final int MAGIC = 0x315A5044;
+	private static final int FLAG_GAPS = 1;
+
+	private CompressedFormat() {
+	}
+
+	static void write(ColumnarFile file, Path path) {
+		ColumnarData columns = file.getColumns();
+		int rows = columns.getSize();
+
+		Output times = new Output();
+		long previous = 0, delta = 0;
+		for (int i = 0; i < rows; i++) {
+			long time = columns.getTime(i);
+			times.varint(i == 0 ? time : time - previous - delta);
+			delta = i == 0 ? 0 : time - previous;
+			previous = time;
+		}
+
+		Output header = new Output();
+		header.int32(MAGIC).int32(rows).int32(file.all.size());
+		List<Output> blocks = new ArrayList<>();
+		for (int i = 0; i < file.all.size(); i++) {
+			Column c = file.all.get(i);
+			long[] present = file.present[i];
+			Output block = new Output();
+			if (present != null) {
+				block.runs(present, rows);
+			}
+			ColumnType type = ColumnarFile.type(c);
+			switch (type) {
+				case DOUBLE -> {
+					double[] values = ((DoubleColumn) c).getValues();
+					XorEncoder encoder = new XorEncoder(block, 64);
+					for (int row = 0; row < rows; row++) {
+						encoder.add(Double.doubleToRawLongBits(values[row]));
+					}
+					block.flushBits();
+				}
+				case FLOAT -> {
+					float[] values = ((FloatColumn) c).getValues();
+					XorEncoder encoder = new XorEncoder(block, 32);
+					for (int row = 0; row < rows; row++) {
+						encoder.add(Float.floatToRawIntBits(values[row]) & 0xFFFFFFFFL);
+					}
+					block.flushBits();
+				}
+				case BIT -> block.runs(((BitColumn) c).getWords(), rows);
+			}
+			header.int8(type.ordinal()).int8(present == null ? 0 : FLAG_GAPS)
+					.string(c.getCategory()).string(c.getName()).int32(block.size);
+			blocks.add(block);
+		}
+
+		ColumnarFile.replace(path, channel -> {
+			try (var out = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+				out.write(header.bytes, 0, header.size);
+				out.write(times.bytes, 0, times.size);
+				for (Output block : blocks) {
+					out.write(block.bytes, 0, block.size);
+				}
+			}
+		});
+	}
+
+	static ColumnarFile read(Path path, Set<String> channels) {
+		ByteBuffer buf;
+		try {
+			buf = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		if (buf.limit() < 12 || buf.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a " + ColumnarFile.COMPRESSED_EXTENSION + " file: " + path);
+		}
+		int rows = buf.getInt();
+		int count = buf.getInt();
+
+		List<Column> read = new ArrayList<>();
+		List<long[]> present = new ArrayList<>();
+		List<Boolean> gaps = new ArrayList<>();
+		List<Integer> lengths = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ColumnType type = ColumnType.values()[buf.get()];
+			gaps.add((buf.get() & FLAG_GAPS) != 0);
+			String category = getString(buf);
+			String name = getString(buf);
+			lengths.add(buf.getInt());
+			read.add(channels == null || channels.contains(name) ? type.create(category, name, rows) : null);
+		}
+
+		ColumnarData columns = new ColumnarData(rows);
+		columns.addRows(rows);
+		long previous = 0, delta = 0;
+		for (int i = 0; i < rows; i++) {
+			long time = i == 0 ? varint(buf) : previous + delta + varint(buf);
+			delta = i == 0 ? 0 : time - previous;
+			previous = time;
+			columns.setTime(i, (int) time);
+		}
+
+		List<Column> all = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int end = buf.position() + lengths.get(i);
+			Column c = read.get(i);
+			if (c == null) {
+				buf.position(end);
+				continue;
+			}
+			long[] words = null;
+			if (gaps.get(i)) {
+				words = new long[BitColumn.wordCount(rows)];
+				runs(buf, words, rows);
+			}
+			switch (ColumnarFile.type(c)) {
+				case DOUBLE -> {
+					double[] values = ((DoubleColumn) c).getValues();
+					XorDecoder decoder = new XorDecoder(buf, end, 64);
+					for (int row = 0; row < rows; row++) {
+						values[row] = Double.longBitsToDouble(decoder.next());
+					}
+				}
+				case FLOAT -> {
+					float[] values = ((FloatColumn) c).getValues();
+					XorDecoder decoder = new XorDecoder(buf, end, 32);
+					for (int row = 0; row < rows; row++) {
+						values[row] = Float.intBitsToFloat((int) decoder.next());
+					}
+				}
+				case BIT -> runs(buf, ((BitColumn) c).getWords(), rows);
+			}
+			buf.position(end);
+			all.add(c);
+			present.add(words);
+		}
+		return ColumnarFile.of(columns, all, present.toArray(long[][]::new));
+	}
+
+	private static String getString(ByteBuffer buf) {
+		int length = buf.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long varint(ByteBuffer buf) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads alternating runs of unset and set bits, the first one possibly empty.
+	 */
+	private static void runs(ByteBuffer buf, long[] words, int rows) {
+		boolean set = false;
+		for (int row = 0; row < rows; set = !set) {
+			int end = row + (int) varint(buf);
+			if (end > rows) {
+				throw new IllegalStateException("Run exceeds " + rows + " rows");
+			}
+			if (set) {
+				for (; row < end; row++) {
+					words[row >>> 6] |= 1L << row;
+				}
+			}
+			row = end;
+		}
+	}
+
+	/**
+	 * Growing little endian byte array with a most significant bit first bit writer on top.
+	 */
+	private static class Output {
+		private byte[] bytes = new byte[256];
+		private int size;
+		private long bits;
+		private int filled;
+
+		private void ensure(int more) {
+			if (size + more > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(size + more, bytes.length * 2));
+			}
+		}
+
+		Output int8(int value) {
+			ensure(1);
+			bytes[size++] = (byte) value;
+			return this;
+		}
+
+		Output int32(int value) {
+			ensure(4);
+			for (int i = 0; i < 4; i++) {
+				bytes[size++] = (byte) (value >>> 8 * i);
+			}
+			return this;
+		}
+
+		Output string(String s) {
+			if (s == null) {
+				return int32(-1);
+			}
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			int32(b.length);
+			ensure(b.length);
+			System.arraycopy(b, 0, bytes, size, b.length);
+			size += b.length;
+			return this;
+		}
+
+		void varint(long value) {
+			long zigzag = (value << 1) ^ (value >> 63);
+			ensure(10);
+			while ((zigzag & ~0x7FL) != 0) {
+				bytes[size++] = (byte) (zigzag | 0x80);
+				zigzag >>>= 7;
+			}
+			bytes[size++] = (byte) zigzag;
+		}
+
+		/**
+		 * Writes alternating runs of unset and set bits, starting with unset ones.
+		 */
+		void runs(long[] words, int rows) {
+			boolean set = false;
+			int start = 0;
+			for (int row = 0; row < rows; row++) {
+				if (((words[row >>> 6] & (1L << row)) != 0) != set) {
+					varint(row - start);
+					start = row;
+					set = !set;
+				}
+			}
+			if (start < rows) {
+				varint(rows - start);
+			}
+		}
+
+		void bits(long value, int count) {
+			if (count == 0) {
+				return;
+			}
+			if (count < 64) {
+				value &= (1L << count) - 1;
+			}
+			int free = 64 - filled;
+			if (count < free) {
+				bits |= value << (free - count);
+				filled += count;
+			} else {
+				int rest = count - free;
+				bits |= value >>> rest;
+				ensure(8);
+				for (int i = 7; i >= 0; i--) {
+					bytes[size++] = (byte) (bits >>> 8 * i);
+				}
+				bits = rest == 0 ? 0 : value << (64 - rest);
+				filled = rest;
+			}
+		}
+
+		void flushBits() {
+			ensure(8);
+			for (int i = 7; filled > 0; i--, filled -= 8) {
+				bytes[size++] = (byte) (bits >>> 8 * i);
+			}
+			bits = 0;
+			filled = 0;
+		}
+	}
+
+	/**
+	 * XOR encoding of values {@code width} bits wide: the first value in full, then per value
+	 * {@code 0} if it repeats the previous one, {@code 10} and the meaningful bits if its XOR fits into the previous window
+	 * of leading and trailing zeros, otherwise {@code 11}, 5 bits of leading zeros, the number of meaningful bits minus one
+	 * and the meaningful bits.
+	 */
+	private static class XorEncoder {
+		private final Output out;
+		private final int width, lengthBits;
+		private long previous;
+		private int leading = -1, trailing;
+		private boolean first = true;
+
+		private XorEncoder(Output out, int width) {
+			this.out = out;
+			this.width = width;
+			lengthBits = width == 64 ? 6 : 5;
+		}
+
+		void add(long value) {
+			if (first) {
+				out.bits(value, width);
+				first = false;
+			} else {
+				long xor = value ^ previous;
+				if (xor == 0) {
+					out.bits(0, 1);
+				} else {
+					int lz = Math.min(Long.numberOfLeadingZeros(xor) - (64 - width), 31);
+					int tz = Long.numberOfTrailingZeros(xor);
+					if (leading != -1 && lz >= leading && tz >= trailing) {
+						out.bits(0b10, 2);
+						out.bits(xor >>> trailing, width - leading - trailing);
+					} else {
+						int meaningful = width - lz - tz;
+						out.bits(0b11, 2);
+						out.bits(lz, 5);
+						out.bits(meaningful - 1, lengthBits);
+						out.bits(xor >>> tz, meaningful);
+						leading = lz;
+						trailing = tz;
+					}
+				}
+			}
+			previous = value;
+		}
+	}
+
+	private static class XorDecoder {
+		private final ByteBuffer buf;
+		private final int end, width, lengthBits;
+		private int position;
+		private long previous;
+		private int leading = -1, trailing;
+		private boolean first = true;
+
+		private XorDecoder(ByteBuffer buf, int end, int width) {
+			this.buf = buf;
+			this.end = end;
+			this.width = width;
+			lengthBits = width == 64 ? 6 : 5;
+			position = buf.position() * 8;
+		}
+
+		long next() {
+			if (first) {
+				first = false;
+			} else if (bits(1) == 0) {
+				return previous;
+			} else if (bits(1) == 0) {
+				previous ^= bits(width - leading - trailing) << trailing;
+				return previous;
+			} else {
+				leading = (int) bits(5);
+				int meaningful = (int) bits(lengthBits) + 1;
+				trailing = width - leading - meaningful;
+				previous ^= bits(meaningful) << trailing;
+				return previous;
+			}
+			previous = bits(width);
+			return previous;
+		}
+
+		private long bits(int count) {
+			if (count == 0) {
+				return 0;
+			}
+			long value = 0;
+			int read = 0;
+			while (read < count) {
+				int index = position >>> 3;
+				if (index >= end) {
+					throw new IllegalStateException("XOR stream exceeds its block");
+				}
+				int offset = position & 7;
+				int take = Math.min(8 - offset, count - read);
+				int b = (buf.get(index) & 0xFF) >>> (8 - offset - take) & ((1 << take) - 1);
+				value = value << take | b;
+				read += take;
+				position += take;
+			}
+			return value;
+		}
+	}
+}
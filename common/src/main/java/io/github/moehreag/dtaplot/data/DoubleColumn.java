@@ -0,0 +1,55 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.Arrays;
+
+import io.github.moehreag.dtaplot.Value;
+
+public class DoubleColumn extends Column {
+
+	private double[] values;
+
+	public DoubleColumn(String category, String name, int capacity) {
+		super(category, name);
+		values = new double[capacity];
+	}
+
+	public double get(int row) {
+		return values[row];
+	}
+
+	public void set(int row, double value) {
+		values[row] = value;
+	}
+
+	/**
+	 * @return the backing array, which may be longer than the row count of the owning {@link ColumnarData}
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public double getDouble(int row) {
+		return values[row];
+	}
+
+	@Override
+	public Value<?> getValue(int row) {
+		return Value.of(values[row]);
+	}
+
+	@Override
+	void set(int row, Object value) {
+		values[row] = ((Number) value).doubleValue();
+	}
+
+	@Override
+	int capacity() {
+		return values.length;
+	}
+
+	@Override
+	void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+}
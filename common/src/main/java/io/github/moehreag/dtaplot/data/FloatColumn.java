@@ -0,0 +1,55 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.Arrays;
+
+import io.github.moehreag.dtaplot.Value;
+
+public class FloatColumn extends Column {
+
+	private float[] values;
+
+	public FloatColumn(String category, String name, int capacity) {
+		super(category, name);
+		values = new float[capacity];
+	}
+
+	public float get(int row) {
+		return values[row];
+	}
+
+	public void set(int row, float value) {
+		values[row] = value;
+	}
+
+	/**
+	 * @return the backing array, which may be longer than the row count of the owning {@link ColumnarData}
+	 */
+	public float[] getValues() {
+		return values;
+	}
+
+	@Override
+	public double getDouble(int row) {
+		return values[row];
+	}
+
+	@Override
+	public Value<?> getValue(int row) {
+		return Value.of(values[row]);
+	}
+
+	@Override
+	void set(int row, Object value) {
+		values[row] = ((Number) value).floatValue();
+	}
+
+	@Override
+	int capacity() {
+		return values.length;
+	}
+
+	@Override
+	void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+}
@@ -0,0 +1,127 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+
+/**
+ * Picks what a plot draws of its records for the time span it shows: the records themselves while they fit the width
+ * of the plot, the means of the coarsest {@link Rollups} tier that still does otherwise. Either is cut to the span and
+ * as much again on each side, so that moving the plot a little does not need new points.
+ * <p>
+ * The records stay what the plot is made of, the rollups are only computed to draw them and never written.
+ */
+public class PlotWindow {
+
+	private final Series records;
+	private final Map<Rollups.Tier, Series> tiers = new EnumMap<>(Rollups.Tier.class);
+	private Rollups rollups;
+
+	// what was picked last
+	private boolean picked;
+	private Rollups.Tier tier;
+	private int from, to;
+
+	private PlotWindow(List<Map<String, Value<?>>> records, Rollups rollups) {
+		this.records = new Series(records);
+		this.rollups = rollups;
+	}
+
+	/**
+	 * @param rollups the tiers stored with the records, if any, or {@code null} to compute them once they are needed
+	 */
+	public static PlotWindow of(Collection<Map<String, Value<?>>> records, Rollups rollups) {
+		List<Map<String, Value<?>>> sorted = new ArrayList<>(records.size());
+		for (Map<String, Value<?>> map : records) {
+			if (map.get("time") != null && map.get("time").get() instanceof Number) {
+				sorted.add(map);
+			}
+		}
+		sorted.sort(Comparator.comparingInt(PlotWindow::time));
+		return new PlotWindow(sorted, rollups);
+	}
+
+	public int getStart() {
+		return records.times.length == 0 ? 0 : records.times[0];
+	}
+
+	public int getEnd() {
+		return records.times.length == 0 ? 0 : records.times[records.times.length - 1];
+	}
+
+	/**
+	 * @return the points to draw for showing {@code [from, to]} about {@code points} points wide,
+	 * or {@code null} if those returned last still do
+	 */
+	public List<Map<String, Value<?>>> update(int from, int to, int points) {
+		Rollups.Tier tier = Rollups.pick(from, to, Math.max(points, 1));
+		if (picked && tier == this.tier && from >= this.from && to <= this.to) {
+			return null;
+		}
+		long span = (long) to - from;
+		picked = true;
+		this.tier = tier;
+		this.from = (int) Math.max(Integer.MIN_VALUE, from - span);
+		this.to = (int) Math.min(Integer.MAX_VALUE, to + span);
+		return series(tier).range(this.from, this.to);
+	}
+
+	/**
+	 * @return the tier drawn, or {@code null} for the records
+	 */
+	public Rollups.Tier getTier() {
+		return tier;
+	}
+
+	private Series series(Rollups.Tier tier) {
+		if (tier == null) {
+			return records;
+		}
+		return tiers.computeIfAbsent(tier, t -> {
+			if (rollups == null) {
+				rollups = Rollups.of(records.points);
+			}
+			return new Series(rollups.toDatapoints(t));
+		});
+	}
+
+	private static int time(Map<String, Value<?>> map) {
+		return ((Number) map.get("time").get()).intValue();
+	}
+
+	// points sorted by time
+	private static class Series {
+		private final List<Map<String, Value<?>>> points;
+		private final int[] times;
+
+		private Series(List<Map<String, Value<?>>> points) {
+			this.points = points;
+			times = new int[points.size()];
+			for (int i = 0; i < times.length; i++) {
+				times[i] = time(points.get(i));
+			}
+		}
+
+		private List<Map<String, Value<?>>> range(int from, int to) {
+			int lo = Arrays.binarySearch(times, from), hi = Arrays.binarySearch(times, to);
+			lo = lo < 0 ? -lo - 1 : first(lo);
+			hi = hi < 0 ? -hi - 1 : last(hi) + 1;
+			return Collections.unmodifiableList(points.subList(lo, Math.max(lo, hi)));
+		}
+
+		// of equal times
+		private int first(int index) {
+			while (index > 0 && times[index - 1] == times[index]) {
+				index--;
+			}
+			return index;
+		}
+
+		private int last(int index) {
+			while (index + 1 < times.length && times[index + 1] == times[index]) {
+				index++;
+			}
+			return index;
+		}
+	}
+}
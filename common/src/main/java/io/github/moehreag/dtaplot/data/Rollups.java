@@ -0,0 +1,343 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import lombok.Getter;
+
+/**
+ * Overviews of a plot data file at fixed resolutions, so that plotting a long history does not need all of its records.
+ * <p>
+ * Every tier is a {@link ColumnarData} with one row per bucket, timed by the start of the bucket. An analog channel
+ * {@code C} becomes the columns {@code C.min}, {@code C.max}, {@code C.mean}, {@code C.last} and {@code C.count},
+ * a digital one {@code C.on}, the fraction of its records that were on, and {@code C.count}.
+ * {@code time.last} holds the time of the latest record of the bucket.
+ * The tiers are stored next to the data file as compressed {@link ColumnarFile}s, e.g. {@code data.json.hour.dpz}.
+ */
+public class Rollups {
+
+	private static final String MIN = ".min", MAX = ".max", MEAN = ".mean", LAST = ".last", ON = ".on", COUNT = ".count";
+	private static final String END = "time" + LAST;
+
+	@Getter
+	public enum Tier {
+		TEN_MINUTES(10 * 60),
+		HOUR(60 * 60),
+		// UTC days
+		DAY(24 * 60 * 60);
+
+		private final int seconds;
+
+		Tier(int seconds) {
+			this.seconds = seconds;
+		}
+
+		public Path path(Path file) {
+			return file.resolveSibling(file.getFileName() + "." + name().toLowerCase(Locale.ROOT) + ColumnarFile.COMPRESSED_EXTENSION);
+		}
+
+		private int bucket(int time) {
+			return Math.floorDiv(time, seconds) * seconds;
+		}
+	}
+
+	private final Map<Tier, Level> levels = new EnumMap<>(Tier.class);
+
+	private Rollups() {
+		for (Tier tier : Tier.values()) {
+			levels.put(tier, new Level(tier, new ColumnarData()));
+		}
+	}
+
+	/**
+	 * Computes the tiers of plot data. Records without a time are skipped, as are strings and arrays.
+	 */
+	public static Rollups of(Collection<Map<String, Value<?>>> data) {
+		Rollups rollups = new Rollups();
+		rollups.add(data);
+		return rollups;
+	}
+
+	/**
+	 * @return the tiers stored next to the file, or {@code null} if any of them is missing or older than the file
+	 */
+	public static Rollups read(Path file) {
+		if (!isCurrent(file)) {
+			return null;
+		}
+		Rollups rollups = new Rollups();
+		for (Tier tier : Tier.values()) {
+			rollups.levels.put(tier, new Level(tier, ColumnarFile.read(tier.path(file)).getColumns()));
+		}
+		return rollups;
+	}
+
+	private static boolean isCurrent(Path file) {
+		try {
+			if (!Files.exists(file)) {
+				return false;
+			}
+			long modified = Files.getLastModifiedTime(file).toMillis();
+			for (Tier tier : Tier.values()) {
+				Path path = tier.path(file);
+				if (!Files.exists(path) || Files.getLastModifiedTime(path).toMillis() < modified) {
+					return false;
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static void delete(Path file) {
+		try {
+			for (Tier tier : Tier.values()) {
+				Files.deleteIfExists(tier.path(file));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the coarsest tier with a bucket for each of {@code points} points within {@code [from, to]}, or {@code null}
+	 * if even the finest one is too coarse and the records themselves should be plotted
+	 */
+	public static Tier pick(int from, int to, int points) {
+		for (int i = Tier.values().length - 1; i >= 0; i--) {
+			Tier tier = Tier.values()[i];
+			if (((long) to - from) / tier.seconds >= points) {
+				return tier;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return a tier as plot data, holding the mean of analog and the prevailing state of digital channels per bucket
+	 */
+	public List<Map<String, Value<?>>> toDatapoints(Tier tier) {
+		return levels.get(tier).toDatapoints();
+	}
+
+	public ColumnarData get(Tier tier) {
+		return levels.get(tier).data;
+	}
+
+	/**
+	 * Adds records to all tiers, only touching the buckets they fall into. Their times must not be in the tiers yet.
+	 */
+	public void add(Collection<Map<String, Value<?>>> data) {
+		// the records are summed up at the finest resolution first, which is then merged into each tier
+		Level finest = new Level(Tier.TEN_MINUTES, new ColumnarData());
+		for (Map<String, Value<?>> map : data) {
+			Value<?> time = map.get("time");
+			if (time == null || !(time.get() instanceof Number n)) {
+				continue;
+			}
+			int t = n.intValue();
+			int row = finest.row(t);
+			boolean latest = t >= finest.end(row);
+			for (Map.Entry<String, Value<?>> e : map.entrySet()) {
+				Object value = e.getValue() == null ? null : e.getValue().get();
+				// a channel keeps the kind of its first value
+				if (value instanceof Boolean b && !finest.analog.containsKey(e.getKey())) {
+					finest.digital(e.getKey()).add(row, b ? 1 : 0, 1);
+				} else if (value instanceof Number v && !"time".equals(e.getKey()) && !finest.digital.containsKey(e.getKey())) {
+					double d = v.doubleValue();
+					finest.analog(e.getKey()).add(row, d, d, d, d, 1, latest);
+				}
+			}
+			finest.setEnd(row, t);
+		}
+		finest.sort();
+		for (Level level : levels.values()) {
+			if (level.tier == Tier.TEN_MINUTES && level.data.getSize() == 0) {
+				levels.put(level.tier, finest);
+			} else {
+				level.addAll(finest);
+				level.sort();
+			}
+		}
+	}
+
+	public void write(Path file) {
+		for (Level level : levels.values()) {
+			level.data.trim();
+			ColumnarFile.of(level.data).write(level.tier.path(file));
+		}
+	}
+
+	private static class Level {
+		private final Tier tier;
+		private final ColumnarData data;
+		private final DoubleColumn end;
+		private final Map<String, Analog> analog = new LinkedHashMap<>();
+		private final Map<String, Digital> digital = new LinkedHashMap<>();
+		// by bucket start
+		private final Map<Integer, Integer> rows = new HashMap<>();
+
+		private Level(Tier tier, ColumnarData data) {
+			this.tier = tier;
+			this.data = data;
+			for (int i = 0; i < data.getSize(); i++) {
+				rows.put(data.getTime(i), i);
+			}
+			end = (DoubleColumn) column(END, ColumnType.DOUBLE);
+			for (String name : data.getChannels()) {
+				if (name.endsWith(MEAN)) {
+					analog(name.substring(0, name.length() - MEAN.length()));
+				} else if (name.endsWith(ON)) {
+					digital(name.substring(0, name.length() - ON.length()));
+				}
+			}
+		}
+
+		private Column column(String name, ColumnType type) {
+			Column column = data.getColumn(name);
+			return column != null ? column : data.getColumn(data.addColumn(type.create(null, name, 0)));
+		}
+
+		private Analog analog(String channel) {
+			return analog.computeIfAbsent(channel, c -> new Analog(
+					(DoubleColumn) column(c + MIN, ColumnType.DOUBLE), (DoubleColumn) column(c + MAX, ColumnType.DOUBLE),
+					(DoubleColumn) column(c + MEAN, ColumnType.DOUBLE), (DoubleColumn) column(c + LAST, ColumnType.DOUBLE),
+					(FloatColumn) column(c + COUNT, ColumnType.FLOAT)));
+		}
+
+		private Digital digital(String channel) {
+			return digital.computeIfAbsent(channel, c -> new Digital(
+					(DoubleColumn) column(c + ON, ColumnType.DOUBLE), (FloatColumn) column(c + COUNT, ColumnType.FLOAT)));
+		}
+
+		private int row(int time) {
+			int bucket = tier.bucket(time);
+			Integer row = rows.get(bucket);
+			if (row == null) {
+				row = data.addRow(bucket);
+				rows.put(bucket, row);
+			}
+			return row;
+		}
+
+		private double end(int row) {
+			return end.get(row);
+		}
+
+		private void setEnd(int row, int time) {
+			end.set(row, Math.max(end.get(row), time));
+		}
+
+		/**
+		 * Merges the buckets of a finer level into this one.
+		 */
+		private void addAll(Level finer) {
+			for (int i = 0; i < finer.data.getSize(); i++) {
+				int t = (int) finer.end(i);
+				int row = row(finer.data.getTime(i));
+				boolean latest = t >= end(row);
+				for (Map.Entry<String, Analog> e : finer.analog.entrySet()) {
+					Analog a = e.getValue();
+					float count = a.count.get(i);
+					if (count > 0) {
+						analog(e.getKey()).add(row, a.min.get(i), a.max.get(i), a.mean.get(i), a.last.get(i), count, latest);
+					}
+				}
+				for (Map.Entry<String, Digital> e : finer.digital.entrySet()) {
+					Digital d = e.getValue();
+					float count = d.count.get(i);
+					if (count > 0) {
+						digital(e.getKey()).add(row, d.on.get(i), count);
+					}
+				}
+				setEnd(row, t);
+			}
+		}
+
+		// rows are added in the order their buckets first appear, which is only out of time order for unsorted records
+		private void sort() {
+			int size = data.getSize();
+			Integer[] order = new Integer[size];
+			boolean sorted = true;
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+				sorted &= i == 0 || data.getTime(i - 1) < data.getTime(i);
+			}
+			if (sorted) {
+				return;
+			}
+			Arrays.sort(order, Comparator.comparingInt(data::getTime));
+			int[] times = new int[size];
+			for (int i = 0; i < size; i++) {
+				times[i] = data.getTime(order[i]);
+			}
+			for (int i = 0; i < size; i++) {
+				data.setTime(i, times[i]);
+				rows.put(times[i], i);
+			}
+			for (Column column : data.getColumns()) {
+				Object[] values = new Object[size];
+				for (int i = 0; i < size; i++) {
+					values[i] = column.getValue(order[i]).get();
+				}
+				for (int i = 0; i < size; i++) {
+					column.set(i, values[i]);
+				}
+			}
+		}
+
+		private List<Map<String, Value<?>>> toDatapoints() {
+			List<Map<String, Value<?>>> list = new ArrayList<>(data.getSize());
+			for (int i = 0; i < data.getSize(); i++) {
+				Map<String, Value<?>> map = new HashMap<>();
+				map.put("time", Value.of(data.getTime(i)));
+				for (Map.Entry<String, Analog> e : analog.entrySet()) {
+					if (e.getValue().count.get(i) > 0) {
+						map.put(e.getKey(), Value.of(e.getValue().mean.get(i)));
+					}
+				}
+				for (Map.Entry<String, Digital> e : digital.entrySet()) {
+					if (e.getValue().count.get(i) > 0) {
+						map.put(e.getKey(), Value.of(e.getValue().on.get(i) >= 0.5));
+					}
+				}
+				list.add(map);
+			}
+			return list;
+		}
+	}
+
+	private record Analog(DoubleColumn min, DoubleColumn max, DoubleColumn mean, DoubleColumn last, FloatColumn count) {
+
+		private void add(int row, double min, double max, double mean, double last, float count, boolean latest) {
+			float n = this.count.get(row);
+			if (n == 0) {
+				this.min.set(row, min);
+				this.max.set(row, max);
+				this.mean.set(row, mean);
+				this.last.set(row, last);
+			} else {
+				this.min.set(row, Math.min(this.min.get(row), min));
+				this.max.set(row, Math.max(this.max.get(row), max));
+				this.mean.set(row, (this.mean.get(row) * n + mean * count) / (n + count));
+				if (latest) {
+					this.last.set(row, last);
+				}
+			}
+			this.count.set(row, n + count);
+		}
+	}
+
+	private record Digital(DoubleColumn on, FloatColumn count) {
+
+		private void add(int row, double on, float count) {
+			float n = this.count.get(row);
+			this.on.set(row, (this.on.get(row) * n + on * count) / (n + count));
+			this.count.set(row, n + count);
+		}
+	}
+}
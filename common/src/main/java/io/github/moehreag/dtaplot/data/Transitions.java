@@ -0,0 +1,203 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import io.github.moehreag.dtaplot.Value;
+import lombok.Getter;
+
+/**
+ * A digital channel stored as the times at which it toggles, for channels like VD1 or EVU that
+ * only change a few times an hour. Queries binary search the toggles, so they cost
+ * {@code O(log n)} plus the number of runs returned, independent of the number of records.
+ */
+public class Transitions {
+
+	@Getter
+	private final String category, name;
+	private final boolean initial;
+	// times of the first and the last record
+	@Getter
+	private final int start, end;
+	// ascending, the state flips at each of them
+	private final int[] toggles;
+
+	private Transitions(String category, String name, boolean initial, int start, int end, int[] toggles) {
+		this.category = category;
+		this.name = name;
+		this.initial = initial;
+		this.start = start;
+		this.end = end;
+		this.toggles = toggles;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the channel does not exist or is not digital
+	 */
+	public static Transitions of(ColumnarData data, String channel) {
+		if (!(data.getColumn(channel) instanceof BitColumn column)) {
+			throw new IllegalArgumentException("Not a digital channel: " + channel);
+		}
+		return of(data.getTimes(), column, data.getSize());
+	}
+
+	/**
+	 * Reads a digital channel out of plot data, skipping the records that do not hold a state for it.
+	 */
+	public static Transitions of(Collection<Map<String, Value<?>>> data, String channel) {
+		int[] times = new int[data.size()];
+		BitColumn column = new BitColumn(null, channel, data.size());
+		int rows = 0;
+		for (Map<String, Value<?>> map : data) {
+			Value<?> time = map.get("time"), value = map.get(channel);
+			if (time != null && time.get() instanceof Number t && value != null && value.get() instanceof Boolean b) {
+				times[rows] = t.intValue();
+				column.set(rows++, b);
+			}
+		}
+		return of(times, column, rows);
+	}
+
+	/**
+	 * @param times the time of each row, rows out of order are sorted by time first
+	 */
+	public static Transitions of(int[] times, BitColumn column, int rows) {
+		if (rows == 0) {
+			return new Transitions(column.getCategory(), column.getName(), false, 0, 0, new int[0]);
+		}
+		int[] order = null;
+		for (int i = 1; i < rows; i++) {
+			if (times[i] < times[i - 1]) {
+				order = sortedRows(times, rows);
+				break;
+			}
+		}
+
+		int first = order == null ? 0 : order[0];
+		boolean initial = column.get(first), state = initial;
+		int[] toggles = new int[16];
+		int count = 0;
+		for (int i = 1; i < rows; i++) {
+			int row = order == null ? i : order[i];
+			if (column.get(row) != state) {
+				state = !state;
+				if (count == toggles.length) {
+					toggles = Arrays.copyOf(toggles, count * 2);
+				}
+				toggles[count++] = times[row];
+			}
+		}
+		int last = order == null ? rows - 1 : order[rows - 1];
+		return new Transitions(column.getCategory(), column.getName(), initial, times[first], times[last], Arrays.copyOf(toggles, count));
+	}
+
+	private static int[] sortedRows(int[] times, int rows) {
+		// time in the high and row in the low bits keeps rows of equal time in their order
+		long[] keys = new long[rows];
+		for (int i = 0; i < rows; i++) {
+			keys[i] = (long) times[i] << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			order[i] = (int) keys[i];
+		}
+		return order;
+	}
+
+	public int getToggleCount() {
+		return toggles.length;
+	}
+
+	/**
+	 * @return the state after all toggles up to and including {@code time}, the initial state before the first record
+	 */
+	public boolean stateAt(int time) {
+		return initial ^ (after(time) & 1) == 1;
+	}
+
+	/**
+	 * @return the runs of equal state overlapping {@code [from, to]}, cut to that range and to the recorded time span
+	 */
+	public List<Run> runs(int from, int to) {
+		List<Run> runs = new ArrayList<>();
+		int limit = Math.min(to, end);
+		int runStart = Math.max(from, start);
+		if (runStart >= limit) {
+			return runs;
+		}
+		int i = after(runStart);
+		boolean state = initial ^ (i & 1) == 1;
+		for (; i < toggles.length && toggles[i] < limit; i++) {
+			if (toggles[i] > runStart) {
+				runs.add(new Run(runStart, toggles[i], state));
+				runStart = toggles[i];
+			}
+			state = !state;
+		}
+		runs.add(new Run(runStart, limit, state));
+		return runs;
+	}
+
+	/**
+	 * @return how often the channel switched on within {@code [from, to]}, e.g. the number of compressor starts for VD1
+	 */
+	public int countSwitchOns(int from, int to) {
+		int lo = before(from), hi = after(to);
+		if (hi <= lo) {
+			return 0;
+		}
+		// toggles at even indices switch an initially off channel on
+		return initial ? hi / 2 - lo / 2 : (hi + 1) / 2 - (lo + 1) / 2;
+	}
+
+	/**
+	 * @return the seconds spent in {@code state} within {@code [from, to]}
+	 */
+	public long duration(boolean state, int from, int to) {
+		long total = 0;
+		for (Run run : runs(from, to)) {
+			if (run.state() == state) {
+				total += run.duration();
+			}
+		}
+		return total;
+	}
+
+	// number of toggles at or before time
+	private int after(int time) {
+		int lo = 0, hi = toggles.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (toggles[mid] <= time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// number of toggles before time
+	private int before(int time) {
+		int lo = 0, hi = toggles.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (toggles[mid] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	public record Run(int start, int end, boolean state) {
+		public long duration() {
+			return (long) end - start;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.github.moehreag.dtaplot.data.ColumnarData;
+
+/**
+ * Push-based counterpart to {@link DtaParser#stream(java.io.InputStream)}: bytes are handed in as they arrive
+ * and every record they complete is decoded right away.
+ * Only the bytes of the record that is still incomplete are kept between calls.
+ */
+public class DtaDecoder {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final DtaParser.Options options;
+	private ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN).limit(0);
+	private int offset;
+	// offset of the first record that might be in range, as long as none was found yet
+	private int start;
+
+	private RecordDecoder decoder;
+	private ColumnarData columns;
+	private int remaining;
+
+	public DtaDecoder() {
+		this(DtaParser.options());
+	}
+
+	public DtaDecoder(DtaParser.Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * @return the records decoded so far, or {@code null} while the header is incomplete
+	 */
+	public ColumnarData getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Decodes every record completed by {@code chunk}.
+	 *
+	 * @return the number of rows added to {@link #getColumns()}
+	 */
+	public int feed(ByteBuffer chunk) {
+		append(chunk);
+		if (decoder == null && !readHeader()) {
+			return 0;
+		}
+		int before = columns.getSize();
+		if (offset == start && options.getFrom() > Long.MIN_VALUE && decoder.minLength() == decoder.maxLength()) {
+			seek();
+		}
+		while (remaining != 0) {
+			int next = decoder.skip(buf, offset, buf.limit());
+			if (next < 0) {
+				break;
+			}
+			if (remaining > 0) {
+				remaining--;
+			}
+			int time = decoder.time(buf, offset);
+			if (time >= options.getTo()) {
+				remaining = 0;
+				break;
+			}
+			if (time >= options.getFrom()) {
+				decoder.decode(buf, offset, columns, columns.addRows(1));
+			}
+			offset = next;
+		}
+		return columns.getSize() - before;
+	}
+
+	/**
+	 * Skips the buffered records older than {@link DtaParser.Options#getFrom()} without decoding them.
+	 * Until the first newer record arrives, {@code start} moves along with the offset.
+	 */
+	private void seek() {
+		int length = decoder.maxLength();
+		int records = (buf.limit() - offset) / length;
+		if (remaining >= 0) {
+			records = Math.min(records, remaining);
+		}
+		int low = 0, high = records;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (decoder.time(buf, offset + mid * length) < options.getFrom()) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		offset += low * length;
+		if (remaining > 0) {
+			remaining -= low;
+		}
+		if (low == records) {
+			start = offset;
+		}
+	}
+
+	private boolean readHeader() {
+		if (buf.limit() < 8 || buf.limit() < DtaParser.headerLength(buf)) {
+			return false;
+		}
+		DtaHeader header = DtaParser.header(buf);
+		if (options.getChannels() != null) {
+			header = header.project(options.getChannels());
+		}
+		decoder = header.getDecoder();
+		columns = decoder.allocate(16);
+		offset = start = header.getStart();
+		remaining = header.getCount();
+		return true;
+	}
+
+	private void append(ByteBuffer chunk) {
+		int pending = buf.limit() - offset;
+		if (buf.capacity() - buf.limit() < chunk.remaining()) {
+			// drop the bytes of records that are already decoded, and grow if that is not enough
+			buf.position(offset);
+			if (pending + chunk.remaining() > buf.capacity()) {
+				buf = ByteBuffer.allocate(Math.max(pending + chunk.remaining(), buf.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN).put(buf);
+			} else {
+				buf.compact();
+			}
+			buf.flip();
+			start -= offset;
+			offset = 0;
+		}
+		int end = buf.limit();
+		buf.limit(end + chunk.remaining()).position(end);
+		buf.put(chunk);
+	}
+}
@@ -5,6 +5,8 @@ import java.nio.ByteOrder;
 import java.util.*;
 
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.Column;
+import io.github.moehreag.dtaplot.data.ColumnarData;
 import lombok.Getter;
 
 public abstract class DtaFile {
@@ -13,6 +15,7 @@ public abstract class DtaFile {
 	@Getter
 	private final int version;
 	@Getter
+	private ColumnarData columns;
 	private Collection<Map<String, Value<?>>> datapoints;
 
 	public DtaFile(ByteBuffer data) {
@@ -20,15 +23,38 @@ public abstract class DtaFile {
 		this.version = data.getInt(0);
 	}
 
-	protected void setDatapoints(Collection<Map<String, Value<?>>> entries){
-		datapoints = Collections.unmodifiableCollection(entries);
+	protected void setColumns(ColumnarData columns){
+		columns.trim();
+		this.columns = columns;
 	}
 
-	protected boolean readBit(int i, int bit) {
+	public int[] getTimes(){
+		return columns.getTimes();
+	}
+
+	public Column getColumn(String name){
+		return columns.getColumn(name);
+	}
+
+	public Set<String> getChannels(){
+		return columns.getChannels();
+	}
+
+	/**
+	 * Record-oriented view of {@link #getColumns()}, built on first access.
+	 */
+	public synchronized Collection<Map<String, Value<?>>> getDatapoints(){
+		if (datapoints == null) {
+			datapoints = Collections.unmodifiableCollection(columns.toDatapoints());
+		}
+		return datapoints;
+	}
+
+	protected static boolean readBit(int i, int bit) {
 		return readBit(i, bit, false);
 	}
 
-	protected boolean readBit(int i, int bit, boolean inverted) {
+	protected static boolean readBit(int i, int bit, boolean inverted) {
 		if (Integer.bitCount(i) < bit) {
 			return false;
 			//throw new IllegalArgumentException("Integer "+i+" does not contain bit at position " + bit);
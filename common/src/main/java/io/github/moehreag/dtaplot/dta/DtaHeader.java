@@ -0,0 +1,155 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Everything needed to find and decode the records of a DTA file.
+ */
+@Getter
+@RequiredArgsConstructor
+public class DtaHeader {
+
+	private static final int SPLIT_SIZE = 8192;
+
+	private final int version;
+	/**
+	 * Offset of the first record
+	 */
+	private final int start;
+	/**
+	 * Number of records declared by the header, or {@code -1} if they run until the end of the file
+	 */
+	private final int count;
+	private final RecordDecoder decoder;
+
+	public boolean isFixedLength() {
+		return decoder.minLength() == decoder.maxLength();
+	}
+
+	/**
+	 * @return how many records of a fixed-length format fit into {@code limit} bytes
+	 */
+	public int records(int limit) {
+		int available = Math.max(0, (limit - start) / decoder.maxLength());
+		return count < 0 ? available : Math.min(count, available);
+	}
+
+	/**
+	 * Decodes all records of the little-endian buffer.
+	 */
+	public ColumnarData decode(ByteBuffer data) {
+		return decode(data, DtaParser.options());
+	}
+
+	public ColumnarData decode(ByteBuffer data, DtaParser.Options options) {
+		DtaHeader header = options.getChannels() == null ? this : project(options.getChannels());
+		return header.decode(data, options.isParallel(), options.getFrom(), options.getTo());
+	}
+
+	/**
+	 * @return a header for the same file that only decodes the given channels
+	 */
+	public DtaHeader project(Set<String> channels) {
+		return new DtaHeader(version, start, count, decoder.project(channels));
+	}
+
+	private ColumnarData decode(ByteBuffer data, boolean parallel, long from, long to) {
+		// variable-length records are located in a first pass, so both kinds can be decoded by random access
+		int[] offsets = isFixedLength() ? null : index(data);
+		int records = offsets == null ? records(data.limit()) : offsets.length;
+		int first = search(data, offsets, records, from);
+		int rows = Math.max(0, search(data, offsets, records, to) - first);
+
+		ColumnarData out = decoder.allocate(rows);
+		out.addRows(rows);
+		if (parallel && decoder.isThreadSafe() && rows > SPLIT_SIZE) {
+			ForkJoinPool.commonPool().invoke(new DecodeTask(this, data, offsets, out, first, 0, rows));
+		} else {
+			for (int row = 0; row < rows; row++) {
+				decoder.decode(data, offset(offsets, first + row), out, row);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Binary search over the chronologically ordered records.
+	 *
+	 * @return the index of the first record not older than {@code time}
+	 */
+	public int search(ByteBuffer data, int[] offsets, int records, long time) {
+		int low = 0, high = records;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (decoder.time(data, offset(offsets, mid)) < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Collects the offset of every complete record without decoding them.
+	 */
+	public int[] index(ByteBuffer data) {
+		int limit = data.limit();
+		int[] offsets = new int[isFixedLength() ? records(limit) : Math.max(0, limit - start) / decoder.minLength()];
+		int size = 0;
+		int offset = start;
+		while ((count < 0 || size < count) && offset < limit) {
+			int next = decoder.skip(data, offset, limit);
+			if (next < 0) {
+				break;
+			}
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, Math.max(16, size + (size >> 1)));
+			}
+			offsets[size++] = offset;
+			offset = next;
+		}
+		return size == offsets.length ? offsets : Arrays.copyOf(offsets, size);
+	}
+
+	private int offset(int[] offsets, int row) {
+		return offsets == null ? start + row * decoder.maxLength() : offsets[row];
+	}
+
+	@RequiredArgsConstructor
+	private static class DecodeTask extends RecursiveAction {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		// tasks are never serialized
+		private final transient DtaHeader header;
+		private final transient ByteBuffer data;
+		private final int[] offsets;
+		private final transient ColumnarData out;
+		private final int first, from, to;
+
+		@Override
+		protected void compute() {
+			if (to - from <= SPLIT_SIZE) {
+				ByteBuffer buf = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+				for (int row = from; row < to; row++) {
+					header.decoder.decode(buf, header.offset(offsets, first + row), out, row);
+				}
+				return;
+			}
+			// bit columns pack 64 rows per word, so two tasks must never share one
+			int mid = from + ((to - from) / 2 & ~63);
+			invokeAll(new DecodeTask(header, data, offsets, out, first, from, mid), new DecodeTask(header, data, offsets, out, first, mid, to));
+		}
+	}
+}
@@ -1,29 +1,168 @@
 package io.github.moehreag.dtaplot.dta;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import io.github.moehreag.dtaplot.dta.versioned.DtaFile8209;
 import io.github.moehreag.dtaplot.dta.versioned.DtaFile9000;
 import io.github.moehreag.dtaplot.dta.versioned.DtaFile9001;
 import io.github.moehreag.dtaplot.dta.versioned.DtaFile9003;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public class DtaParser {
 
 	public static DtaFile get(ByteBuffer data){
+		return get(data, options());
+	}
+
+	/**
+	 * Decodes only the given channels, named as in {@link DtaFile#getChannels()}.
+	 */
+	public static DtaFile get(ByteBuffer data, Set<String> channels){
+		return get(data, options().channels(channels));
+	}
+
+	public static DtaFile get(ByteBuffer data, Options options){
+		int version = data.order(ByteOrder.LITTLE_ENDIAN).getInt(0);
+		return switch (version){
+			case 8208, 8209 -> new DtaFile8209(data, options);
+			case 9000 -> new DtaFile9000(data, options);
+			case 9001 -> new DtaFile9001(data, options);
+			case 9003 -> new DtaFile9003(data, options);
+			default -> throw new IllegalArgumentException("Unsupported DTA version: "+version);
+		};
+	}
+
+	public static Options options(){
+		return new Options();
+	}
+
+	/**
+	 * Reads the header of a DTA file, which has to be fully contained in the buffer.
+	 */
+	public static DtaHeader header(ByteBuffer data){
 		int version = data.order(ByteOrder.LITTLE_ENDIAN).getInt(0);
 		return switch (version){
-			case 8208, 8209 -> new DtaFile8209(data);
-			case 9000 -> new DtaFile9000(data);
-			case 9001 -> new DtaFile9001(data);
-			case 9003 -> new DtaFile9003(data);
+			case 8208, 8209 -> DtaFile8209.header(data);
+			case 9000 -> DtaFile9000.header(data);
+			case 9001 -> DtaFile9001.header(data);
+			case 9003 -> DtaFile9003.header(data);
 			default -> throw new IllegalArgumentException("Unsupported DTA version: "+version);
 		};
 	}
 
+	/**
+	 * @param head at least the first 8 bytes of a file
+	 * @return the number of bytes {@link #header(ByteBuffer)} needs
+	 */
+	static int headerLength(ByteBuffer head){
+		return switch (head.getInt(0)){
+			case 9001 -> 10;
+			case 9003 -> 8 + head.getInt(4);
+			default -> 8;
+		};
+	}
+
 	public static DtaFile get(byte[] data){
 		return get(ByteBuffer.wrap(data));
 	}
+
+	/**
+	 * Parses a local file straight from a read-only mapping instead of copying it onto the heap first.
+	 */
+	public static DtaFile get(Path file){
+		return get(file, options());
+	}
+
+	public static DtaFile get(Path file, Options options){
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return get(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), options);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Lazily decodes the records of a DTA file, without keeping more than one of them in memory.
+	 * The same {@link DtaRecord} is handed out for every record.
+	 */
+	public static Stream<DtaRecord> stream(ByteBuffer data){
+		return stream(data, options());
+	}
+
+	/**
+	 * Streams with {@link Options#channels(Set)} and {@link Options#range(long, long)} applied,
+	 * records are always decoded sequentially.
+	 */
+	public static Stream<DtaRecord> stream(ByteBuffer data, Options options){
+		return StreamSupport.stream(new RecordSpliterator(data, options), false);
+	}
+
+	public static Stream<DtaRecord> stream(Path file){
+		return stream(file, options());
+	}
+
+	public static Stream<DtaRecord> stream(Path file, Options options){
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return stream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), options);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Like {@link #stream(ByteBuffer)}, reading the stream only as far as the consumed records need.
+	 * The stream is not closed.
+	 */
+	public static Stream<DtaRecord> stream(InputStream in){
+		return stream(in, options());
+	}
+
+	public static Stream<DtaRecord> stream(InputStream in, Options options){
+		return StreamSupport.stream(new RecordSpliterator(in, options), false);
+	}
+
+	@Getter
+	public static class Options {
+		private boolean parallel;
+		private Set<String> channels;
+		private long from = Long.MIN_VALUE, to = Long.MAX_VALUE;
+
+		/**
+		 * Splits fixed-length records across the common fork-join pool.
+		 */
+		public Options parallel(boolean parallel) {
+			this.parallel = parallel;
+			return this;
+		}
+
+		/**
+		 * Only decodes the given channels, all others are skipped over without being read.
+		 * {@code null} decodes every channel.
+		 */
+		public Options channels(Set<String> channels) {
+			this.channels = channels;
+			return this;
+		}
+
+		/**
+		 * Only decodes records with {@code from <= time < to}, found by binary search.
+		 * Relies on the records being in chronological order, as the controller writes them.
+		 */
+		public Options range(long from, long to) {
+			this.from = from;
+			this.to = to;
+			return this;
+		}
+	}
 }
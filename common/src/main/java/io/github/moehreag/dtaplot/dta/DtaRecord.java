@@ -0,0 +1,46 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.Column;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+
+/**
+ * Cursor over the records of {@link DtaParser#stream}. The same instance is refilled for every record,
+ * use {@link #toMap()} to keep one.
+ */
+public class DtaRecord {
+
+	private final ColumnarData row;
+
+	DtaRecord(ColumnarData row) {
+		this.row = row;
+	}
+
+	public int getTime() {
+		return row.getTime(0);
+	}
+
+	public Set<String> getChannels() {
+		return row.getChannels();
+	}
+
+	/**
+	 * @return the value of the channel, or {@code NaN} if this file does not contain it
+	 */
+	public double getDouble(String channel) {
+		Column column = row.getColumn(channel);
+		return column == null ? Double.NaN : column.getDouble(0);
+	}
+
+	public Value<?> getValue(String channel) {
+		Column column = row.getColumn(channel);
+		return column == null ? null : column.getValue(0);
+	}
+
+	public Map<String, Value<?>> toMap() {
+		return row.getRow(0);
+	}
+}
@@ -1,6 +1,6 @@
 package io.github.moehreag.dtaplot.dta;
 
-import lombok.Data;
+import lombok.*;
 
 @Data
 public class LookUpTable {
@@ -8,4 +8,60 @@ public class LookUpTable {
 	private final int offset;     // offset of data points
 	private final int delta;      // x-distance of datapoints
 	private final int precision;
+
+	// interpolate() results for every raw value from expandedMin on
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude @ToString.Exclude
+	private volatile double[] expanded;
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude @ToString.Exclude
+	private int expandedMin;
+
+	/**
+	 * Precomputes {@link #interpolate(int)} for every raw value the table covers,
+	 * so {@link #convert(int)} becomes a single array read.
+	 */
+	public LookUpTable expand() {
+		// values outside of [min, max] index past the table data
+		int min = Math.max(Short.MIN_VALUE, offset - delta + 1);
+		int max = Math.min(Short.MAX_VALUE, offset + (data.length - 1) * delta - 1);
+		double[] table = new double[Math.max(0, max - min + 1)];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = interpolate(min + i);
+		}
+		expandedMin = min;
+		expanded = table;
+		return this;
+	}
+
+	public double convert(int value) {
+		double[] table = expanded;
+		if (table != null) {
+			int i = value - expandedMin;
+			if (i >= 0 && i < table.length) {
+				return table[i];
+			}
+		}
+		return interpolate(value);
+	}
+
+	public double interpolate(int value) {
+		// Position in Tabelle
+		int idx = (value - offset) / delta;
+		int size = (data.length * 4) / 2;
+		if (idx > (size - 2)) idx = size - 2;
+
+		// linear approximation
+		int x1 = idx * delta + offset;
+		int x2 = (idx + 1) * delta + offset;
+		int y1 = data[idx];
+		int y2 = data[idx + 1];
+
+		double m = (float) (y2 - y1) / (x2 - x1);
+		double n = y1 - m * x1;
+
+		// calc value
+		double res = m * value + n;
+		return res / precision;
+	}
 }
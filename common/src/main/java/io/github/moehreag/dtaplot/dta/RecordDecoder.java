@@ -0,0 +1,64 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import io.github.moehreag.dtaplot.data.ColumnarData;
+
+/**
+ * Decodes the records of one DTA format once its header has been read.
+ */
+public interface RecordDecoder {
+
+	/**
+	 * Creates an empty column set to decode records into.
+	 */
+	ColumnarData allocate(int capacity);
+
+	/**
+	 * Decodes the record at {@code offset} of the little-endian buffer into {@code row} of {@code out}.
+	 * The buffer position may be moved.
+	 *
+	 * @return the offset of the following record
+	 */
+	int decode(ByteBuffer buf, int offset, ColumnarData out, int row);
+
+	/**
+	 * @return the time of the record at {@code offset}, without decoding it
+	 */
+	default int time(ByteBuffer buf, int offset) {
+		return buf.getInt(offset);
+	}
+
+	/**
+	 * @return a decoder for the same records that only fills the given channels, unknown names are ignored
+	 */
+	RecordDecoder project(Set<String> channels);
+
+	/**
+	 * Finds the end of the record at {@code offset} without decoding it.
+	 *
+	 * @return the offset of the following record, or {@code -1} if the record does not end before {@code limit}
+	 */
+	default int skip(ByteBuffer buf, int offset, int limit) {
+		int end = offset + maxLength();
+		return end <= limit ? end : -1;
+	}
+
+	/**
+	 * @return the fewest bytes a record can occupy
+	 */
+	int minLength();
+
+	/**
+	 * @return the most bytes a record can occupy
+	 */
+	int maxLength();
+
+	/**
+	 * @return whether distinct rows of a column set from {@link #allocate(int)} may be decoded concurrently
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
+}
@@ -0,0 +1,298 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import io.github.moehreag.dtaplot.data.BitColumn;
+import io.github.moehreag.dtaplot.data.ColumnType;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.data.DoubleColumn;
+import lombok.Getter;
+
+/**
+ * Decoding program for DTA formats whose records have a fixed length.
+ * Every channel is read with an absolute get at a precomputed offset, so a record
+ * is decoded without touching the buffer position or allocating anything.
+ */
+public class RecordLayout implements RecordDecoder {
+
+	private static final int LUT = 0, SHORT = 1, INT = 2, BIT = 3;
+
+	@Getter
+	private final int length;
+	private final int timeOffset;
+
+	private final String[] categories, names;
+	private final ColumnType[] types;
+
+	private final int[] ops, offsets, targets, bits;
+	private final boolean[] inverted;
+	private final double[] factors, precisions, divisors;
+	private final LookUpTable[] tables;
+
+	private RecordLayout(Builder builder) {
+		length = builder.length;
+		timeOffset = builder.timeOffset;
+
+		int columns = builder.columns.size();
+		categories = new String[columns];
+		names = new String[columns];
+		types = new ColumnType[columns];
+		for (int i = 0; i < columns; i++) {
+			Builder.ColumnDef def = builder.columns.get(i);
+			categories[i] = def.category();
+			names[i] = def.name();
+			types[i] = def.type();
+		}
+
+		int count = builder.fields.size();
+		ops = new int[count];
+		offsets = new int[count];
+		targets = new int[count];
+		bits = new int[count];
+		inverted = new boolean[count];
+		factors = new double[count];
+		precisions = new double[count];
+		divisors = new double[count];
+		tables = new LookUpTable[count];
+		for (int i = 0; i < count; i++) {
+			Builder.Field f = builder.fields.get(i);
+			ops[i] = f.op;
+			offsets[i] = f.offset;
+			targets[i] = f.target;
+			bits[i] = f.bit;
+			inverted[i] = f.inverted;
+			factors[i] = f.factor;
+			precisions[i] = f.precision;
+			divisors[i] = f.divisor;
+			tables[i] = f.table;
+		}
+	}
+
+	private RecordLayout(RecordLayout layout, Set<String> channels) {
+		length = layout.length;
+		timeOffset = layout.timeOffset;
+
+		int[] columns = new int[layout.names.length];
+		int kept = 0;
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = channels.contains(layout.names[i]) ? kept++ : -1;
+		}
+		categories = new String[kept];
+		names = new String[kept];
+		types = new ColumnType[kept];
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] != -1) {
+				categories[columns[i]] = layout.categories[i];
+				names[columns[i]] = layout.names[i];
+				types[columns[i]] = layout.types[i];
+			}
+		}
+
+		int count = 0;
+		for (int target : layout.targets) {
+			if (columns[target] != -1) {
+				count++;
+			}
+		}
+		ops = new int[count];
+		offsets = new int[count];
+		targets = new int[count];
+		bits = new int[count];
+		inverted = new boolean[count];
+		factors = new double[count];
+		precisions = new double[count];
+		divisors = new double[count];
+		tables = new LookUpTable[count];
+		for (int i = 0, j = 0; i < layout.ops.length; i++) {
+			if (columns[layout.targets[i]] == -1) {
+				continue;
+			}
+			ops[j] = layout.ops[i];
+			offsets[j] = layout.offsets[i];
+			targets[j] = columns[layout.targets[i]];
+			bits[j] = layout.bits[i];
+			inverted[j] = layout.inverted[i];
+			factors[j] = layout.factors[i];
+			precisions[j] = layout.precisions[i];
+			divisors[j] = layout.divisors[i];
+			tables[j] = layout.tables[i];
+			j++;
+		}
+	}
+
+	public static Builder builder(int length) {
+		return new Builder(length);
+	}
+
+	@Override
+	public ColumnarData allocate(int capacity) {
+		ColumnarData columns = new ColumnarData(capacity);
+		for (int i = 0; i < names.length; i++) {
+			columns.addColumn(types[i].create(categories[i], names[i], capacity));
+		}
+		return columns;
+	}
+
+	/**
+	 * Decodes {@code count} consecutive records starting at {@code start}.
+	 */
+	public ColumnarData decode(ByteBuffer buf, int start, int count) {
+		ColumnarData columns = allocate(count);
+		decode(buf, start, count, columns, columns.addRows(count));
+		return columns;
+	}
+
+	public void decode(ByteBuffer buf, int start, int count, ColumnarData out, int firstRow) {
+		buf = buf.order() == ByteOrder.LITTLE_ENDIAN ? buf : buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < count; i++) {
+			decode(buf, start + i * length, out, firstRow + i);
+		}
+	}
+
+	@Override
+	public int decode(ByteBuffer buf, int base, ColumnarData out, int row) {
+		out.setTime(row, buf.getInt(base + timeOffset));
+		for (int i = 0; i < ops.length; i++) {
+			int offset = base + offsets[i];
+			switch (ops[i]) {
+				case LUT -> ((DoubleColumn) out.getColumn(targets[i])).set(row, tables[i].convert(buf.getShort(offset)));
+				case SHORT -> ((DoubleColumn) out.getColumn(targets[i])).set(row, scale(buf.getShort(offset), i));
+				case INT -> ((DoubleColumn) out.getColumn(targets[i])).set(row, scale(buf.getInt(offset), i));
+				case BIT -> ((BitColumn) out.getColumn(targets[i])).set(row, ((buf.getShort(offset) >> bits[i]) & 1) == (inverted[i] ? 0 : 1));
+			}
+		}
+		return base + length;
+	}
+
+	@Override
+	public int time(ByteBuffer buf, int base) {
+		return buf.getInt(base + timeOffset);
+	}
+
+	@Override
+	public RecordLayout project(Set<String> channels) {
+		return new RecordLayout(this, channels);
+	}
+
+	@Override
+	public int minLength() {
+		return length;
+	}
+
+	@Override
+	public int maxLength() {
+		return length;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		// every column exists up front and a record only writes its own row
+		return true;
+	}
+
+	private double scale(int val, int i) {
+		double res = (val / factors[i] * precisions[i]) / precisions[i];
+		return res / divisors[i];
+	}
+
+	public static class Builder {
+		private int length;
+		private int timeOffset;
+		private final List<ColumnDef> columns = new ArrayList<>();
+		private final List<Field> fields = new ArrayList<>();
+
+		private Builder(int length) {
+			this.length = length;
+		}
+
+		/**
+		 * Sets the record length, for layouts where it is only known after all fields have been added.
+		 */
+		public Builder length(int length) {
+			this.length = length;
+			return this;
+		}
+
+		public Builder time(int offset) {
+			timeOffset = offset;
+			return this;
+		}
+
+		public Builder lut(int offset, LookUpTable table, String category, String name) {
+			Field f = field(LUT, offset, category, name, ColumnType.DOUBLE);
+			f.table = table;
+			return this;
+		}
+
+		public Builder analogue(int offset, String category, String name, double factor, int precision) {
+			return analogue(offset, category, name, factor, precision, 1, false);
+		}
+
+		/**
+		 * @param divisor   applied after scaling, for formats that store an additional decimal place
+		 * @param highbytes whether the value is stored as an {@code int} instead of a {@code short}
+		 */
+		public Builder analogue(int offset, String category, String name, double factor, int precision, double divisor, boolean highbytes) {
+			Field f = field(highbytes ? INT : SHORT, offset, category, name, ColumnType.DOUBLE);
+			f.factor = factor;
+			f.precision = precision;
+			f.divisor = divisor;
+			return this;
+		}
+
+		public Builder digital(int offset, String category, DataField.DataFieldBit... bits) {
+			for (DataField.DataFieldBit b : bits) {
+				Field f = field(BIT, offset, category, b.getName(), ColumnType.BIT);
+				f.bit = b.getBit();
+				f.inverted = b.isInverted();
+			}
+			return this;
+		}
+
+		private Field field(int op, int offset, String category, String name, ColumnType type) {
+			int target = -1;
+			for (int i = 0; i < columns.size(); i++) {
+				if (columns.get(i).name().equals(name)) {
+					target = i;
+				}
+			}
+			if (target == -1) {
+				columns.add(new ColumnDef(category, name, type));
+				target = columns.size() - 1;
+			} else {
+				// a later field of the same name replaces the earlier one
+				int replaced = target;
+				fields.removeIf(f -> f.target == replaced);
+				columns.set(target, new ColumnDef(category, name, type));
+			}
+			Field f = new Field(op, offset, target);
+			fields.add(f);
+			return f;
+		}
+
+		public RecordLayout build() {
+			return new RecordLayout(this);
+		}
+
+		private record ColumnDef(String category, String name, ColumnType type) {
+		}
+
+		private static class Field {
+			private final int op, offset, target;
+			private int bit;
+			private boolean inverted;
+			private double factor = 1, precision = 1, divisor = 1;
+			private LookUpTable table;
+
+			private Field(int op, int offset, int target) {
+				this.op = op;
+				this.offset = offset;
+				this.target = target;
+			}
+		}
+	}
+}
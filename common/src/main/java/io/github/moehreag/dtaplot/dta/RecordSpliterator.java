@@ -0,0 +1,141 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import io.github.moehreag.dtaplot.data.ColumnarData;
+
+/**
+ * Decodes one record per advance into a reused {@link DtaRecord}.
+ * Input streams are read through a window that only has to hold the header or a single record.
+ */
+class RecordSpliterator implements Spliterator<DtaRecord> {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream in;
+	private ByteBuffer buf;
+	private int offset;
+	private boolean eof;
+
+	private final DtaHeader header;
+	private final RecordDecoder decoder;
+	private final long from, to;
+	private final ColumnarData row;
+	private final DtaRecord record;
+	private int remaining;
+
+	RecordSpliterator(ByteBuffer data, DtaParser.Options options) {
+		this(null, data.duplicate().order(ByteOrder.LITTLE_ENDIAN), options);
+	}
+
+	RecordSpliterator(InputStream in, DtaParser.Options options) {
+		this(in, ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN).limit(0), options);
+	}
+
+	private RecordSpliterator(InputStream in, ByteBuffer buf, DtaParser.Options options) {
+		this.in = in;
+		this.buf = buf;
+		if (!ensure(8) || !ensure(DtaParser.headerLength(buf))) {
+			throw new IllegalArgumentException("Truncated DTA header");
+		}
+		DtaHeader parsed = DtaParser.header(buf);
+		header = options.getChannels() == null ? parsed : parsed.project(options.getChannels());
+		decoder = header.getDecoder();
+		offset = header.getStart();
+		remaining = header.getCount();
+		from = options.getFrom();
+		to = options.getTo();
+		if (in == null && header.isFixedLength()) {
+			// the whole file is at hand, so the time range can be found up front
+			int records = header.records(buf.limit());
+			int first = header.search(buf, null, records, from);
+			offset += first * decoder.maxLength();
+			remaining = Math.max(0, header.search(buf, null, records, to) - first);
+		}
+
+		row = decoder.allocate(1);
+		row.addRows(1);
+		record = new DtaRecord(row);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super DtaRecord> action) {
+		while (remaining != 0) {
+			ensure(decoder.maxLength());
+			int next = decoder.skip(buf, offset, buf.limit());
+			if (next < 0) {
+				return false;
+			}
+			if (remaining > 0) {
+				remaining--;
+			}
+			int time = decoder.time(buf, offset);
+			if (time >= to) {
+				remaining = 0;
+				return false;
+			}
+			if (time < from) {
+				offset = next;
+				continue;
+			}
+			offset = decoder.decode(buf, offset, row, 0);
+			action.accept(record);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Makes sure {@code needed} bytes from the current offset are buffered, unless the stream ends before.
+	 */
+	private boolean ensure(int needed) {
+		if (buf.limit() - offset >= needed || in == null || eof) {
+			return buf.limit() - offset >= needed;
+		}
+		buf.position(offset);
+		if (needed > buf.capacity()) {
+			buf = ByteBuffer.allocate(Math.max(needed, buf.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN).put(buf);
+		} else {
+			buf.compact();
+		}
+		offset = 0;
+		try {
+			while (buf.position() < needed) {
+				int read = in.read(buf.array(), buf.position(), buf.remaining());
+				if (read < 0) {
+					eof = true;
+					break;
+				}
+				buf.position(buf.position() + read);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		buf.flip();
+		return buf.limit() >= needed;
+	}
+
+	@Override
+	public Spliterator<DtaRecord> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return remaining < 0 ? Long.MAX_VALUE : remaining;
+	}
+
+	@Override
+	public int characteristics() {
+		int characteristics = ORDERED | NONNULL;
+		if (in == null && header.isFixedLength()) {
+			characteristics |= SIZED;
+		}
+		return characteristics;
+	}
+}
@@ -1,17 +1,18 @@
 package io.github.moehreag.dtaplot.dta.versioned;
 
 import java.nio.ByteBuffer;
-import java.util.*;
 
-import io.github.moehreag.dtaplot.*;
 import io.github.moehreag.dtaplot.dta.DataField;
-import io.github.moehreag.dtaplot.dta.DataFieldContainer;
 import io.github.moehreag.dtaplot.dta.DtaFile;
+import io.github.moehreag.dtaplot.dta.DtaHeader;
+import io.github.moehreag.dtaplot.dta.DtaParser;
 import io.github.moehreag.dtaplot.dta.LookUpTable;
+import io.github.moehreag.dtaplot.dta.RecordLayout;
 
 public class DtaFile8209 extends DtaFile {
 
-	private static final LookUpTable[] lut = new LookUpTable[]{
+	// package-private for the tests
+	static final LookUpTable[] lut = new LookUpTable[]{
 
 			// LUT for TRL, TVL, TBW, TFB1, TRLext
 			new LookUpTable(
@@ -28,7 +29,7 @@ public class DtaFile8209 extends DtaFile {
 					0,  // offset
 					10, // delta
 					10  // precision
-			),
+			).expand(),
 
 			// LUT for TWQein, TWQaus, TA
 			new LookUpTable(
@@ -45,7 +46,7 @@ public class DtaFile8209 extends DtaFile {
 					0,  // offset
 					10, // delta
 					10  // precision
-			),
+			).expand(),
 
 			// LUT for THG
 			new LookUpTable(
@@ -62,7 +63,7 @@ public class DtaFile8209 extends DtaFile {
 					0,  // offset
 					10, // delta
 					10  // precision
-			),
+			).expand(),
 
 			// LUT for TSS, TSK
 			new LookUpTable(
@@ -78,7 +79,7 @@ public class DtaFile8209 extends DtaFile {
 					0,  // offset
 					40, // delta
 					10 // precision
-			),
+			).expand(),
 
 			// LUT for TFB2, TFB3, TEE
 			new LookUpTable(
@@ -94,113 +95,73 @@ public class DtaFile8209 extends DtaFile {
 					0,  // offset
 					40, // delta
 					10 // precision
-			)
+			).expand()
 	};
 
-	public DtaFile8209(ByteBuffer data) {
-		super(data);
-
-		data.position(8);
-
-		System.out.println("File contains " + (data.limit() / getEntryLength()) + " data points!");
-
-		List<Map<String, Value<?>>> entries = new ArrayList<>();
-		for (int i = 0; i < data.limit() / getEntryLength(); i++) {
-			entries.add(readEntry());
-		}
-
-		setDatapoints(entries);
-	}
-
-	public static DataFieldContainer lut(LookUpTable table, String category, String name, ByteBuffer buffer){
-		int value = buffer.getShort();
-
-		// Position in Tabelle
-		int idx = (value - table.getOffset()) / table.getDelta();
-		int size = (table.getData().length*4) / 2;
-		if (idx > (size - 2)) idx = size - 2;
-
-		// linear approximation
-		int x1 = idx * table.getDelta() + table.getOffset();
-		int x2 = (idx + 1) * table.getDelta() + table.getOffset();
-		int y1 = table.getData()[idx];
-		int y2 = table.getData()[idx + 1];
+	private static final RecordLayout LAYOUT_8208 = layout(188);
+	private static final RecordLayout LAYOUT_8209 = layout(168);
 
-		double m = (float)(y2 - y1) / (x2 - x1);
-		double n = y1 - m * x1;
-
-		// calc value
-		double res = m * value + n;
-		Value<Number> val = Value.of((res) / (table.getPrecision()));
-		return DataFieldContainer.single(category, name, val);
-	}
-
-	private DataFieldContainer analogue(String category, String name, ByteBuffer buffer){
-		return analogue(category, name, 10, 10, buffer);
-	}
-
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer){
-		return analogue(category, name, factor, precision, buffer, false);
+	public DtaFile8209(ByteBuffer data) {
+		this(data, DtaParser.options());
 	}
 
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer, boolean highbytes){
-
-		int val = highbytes ? buffer.getInt() : buffer.getShort();
-		double res = (val / factor * precision) / precision;
+	public DtaFile8209(ByteBuffer data, DtaParser.Options options) {
+		super(data);
 
-		Value<Number> value = Value.of(res);
-		return DataFieldContainer.single(category, name, value);
+		setColumns(header(this.data).decode(this.data, options));
 	}
 
-	private int getEntryLength() {
-		return getVersion() == 0x2011 ? 168 : 188;
+	public static DtaHeader header(ByteBuffer data) {
+		int version = data.getInt(0);
+		return new DtaHeader(version, 8, -1, version == 0x2011 ? LAYOUT_8209 : LAYOUT_8208);
 	}
 
-	private Map<String, Value<?>> readEntry(){
-		List<DataFieldContainer> fields = List.of(
-				DataField.time(data),																					// [0  :3  ] - Datum
-				DataField.unknown(4, data),																		// [4  :7  ]
-				DataField.digital("Digitale Ausgänge", data,													// [8  :9  ] - Status Ausgaenge
-					DataField.bit("HUP", 0),																	//   bit 0:  HUP  = Heizungsumwaelzpumpe
-					DataField.bit("ZUP", 1),																	//   bit 1:  ZUP  = Zusatzumwaelzpumpe
-					DataField.bit("BUP", 2),																	//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
-					DataField.bit("ZW2", 3),																	//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
-					DataField.bit("MA1", 4),																	//   bit 4:  MA1  = Mischer 1 auf
-					DataField.bit("MZ1", 5),																	//   bit 5:  MZ1  = Mischer 1 zu
-					DataField.bit("ZIP", 6),																	//   bit 6:  ZIP  = Zirkulationspumpe
-					DataField.bit("VD1", 7),																	//   bit 7:  VD1  = Verdichter 1
-					DataField.bit("VD2", 8),																	//   bit 8:  VD2  = Verdichter 2
-					DataField.bit("VENT", 9),																	//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
-					DataField.bit("AV", 10),																	//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
-					DataField.bit("VBS", 11),																	//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
-					DataField.bit("ZW1", 12)																	//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
-				),
-				DataField.unknown(34, data),																		// [10 :43 ]
-				DataField.digital("Digitale Eingänge", data,													// [44 :45 ] - Status Eingaenge
+	private static RecordLayout layout(int length) {
+		// version 0x2010 (8208) has 20 additional, unused bytes at the end of each record
+		return RecordLayout.builder(length)
+				.time(0)																									// [0  :3  ] - Datum
+																															// [4  :7  ]
+				.digital(8, "Digitale Ausgänge",																		// [8  :9  ] - Status Ausgaenge
+						DataField.bit("HUP", 0),																	//   bit 0:  HUP  = Heizungsumwaelzpumpe
+						DataField.bit("ZUP", 1),																	//   bit 1:  ZUP  = Zusatzumwaelzpumpe
+						DataField.bit("BUP", 2),																	//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
+						DataField.bit("ZW2", 3),																	//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
+						DataField.bit("MA1", 4),																	//   bit 4:  MA1  = Mischer 1 auf
+						DataField.bit("MZ1", 5),																	//   bit 5:  MZ1  = Mischer 1 zu
+						DataField.bit("ZIP", 6),																	//   bit 6:  ZIP  = Zirkulationspumpe
+						DataField.bit("VD1", 7),																	//   bit 7:  VD1  = Verdichter 1
+						DataField.bit("VD2", 8),																	//   bit 8:  VD2  = Verdichter 2
+						DataField.bit("VENT", 9),																	//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
+						DataField.bit("AV", 10),																	//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
+						DataField.bit("VBS", 11),																	//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
+						DataField.bit("ZW1", 12)																	//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
+				)
+																															// [10 :43 ]
+				.digital(44, "Digitale Eingänge",																		// [44 :45 ] - Status Eingaenge
 						DataField.bit("HD", 0, true),													//   bit 0:  HD_  = Hochdruckpressostat
 						DataField.bit("ND", 1, true),													//   bit 1:  ND_  = Niederdruckpressostat
 						DataField.bit("MOT", 2, true),													//   bit 2:  MOT_ = Motorschutz
 						DataField.bit("ASD", 3, true),													//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
 						DataField.bit("EVU", 4)																//   bit 4:  EVU  = EVU Sperre
-				),
-				DataField.unknown(6, data),																		// [46 :51 ]
-				lut(lut[0], "Heizkreis",   "TFB1", data),													// [52 :53 ] - TFB1
-				lut(lut[0], "Heizkreis",    "TBW", data),													// [54 :55 ] - TBW
-				lut(lut[1], "Heizkreis",     "TA", data),													// [56 :57 ] - TA
-				lut(lut[0], "Heizkreis", "TRLext", data),													// [58 :59 ] - TRLext
-				lut(lut[0], "Heizkreis",    "TRL", data),													// [60 :61 ] - TRL
-				lut(lut[0], "Heizkreis",    "TVL", data),													// [62 :63 ] - TVL
-				lut(lut[2], "Heizkreis",    "THG", data),													// [64 :65 ] - THG
-				lut(lut[1], "Heizkreis", "TWQaus", data),													// [66 :67 ] - TWQaus
-				DataField.unknown(2, data),																		// [68 :69 ]
-				lut(lut[1], "Heizkreis", "TWQein", data),													// [70 :71 ] - TWQein
-				DataField.unknown(8, data),																		// [72 :79 ]
-				analogue("Heizkreis",  "TRLsoll", 10.0, 10, data, true),			// [80 :83 ] - TRLsoll
-				analogue("Heizkreis", "TMK1soll", 10.0, 10, data, true),			// [84 :87 ] - TMK1soll
-				DataField.unknown(40, data),																		// [88 :127]
-				DataField.unknown(2, data),																		// [128:129] - ComfortPlatine indikator
-				DataField.unknown(2, data),																		// [88 :131]
-				DataField.digital("Comfort-Platine EA", data,													// [132:133] - Status Ausgaenge ComfortPlatine
+				)
+																															// [46 :51 ]
+				.lut(52, lut[0], "Heizkreis",   "TFB1")														// [52 :53 ] - TFB1
+				.lut(54, lut[0], "Heizkreis",    "TBW")														// [54 :55 ] - TBW
+				.lut(56, lut[1], "Heizkreis",     "TA")														// [56 :57 ] - TA
+				.lut(58, lut[0], "Heizkreis", "TRLext")														// [58 :59 ] - TRLext
+				.lut(60, lut[0], "Heizkreis",    "TRL")														// [60 :61 ] - TRL
+				.lut(62, lut[0], "Heizkreis",    "TVL")														// [62 :63 ] - TVL
+				.lut(64, lut[2], "Heizkreis",    "THG")														// [64 :65 ] - THG
+				.lut(66, lut[1], "Heizkreis", "TWQaus")														// [66 :67 ] - TWQaus
+																															// [68 :69 ]
+				.lut(70, lut[1], "Heizkreis", "TWQein")														// [70 :71 ] - TWQein
+																															// [72 :79 ]
+				.analogue(80, "Heizkreis",  "TRLsoll", 10.0, 10, 1, true)								// [80 :83 ] - TRLsoll
+				.analogue(84, "Heizkreis", "TMK1soll", 10.0, 10, 1, true)								// [84 :87 ] - TMK1soll
+																															// [88 :127]
+																															// [128:129] - ComfortPlatine indikator
+																															// [130:131]
+				.digital(132, "Comfort-Platine EA",																	// [132:133] - Status Ausgaenge ComfortPlatine
 						DataField.bit("AI1DIV", 6),															//    bit 6:  AI1DIV = Spannungsteiler an AI1: wann AI1DIV dann AI1 = AI1/2
 						DataField.bit("SUP", 7),																//    bit 7:  SUP = Schwimmbadumwaelzpumpe
 						DataField.bit("FUP2", 8),																//    bit 8:  FUP2 = Mischkreispumpe 2 / Kuehlsignal 2
@@ -211,31 +172,23 @@ public class DtaFile8209 extends DtaFile {
 						DataField.bit("FUP3", 12),															//   bit 12:  FUP3 = Mischkreispumpe 3 / Kuehlsignal 3
 						DataField.bit("ZW3", 14),																//   bit 14:  ZW3 = Zusaetzlicher Waermeerzeuger 3
 						DataField.bit("SLP", 15)																//   bit 15:  SLP = Solarladepumpe
-				),
-				DataField.unknown(2, data),																		// [134:135]
-				analogue("Comfort-Platine", "AO1", 381.825, 100, data), 					// [136:137] - AO1
-				analogue("Comfort-Platine", "AO2", 381.825, 100, data),  					// [138:139] - AO2
-				DataField.digital("Comfort-Platine EA", data,													// [140:141] - Status Eingaenge ComfortPlatine
+				)
+																															// [134:135]
+				.analogue(136, "Comfort-Platine", "AO1", 381.825, 100)									// [136:137] - AO1
+				.analogue(138, "Comfort-Platine", "AO2", 381.825, 100)									// [138:139] - AO2
+				.digital(140, "Comfort-Platine EA",																	// [140:141] - Status Eingaenge ComfortPlatine
 						DataField.bit("SWT", 4, true)													//    bit 4:  SWT_ = Schwimmbadthermostat
-				),
-				DataField.unknown(2, data),																		// [142:143]
-				lut(lut[3], "Comfort-Platine",   "TSS", data),											// [144:145] - TSS
-				lut(lut[3], "Comfort-Platine",   "TSK", data),											// [146:147] - TSK
-				lut(lut[4], "Comfort-Platine",  "TFB2", data),											// [148:149] - TFB2
-				lut(lut[4], "Comfort-Platine",  "TFB3", data),											// [150:151] - TFB3
-				lut(lut[4], "Comfort-Platine",   "TEE", data),											// [152:153] - TEE
-				DataField.unknown(4, data),																		// [154:157]
-				analogue("Comfort-Platine",  "AI1", 275.406, 100, data), 					// [158:159] - AI1
-				analogue("Comfort-Platine", "TMK2soll", 10.0, 10, data, true), 	// [160:163] - TMK2soll
-				analogue("Comfort-Platine", "TMK3soll", 10.0, 10, data, true) 		// [164:167] - TMK3soll
-		);
-		if (getVersion() == 0x2010){
-			skip(20);
-		}
-
-		Map<String, Value<?>> map = new HashMap<>();
-		fields.stream().filter(f -> !f.isVoid())
-						.forEach(c -> c.get().forEach(d -> map.put(d.getName(), d.getValue())));
-		return map;
+				)
+																															// [142:143]
+				.lut(144, lut[3], "Comfort-Platine",   "TSS")												// [144:145] - TSS
+				.lut(146, lut[3], "Comfort-Platine",   "TSK")												// [146:147] - TSK
+				.lut(148, lut[4], "Comfort-Platine",  "TFB2")												// [148:149] - TFB2
+				.lut(150, lut[4], "Comfort-Platine",  "TFB3")												// [150:151] - TFB3
+				.lut(152, lut[4], "Comfort-Platine",   "TEE")												// [152:153] - TEE
+																															// [154:157]
+				.analogue(158, "Comfort-Platine",  "AI1", 275.406, 100)									// [158:159] - AI1
+				.analogue(160, "Comfort-Platine", "TMK2soll", 10.0, 10, 1, true)						// [160:163] - TMK2soll
+				.analogue(164, "Comfort-Platine", "TMK3soll", 10.0, 10, 1, true)						// [164:167] - TMK3soll
+				.build();
 	}
 }
@@ -1,13 +1,16 @@
 package io.github.moehreag.dtaplot.dta.versioned;
 
 import java.nio.ByteBuffer;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.Set;
 
-import io.github.moehreag.dtaplot.dta.DataField;
-import io.github.moehreag.dtaplot.dta.DataFieldContainer;
+import io.github.moehreag.dtaplot.data.BitColumn;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.data.FloatColumn;
 import io.github.moehreag.dtaplot.dta.DtaFile;
-import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.dta.DtaHeader;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.RecordDecoder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -15,166 +18,230 @@ import static io.github.moehreag.dtaplot.dta.DataField.*;
 
 public class DtaFile9000 extends DtaFile {
 
-	private final int subVer;
+	private static final Field[] FIELDS = {
+			analogue("Heizkreis", "TVL"),															// [ 0] TVL
+			analogue("Heizkreis", "TRL"),															// [ 1] TRL
+			analogue("Heizkreis", "TWQein"),														// [ 2] TWQein
+			analogue("Heizkreis", "TWQaus"),														// [ 3] TWQaus
+			analogue("Heizkreis", "THG"),															// [ 4] THG
+			analogue("Heizkreis", "TBW"),															// [ 5] TBW
+			analogue("Heizkreis", "TFB1"),															// [ 6] TFB1?
+			analogue("Heizkreis", "TA"),															// [ 7] TA
+			analogue("Heizkreis", "TRLext"),														// [ 8] TRLext
+			analogue("Heizkreis", "TRLsoll"),														// [ 9] TRLsoll
+			unknown(),																				// [10] ?
+			unknown(),																				// [11] ?
+			digital("Digitale Ausgänge",															// [12]   StatusA = Status der Ausgaenge
+					bit("HUP", 0),																	//   bit 0:  HUP  = Heizungsumwaelzpumpe
+					bit("ZUP", 1),																	//   bit 1:  ZUP  = Zusatzumwaelzpumpe
+					bit("BUP", 2),																	//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
+					bit("ZW2", 3),																	//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
+					bit("MA1", 4),																	//   bit 4:  MA1  = Mischer 1 auf
+					bit("MZ1", 5),																	//   bit 5:  MZ1  = Mischer 1 zu
+					bit("ZIP", 6),																	//   bit 6:  ZIP  = Zirkulationspumpe
+					bit("VD1", 7),																	//   bit 7:  VD1  = Verdichter 1
+					bit("VD2", 8),																	//   bit 8:  VD2  = Verdichter 2
+					bit("VENT", 9),																	//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
+					bit("AV", 10),																	//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
+					bit("VBS", 11),																	//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
+					bit("ZW1", 12)																	//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
+			),
+			digital("Digitale Eingänge",															// [13] StatusE = Status der Eingaenge (die Bits sind invertiert zur Funktion)
+					bit("HD", 0, true),																//   bit 0:  HD_  = Hochdruckpressostat
+					bit("ND", 1, true),																//   bit 1:  ND_  = Niederdruckpressostat
+					bit("MOT", 2, true),															//   bit 2:  MOT_ = Motorschutz
+					bit("ASD", 3, true),															//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
+					bit("EVU", 4, true)																//   bit 4:  EVU  = EVU Sperre
+			),
+			unknown(),																				// [14] ?
+			unknown(),																				// [15] ?
+			unknown(),																				// [16] ?
+			unknown(),																				// [17] ?
+			unknown(),																				// [18] ?
+			unknown(),																				// [19] ?
+			unknown(),																				// [20] ?
+			unknown(),																				// [21] ?
+			unknown(),																				// [22] ?
+			analogue("Heizkreis", "Durchfluss"),													// [23] TRLsoll
+			unknown()																				// [24] ?
+	};
+
+	// files before sub version 676 carry 13 more fields per record
+	private static final Field[] FIELDS_675 = concat(FIELDS,
+			unknown(),																				// [25] ?
+			unknown(),																				// [26] ?
+			analogue("Heizkreis", "Asg.VDi"),														// [27] Ansaug Verdichter
+			analogue("Heizkreis", "Asg.VDa"),														// [28] Ansaug Verdampfer
+			analogue("Heizkreis", "VDHz"),															// [29] VD Heizung
+			unknown(),																				// [30] ?
+			unknown(),																				// [31] ?
+			unknown(),																				// [32] ?
+			unknown(),																				// [33] ?
+			unknown(),																				// [34] ?
+			analogue("Heizkreis", "UeHz"),															// [35] Ueberhitzung
+			analogue("Heizkreis", "UeHzsoll"),														// [36] Ueberhiztung Sollwert
+			unknown()																				// [37] ?
+	);
+
+	private static final Decoder DECODER = new Decoder(FIELDS);
+	private static final Decoder DECODER_675 = new Decoder(FIELDS_675);
 
 	public DtaFile9000(ByteBuffer data) {
+		this(data, DtaParser.options());
+	}
+
+	public DtaFile9000(ByteBuffer data, DtaParser.Options options) {
 		super(data);
 
-		subVer = data.getInt(4);
+		setColumns(header(this.data).decode(this.data, options));
+	}
 
-		data.position(8);
+	public static DtaHeader header(ByteBuffer data) {
+		return new DtaHeader(9000, 8, -1, data.getInt(4) < 676 ? DECODER_675 : DECODER);
+	}
 
-		List<Map<String, Value<?>>> list = new ArrayList<>();
-		while (data.remaining()>0){
-			list.add(readEntry());
-		}
-		setDatapoints(list);
+	private static Field analogue(String category, String name) {
+		return new Field(category, name, null);
 	}
 
-	private Map<String, Value<?>> readEntry() {
-		List<DataFieldContainer> fields = new ArrayList<>(List.of(
-				time(data),
-				analogue("Heizkreis", "TVL"),																// [ 0] TVL
-				analogue("Heizkreis", "TRL"),																// [ 1] TRL
-				analogue("Heizkreis", "TWQein"),															// [ 2] TWQein
-				analogue("Heizkreis", "TWQaus"),															// [ 3] TWQaus
-				analogue("Heizkreis", "THG"),																// [ 4] THG
-				analogue("Heizkreis", "TBW"),																// [ 5] TBW
-				analogue("Heizkreis", "TFB1"),															// [ 6] TFB1?
-				analogue("Heizkreis", "TA"),																// [ 7] TA
-				analogue("Heizkreis", "TRLext"),															// [ 8] TRLext
-				analogue("Heizkreis", "TRLsoll"),															// [ 9] TRLsoll
-				unknown(1, data),																					// [10] ?
-				unknown(1, data),																					// [11] ?
-				digital("Digitale Ausgänge", data,																// [12]   StatusA = Status der Ausgaenge
-						bit("HUP", 0),																		//   bit 0:  HUP  = Heizungsumwaelzpumpe
-						bit("ZUP", 1),																		//   bit 1:  ZUP  = Zusatzumwaelzpumpe
-						bit("BUP", 2),																		//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
-						bit("ZW2", 3),																		//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
-						bit("MA1", 4),																		//   bit 4:  MA1  = Mischer 1 auf
-						bit("MZ1", 5),																		//   bit 5:  MZ1  = Mischer 1 zu
-						bit("ZIP", 6),																		//   bit 6:  ZIP  = Zirkulationspumpe
-						bit("VD1", 7),																		//   bit 7:  VD1  = Verdichter 1
-						bit("VD2", 8),																		//   bit 8:  VD2  = Verdichter 2
-						bit("VENT", 9),																		//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
-						bit("AV", 10),																		//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
-						bit("VBS", 11),																		//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
-						bit("ZW1", 12)																		//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
-				),
-				digital("Digitale Eingänge", data,																// [13] StatusE = Status der Eingaenge (die Bits sind invertiert zur Funktion)
-						bit("HD", 0, true),															//   bit 0:  HD_  = Hochdruckpressostat
-						bit("ND", 1, true),															//   bit 1:  ND_  = Niederdruckpressostat
-						bit("MOT", 2, true),															//   bit 2:  MOT_ = Motorschutz
-						bit("ASD", 3, true),															//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
-						bit("EVU", 4, true)															//   bit 4:  EVU  = EVU Sperre
-				),
-
-				unknown(1, data),																					// [14] ?
-				unknown(1, data),																					// [15] ?
-				unknown(1, data),																					// [16] ?
-				unknown(1, data),																					// [17] ?
-				unknown(1, data),																					// [18] ?
-				unknown(1, data),																					// [19] ?
-				unknown(1, data),																					// [20] ?
-				unknown(1, data),																					// [21] ?
-				unknown(1, data),																					// [22] ?
-				analogue("Heizkreis", "Durchfluss"),														// [23] TRLsoll
-				unknown(1, data)																					// [24] ?
-		));
-		if (subVer < 676) {
-			fields.addAll(List.of(
-					unknown(1, data),																				// [25] ?
-					unknown(1, data),																				// [26] ?
-					analogue("Heizkreis", "Asg.VDi"),														// [27] Ansaug Verdichter
-					analogue("Heizkreis", "Asg.VDa"),														// [28] Ansaug Verdampfer
-					analogue("Heizkreis", "VDHz"),														// [29] VD Heizung
-					unknown(1, data),																				// [30] ?
-					unknown(1, data),																				// [31] ?
-					unknown(1, data),																				// [32] ?
-					unknown(1, data),																				// [33] ?
-					unknown(1, data),																				// [34] ?
-					analogue("Heizkreis", "UeHz"),														// [35] Ueberhitzung
-					analogue("Heizkreis", "UeHzsoll"),													// [36] Ueberhiztung Sollwert
-					unknown(1, data)																				// [37] ?
-			));
-		}
+	private static Field digital(String category, DataFieldBit... bits) {
+		return new Field(category, null, bits);
+	}
+
+	private static Field unknown() {
+		return new Field(null, null, null);
+	}
+
+	private static Field[] concat(Field[] fields, Field... more) {
+		Field[] all = Arrays.copyOf(fields, fields.length + more.length);
+		System.arraycopy(more, 0, all, fields.length, more.length);
+		return all;
+	}
 
-		Map<String, Value<?>> map = new HashMap<>();
-		fields.stream().filter(f -> !f.isVoid())
-				.forEach(c -> c.get().forEach(d -> map.put(d.getName(), d.getValue())));
-		return map;
+	private record Field(String category, String name, DataFieldBit[] bits) {
 	}
 
-	private DataFieldContainer digital(String category, ByteBuffer buf, DataFieldBit... bits){
-		FieldType type = FieldType.of(data.get());
-		int val = type.read(data);
-		List<DataField<Boolean>> fields = new ArrayList<>();
-		for (DataFieldBit b : bits) {
-			int value = val >> b.getBit() & 1;
-
-			fields.add(new DataField<>(category, b.getName()) {
-				@Override
-				public Value<Boolean> getValue() {
-					return Value.of(value == (b.isInverted() ? 0 : 1));
+	/**
+	 * Every field is a {@link FieldType} tag followed by one or two value bytes,
+	 * so records can only be found by walking the tags of the preceding ones.
+	 */
+	private static class Decoder implements RecordDecoder {
+
+		private final Field[] fields;
+
+		private Decoder(Field[] fields) {
+			this.fields = fields;
+		}
+
+		@Override
+		public ColumnarData allocate(int capacity) {
+			ColumnarData columns = new ColumnarData(capacity);
+			for (Field f : fields) {
+				if (f.name() != null) {
+					columns.addColumn(new FloatColumn(f.category(), f.name(), capacity));
+				} else if (f.bits() != null) {
+					for (DataFieldBit b : f.bits()) {
+						columns.addColumn(new BitColumn(f.category(), b.getName(), capacity));
+					}
 				}
+			}
+			return columns;
+		}
 
-				@Override
-				public boolean isNumeric() {
-					return false;
+		@Override
+		public int decode(ByteBuffer buf, int offset, ColumnarData out, int row) {
+			out.setTime(row, buf.getInt(offset));
+			offset += 4;
+			int column = 0;
+			for (Field f : fields) {
+				FieldType type = FieldType.of(buf.get(offset));
+				if (f.name() != null) {
+					((FloatColumn) out.getColumn(column++)).set(row, type.read(buf, offset + 1) / 10f);
+				} else if (f.bits() != null) {
+					int value = type.read(buf, offset + 1);
+					for (DataFieldBit b : f.bits()) {
+						((BitColumn) out.getColumn(column++)).set(row, (value >> b.getBit() & 1) == (b.isInverted() ? 0 : 1));
+					}
 				}
-			});
+				offset += 1 + type.getLength();
+			}
+			return offset;
 		}
 
-		return DataFieldContainer.multi(Collections.unmodifiableCollection(fields));
-	}
+		@Override
+		public Decoder project(Set<String> channels) {
+			Field[] projected = new Field[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				if (f.bits() != null) {
+					DataFieldBit[] bits = Arrays.stream(f.bits()).filter(b -> channels.contains(b.getName())).toArray(DataFieldBit[]::new);
+					projected[i] = bits.length == 0 ? unknown() : digital(f.category(), bits);
+				} else {
+					projected[i] = f.name() == null || channels.contains(f.name()) ? f : unknown();
+				}
+			}
+			return new Decoder(projected);
+		}
 
-	private DataFieldContainer unknown(int length, ByteBuffer buf){
-		FieldType type = FieldType.of(data.get());
-		float value = type.read(data);
-		return DataFieldContainer.empty();
-	}
+		@Override
+		public int skip(ByteBuffer buf, int offset, int limit) {
+			offset += 4;
+			for (int i = 0; i < fields.length; i++) {
+				if (offset >= limit) {
+					return -1;
+				}
+				offset += 1 + FieldType.of(buf.get(offset)).getLength();
+			}
+			return offset <= limit ? offset : -1;
+		}
 
-	private DataFieldContainer analogue(String category, String name) {
-		FieldType type = FieldType.of(data.get());
-		float value = type.read(data)/10f;
-		return DataFieldContainer.single(category, name, value);
-	}
+		@Override
+		public int minLength() {
+			return 4 + fields.length * 2;
+		}
+
+		@Override
+		public int maxLength() {
+			return 4 + fields.length * 3;
+		}
 
+		@Override
+		public boolean isThreadSafe() {
+			return true;
+		}
+	}
 
 	@RequiredArgsConstructor
 	@Getter
 	private enum FieldType {
 		POS_1(0, false, 1),
-		POS_2(1, false, 2) {
-			@Override
-			public int read(ByteBuffer buf) {
-				return buf.getShort();
-			}
-		},
-		NEG_1(4, true, 1) {
-			@Override
-			public int read(ByteBuffer buf) {
-				return -super.read(buf);
-			}
-		},
-		NEG_2(5, true, 2) {
-			@Override
-			public int read(ByteBuffer buf) {
-				return -buf.getShort();
-			}
-		};
+		POS_2(1, false, 2),
+		NEG_1(4, true, 1),
+		NEG_2(5, true, 2);
+
 		private final int value;
 		private final boolean negative;
 		private final int length;
 
-		static final Map<Integer, FieldType> types = Arrays.stream(values()).collect(Collectors.toUnmodifiableMap(f -> f.value, f -> f));
+		private static final FieldType[] types = new FieldType[NEG_2.value + 1];
 
-		static FieldType of(byte type) {
-			return types.get((int) type);
+		static {
+			for (FieldType type : values()) {
+				types[type.value] = type;
+			}
+		}
+
+		static FieldType of(byte tag) {
+			FieldType type = tag >= 0 && tag < types.length ? types[tag] : null;
+			if (type == null) {
+				throw new IllegalStateException(String.format("DTA v9000 - unknown field type 0x%02X!", tag));
+			}
+			return type;
 		}
 
-		public int read(ByteBuffer buf) {
-			return buf.get();
+		public int read(ByteBuffer buf, int offset) {
+			int value = length == 1 ? buf.get(offset) : buf.getShort(offset);
+			return negative ? -value : value;
 		}
 	}
 }
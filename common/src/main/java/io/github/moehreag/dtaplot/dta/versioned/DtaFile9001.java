@@ -1,61 +1,67 @@
 package io.github.moehreag.dtaplot.dta.versioned;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.github.moehreag.dtaplot.dta.DataField;
-import io.github.moehreag.dtaplot.dta.DataFieldContainer;
 import io.github.moehreag.dtaplot.dta.DtaFile;
-import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.dta.DtaHeader;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.RecordLayout;
 
 public class DtaFile9001 extends DtaFile {
 
-	private final int subVer;
+	private static final Map<Integer, RecordLayout> layouts = new ConcurrentHashMap<>();
 
 	public DtaFile9001(ByteBuffer data) {
+		this(data, DtaParser.options());
+	}
+
+	public DtaFile9001(ByteBuffer data, DtaParser.Options options) {
 		super(data);
 
-		data.position(4);
-		subVer = data.getInt();
-		short count = data.getShort();
+		setColumns(header(this.data).decode(this.data, options));
+	}
 
-		List<Map<String, Value<?>>> list = new ArrayList<>();
-		for (int i = 0; i < count; i++) {
-			Map<String, Value<?>> map = new HashMap<>();
-			List<DataFieldContainer> fields = readEntry();
-			fields.stream().filter(f -> !f.isVoid())
-					.forEach(c -> c.get()
-							.forEach(d -> map.put(d.getName(), d.getValue())));
-			list.add(map);
-		}
-		setDatapoints(list);
+	public static DtaHeader header(ByteBuffer data) {
+		RecordLayout layout = layouts.computeIfAbsent(data.getInt(4), DtaFile9001::layout);
+		return new DtaHeader(9001, 10, Math.max(0, data.getShort(8)), layout);
 	}
 
-	private List<DataFieldContainer> readEntry() {
-		List<DataFieldContainer> list = new ArrayList<>(List.of(
-				DataField.time(data),
-				analogue("Heizkreis", "TVL", 10.0, 10, data),								// [4 :5 ] TVL
-				analogue("Heizkreis", "TRL", 10.0, 10, data),								// [6 :7 ] TRL
-				analogue("Heizkreis", "TWQein", 10.0, 10, data),							// [8 :9 ] TWQein
-				analogue("Heizkreis", "TWQaus", 10.0, 10, data),							// [10:11] TWQaus
-				analogue("Heizkreis", "THG", 10.0, 10, data),								// [12:13] THG
-				analogue("Heizkreis", "TBW", 10.0, 10, data),								// [14:15] TBW
-				analogue("Heizkreis", "TFB1", 10.0, 10, data),								// [16:17] TFB1
-				analogue("Heizkreis", "TA", 10.0, 10, data),								// [18:19] TA
-				analogue("Heizkreis", "TRLext", 10.0, 10, data),							// [20:21] TRLext
-				analogue("Heizkreis", "TRLsoll", 10.0, 10, data),							// [22:23] TRLsoll
-				analogue("Heizkreis", "TMK1soll", 10.0, 10, data),							// [24:25] TMK1soll
-				DataField.digital("Digitale Eingänge", data,													// [26:27] StatusE = Status der Eingaenge (die Bits sind invertiert zur Funktion)
+	private static RecordLayout layout(int subVer) {
+		int length = 54;
+		if (subVer > 0 && subVer <= 3) {
+			length = 72;
+		}
+		if (subVer == 1 || subVer == 3) {
+			length = 80;
+		}
+		if (subVer == 3) {
+			length = 98;
+		}
+
+		RecordLayout.Builder builder = RecordLayout.builder(length)
+				.time(0)
+				.analogue(4, "Heizkreis", "TVL", 10.0, 10, 10, false)								// [4 :5 ] TVL
+				.analogue(6, "Heizkreis", "TRL", 10.0, 10, 10, false)								// [6 :7 ] TRL
+				.analogue(8, "Heizkreis", "TWQein", 10.0, 10, 10, false)							// [8 :9 ] TWQein
+				.analogue(10, "Heizkreis", "TWQaus", 10.0, 10, 10, false)							// [10:11] TWQaus
+				.analogue(12, "Heizkreis", "THG", 10.0, 10, 10, false)								// [12:13] THG
+				.analogue(14, "Heizkreis", "TBW", 10.0, 10, 10, false)								// [14:15] TBW
+				.analogue(16, "Heizkreis", "TFB1", 10.0, 10, 10, false)								// [16:17] TFB1
+				.analogue(18, "Heizkreis", "TA", 10.0, 10, 10, false)								// [18:19] TA
+				.analogue(20, "Heizkreis", "TRLext", 10.0, 10, 10, false)							// [20:21] TRLext
+				.analogue(22, "Heizkreis", "TRLsoll", 10.0, 10, 10, false)							// [22:23] TRLsoll
+				.analogue(24, "Heizkreis", "TMK1soll", 10.0, 10, 10, false)						// [24:25] TMK1soll
+				.digital(26, "Digitale Eingänge",																	// [26:27] StatusE = Status der Eingaenge (die Bits sind invertiert zur Funktion)
 						DataField.bit("HD", 0),																//   bit 0:  HD_  = Hochdruckpressostat
 						DataField.bit("ND", 1),																//   bit 1:  ND_  = Niederdruckpressostat
 						DataField.bit("MOT", 2),																//   bit 2:  MOT_ = Motorschutz			/* Die Angaben zur Invertierung sind wiedersprüchlich zur Dokumentation! */
 						DataField.bit("ASD", 3),																//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
 						DataField.bit("EVU", 4, true)													//   bit 4:  EVU  = EVU Sperre
-						),
-				DataField.digital("Digitale Ausgänge", data,													// [28:29]   StatusA = Status der Ausgaenge
+				)
+				.digital(28, "Digitale Ausgänge",																	// [28:29]   StatusA = Status der Ausgaenge
 						DataField.bit("HUP", 0),																//   bit 0:  HUP  = Heizungsumwaelzpumpe
 						DataField.bit("ZUP", 1),																//   bit 1:  ZUP  = Zusatzumwaelzpumpe
 						DataField.bit("BUP", 2),																//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
@@ -69,59 +75,36 @@ public class DtaFile9001 extends DtaFile {
 						DataField.bit("AV", 10),																//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
 						DataField.bit("VBS", 11),																//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
 						DataField.bit("ZW1", 12)																//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
-				),
-				DataField.unknown(2, data),																		// [30:31]
-				analogue("Heizkreis", "TSS", 10.0, 10, data),								// [32:33] TSS
-				analogue("Heizkreis", "TSK", 10.0, 10, data),								// [34:35] TSK
-				analogue("Heizkreis", "TFB2", 10.0, 10, data),								// [36:37] TFB2
-				analogue("Heizkreis", "TFB3", 10.0, 10, data),								// [38:39] TFB3
-				analogue("Heizkreis", "TEE", 10.0, 10, data),								// [40:41] TEE
-				DataField.unknown(4, data),																		// [42:45]
-				analogue("Heizkreis", "TMK2soll", 10.0, 10, data),							// [46:47] TMK2soll
-				analogue("Heizkreis", "TMK3soll", 10.0, 10, data),							// [48:49] TMK3soll
-				analogue("Heizkreis", "AI1", 1000.0, 1000, data),							// [50:51] AI
-				analogue("Heizkreis", "AO1", 1000.0, 1000, data)							// [52:53] AO1
-		));
+				)
+																															// [30:31]
+				.analogue(32, "Heizkreis", "TSS", 10.0, 10, 10, false)								// [32:33] TSS
+				.analogue(34, "Heizkreis", "TSK", 10.0, 10, 10, false)								// [34:35] TSK
+				.analogue(36, "Heizkreis", "TFB2", 10.0, 10, 10, false)								// [36:37] TFB2
+				.analogue(38, "Heizkreis", "TFB3", 10.0, 10, 10, false)								// [38:39] TFB3
+				.analogue(40, "Heizkreis", "TEE", 10.0, 10, 10, false)								// [40:41] TEE
+																															// [42:45]
+				.analogue(46, "Heizkreis", "TMK2soll", 10.0, 10, 10, false)						// [46:47] TMK2soll
+				.analogue(48, "Heizkreis", "TMK3soll", 10.0, 10, 10, false)						// [48:49] TMK3soll
+				.analogue(50, "Heizkreis", "AI1", 1000.0, 1000, 10, false)							// [50:51] AI
+				.analogue(52, "Heizkreis", "AO1", 1000.0, 1000, 10, false);						// [52:53] AO1
 
 		if (subVer > 0 && subVer <= 3) {
-			list.addAll(List.of(
-					analogue("Heizkreis", "AO2", 1000.0, 1000, data),						// [54:55] AO2
-					DataField.unknown(2, data),																	// [56:57]
-					analogue("Heizkreis", "Asg.VDi", 10.0, 10, data),						// [58:59] Ansaug Verdichter
-					analogue("Heizkreis", "Asg.VDa", 10.0, 10, data),						// [60:61] Ansaug Verdampfer
-					analogue("Heizkreis", "VDHz", 10.0, 10, data),							// [62:63] VD Heizung
-					DataField.unknown(8, data)																	// [64:71]
-			));
+			builder.analogue(54, "Heizkreis", "AO2", 1000.0, 1000, 10, false)					// [54:55] AO2
+																															// [56:57]
+					.analogue(58, "Heizkreis", "Asg.VDi", 10.0, 10, 10, false)					// [58:59] Ansaug Verdichter
+					.analogue(60, "Heizkreis", "Asg.VDa", 10.0, 10, 10, false)					// [60:61] Ansaug Verdampfer
+					.analogue(62, "Heizkreis", "VDHz", 10.0, 10, 10, false);					// [62:63] VD Heizung
+																															// [64:71]
 		}
 
 		if (subVer == 1 || subVer == 3) {
-			list.addAll(List.of(
-					DataField.unknown(2, data),																	// [72:73]
-					analogue("Heizkreis", "UeHz", 10.0, 10, data),							// [74:75] Ueberhitzung
-					analogue("Heizkreis", "UeHzsoll", 10.0, 10, data),						// [76:77] Ueberhiztung Sollwert
-					DataField.unknown(2, data)																	// [78:79]
-			));
+																															// [72:73]
+			builder.analogue(74, "Heizkreis", "UeHz", 10.0, 10, 10, false)						// [74:75] Ueberhitzung
+					.analogue(76, "Heizkreis", "UeHzsoll", 10.0, 10, 10, false);				// [76:77] Ueberhiztung Sollwert
+																															// [78:79]
 		}
 
-		if (subVer == 3) {
-			list.add(DataField.unknown(18, data));
-		}
-
-		return list;
+		// subVer 3 has 18 additional unknown bytes at the end of each record
+		return builder.build();
 	}
-
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer) {
-		return analogue(category, name, factor, precision, buffer, false);
-	}
-
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer, boolean highbytes) {
-
-		int val = highbytes ? buffer.getInt() : buffer.getShort();
-		double res = (val / factor * precision) / precision;
-
-		Value<Number> value = Value.of(res/10);
-		return DataFieldContainer.single(category, name, value);
-	}
-
-
 }
@@ -1,53 +1,69 @@
 package io.github.moehreag.dtaplot.dta.versioned;
 
 import java.nio.ByteBuffer;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import io.github.moehreag.dtaplot.Value;
 import io.github.moehreag.dtaplot.dta.DataField;
-import io.github.moehreag.dtaplot.dta.DataFieldContainer;
 import io.github.moehreag.dtaplot.dta.DtaFile;
-import lombok.AllArgsConstructor;
+import io.github.moehreag.dtaplot.dta.DtaHeader;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.RecordLayout;
 
 public class DtaFile9003 extends DtaFile {
 
+	private static final int DEFINITIONS = 12;
+	// a controller sends the same definitions with every file, a few are enough for the files of several controllers
+	static final int CACHED_SCHEMAS = 8;
+
+	// keyed by the definition block itself, least recently used first, package-private for the tests
+	static final Map<ByteBuffer, DtaSchema> schemas = Collections.synchronizedMap(
+			new LinkedHashMap<>(CACHED_SCHEMAS, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ByteBuffer, DtaSchema> eldest) {
+					return size() > CACHED_SCHEMAS;
+				}
+			});
+
 	public DtaFile9003(ByteBuffer data) {
+		this(data, DtaParser.options());
+	}
+
+	public DtaFile9003(ByteBuffer data, DtaParser.Options options) {
 		super(data);
 
-		data.position(4);
-		int defSize = data.getInt();
-		short count = data.getShort();
-		short length = data.getShort();
-		List<FieldDef> list = new ArrayList<>();
+		setColumns(header(this.data).decode(this.data, options));
+	}
 
-		readDef(list, defSize);
+	public static DtaHeader header(ByteBuffer data) {
+		int defSize = data.getInt(4);
+		short count = data.getShort(8);
 
-		List<Map<String, Value<?>>> values = new ArrayList<>();
+		DtaSchema schema = schema(data, defSize);
+		// records without any fields are not added
+		return new DtaHeader(9003, schema.end(), schema.fields() == 0 ? 0 : Math.max(0, count), schema.program());
+	}
 
-		for (int i = 0; i < count; i++) {
-			Map<String, Value<?>> map = new HashMap<>();
-			map.put("time", of(data.getInt()));
-			for (FieldDef d : list) {
-				if (d.isEmpty()) {
-					continue;
-				}
-				DataFieldContainer c = d.read();
-				if (!c.isVoid()) {
-					c.get().forEach(val -> map.put(val.getName(), val.getValue()));
-				}
-			}
-			if (map.size() > 1) {
-				values.add(map);
-			}
+	private static DtaSchema schema(ByteBuffer data, int defSize) {
+		int end = DEFINITIONS + defSize - 2 - 2;
+		ByteBuffer definitions = data.duplicate().limit(Math.max(DEFINITIONS, end)).position(DEFINITIONS).slice();
+		DtaSchema schema = schemas.get(definitions);
+		if (schema == null) {
+			schema = readDef(data.duplicate().order(data.order()).position(DEFINITIONS), end);
+			ByteBuffer key = ByteBuffer.allocate(definitions.remaining()).put(definitions.duplicate()).flip();
+			schemas.putIfAbsent(key, schema);
 		}
-		setDatapoints(values);
-
+		return schema;
 	}
 
-	private void readDef(List<FieldDef> list, int defSize) {
-
-		int end = (data.position() + defSize) - 2 - 2;
+	/**
+	 * Compiles the field definitions into a {@link RecordLayout} reading every field at its fixed offset in the record.
+	 */
+	private static DtaSchema readDef(ByteBuffer data, int end) {
+		RecordLayout.Builder builder = RecordLayout.builder(0).time(0);
+		int offset = 4;
+		int fields = 0;
 		String category = "";
 		while (data.position() < end) {
 			byte id = data.get();
@@ -56,19 +72,20 @@ public class DtaFile9003 extends DtaFile {
 			switch (type) {
 				case 0: {
 					// Gruppe / Kategorie
-					category = readString();
-					list.add(new Category(category));
+					category = readString(data);
 					break;
 				}
 				case 1: {
 					// analoges Feld
-					String name = readString();
-					int color = readColor();
+					String name = readString(data);
+					int color = readColor(data);
 					//fcfg->setColor(name, color);
 					short factor = 10;
 					if ((id & 0x80) != 0)
 						factor = data.getShort();
-					list.add(new Analogue(category, name, color, factor));
+					builder.analogue(offset, category, name, factor, 10);
+					offset += 2;
+					fields++;
 					break;
 				}
 				case 2:
@@ -92,27 +109,25 @@ public class DtaFile9003 extends DtaFile {
 					else if ((id & 0x80) != 0)
 						ios = (short) 0xFFFF;
 
-					Digital.Bit[] bits = new Digital.Bit[count];
-					for (int i = 0; i < count; ++i) {
-						String name = readString();
-						int color = readColor();
+					DataField.DataFieldBit[] bits = new DataField.DataFieldBit[Math.max(0, count)];
+					for (int i = 0; i < bits.length; ++i) {
+						String name = readString(data);
+						int color = readColor(data);
 						//fcfg->setColor(name, color);
-						bits[i] = new Digital.Bit(name, color);
+						bits[i] = DataField.bit(name, i, !readBit(ios, i));
 					}
-					list.add(new Digital(category, bits, visibility, factoryOnlyAll, ios));
+					builder.digital(offset, category, bits);
+					offset += 2;
+					fields += bits.length;
 					break;
 				}
 				case 3: {
-					// ENUM Feld
-					String name = readString();
+					// ENUM Feld, belegt keinen Platz im Datensatz
+					String name = readString(data);
 					byte count = data.get();
-
-					String[] values = new String[count];
 					for (int i = 0; i < count; ++i) {
-						String itemText = readString();
-						values[i] = itemText;
+						readString(data);
 					}
-					list.add(new Enum(category, name, values));
 					break;
 				}
 				// LCOV_EXCL_START
@@ -120,134 +135,34 @@ public class DtaFile9003 extends DtaFile {
 					throw new IllegalStateException(String.format("DTA v9003 - unknown field type 0x%08X!", type));
 				}
 			}
-
-		}
-	}
-
-	private String readString() {
-		StringBuilder builder = new StringBuilder();
-		while (true) {
-			char b = (char) data.get();
-			if (b == 0) {
-				break;
-			}
-			builder.append(b);
 		}
-		//data.position(data.position()+1);
-		return builder.toString().replace("Text_", "");
-	}
-
-	private int readColor() {
-		return 0xFF000000 | (data.get() << 16) | (data.get() << 8) | data.get();
-	}
-
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer) {
-		return analogue(category, name, factor, precision, buffer, false);
-	}
-
-	private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer, boolean highbytes) {
-
-		int val = highbytes ? buffer.getInt() : buffer.getShort();
-		double res = (val / factor * precision) / precision;
-
-		Value<Number> value = Value.of(res);
-		return DataFieldContainer.single(category, name, value);
-	}
 
-	private interface FieldDef {
-
-		DataFieldContainer read();
-
-		default boolean isEmpty() {
-			return false;
-		}
+		return new DtaSchema(data.position(), fields, builder.length(offset).build());
 	}
 
-	@AllArgsConstructor
-	private static class Category implements FieldDef {
-
-		private final String name;
-
-		@Override
-		public DataFieldContainer read() {
-			return DataFieldContainer.empty();
-		}
-
-		@Override
-		public boolean isEmpty() {
-			return true;
+	private static String readString(ByteBuffer data) {
+		int start = data.position();
+		int end = start;
+		while (data.get(end) != 0) {
+			end++;
 		}
-	}
-
-	@AllArgsConstructor
-	private class Analogue implements FieldDef {
-
-		private final String category;
-		private final String name;
-		private final int color;
-		private final short factor;
-
-		@Override
-		public DataFieldContainer read() {
-			return analogue(category, name, factor, 10, data);
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) data.get(start + i);
 		}
+		data.position(end + 1);
+		String s = new String(chars);
+		return s.contains("Text_") ? s.replace("Text_", "") : s;
 	}
 
-	@AllArgsConstructor
-	private class Digital implements FieldDef {
-
-		private final String category;
-		private final Bit[] bits;
-
-		private final short visibility;
-		private final short factoryOnlyAll;
-		private final short ios;
-
-		@Override
-		public DataFieldContainer read() {
-			DataField.DataFieldBit[] bits = new DataField.DataFieldBit[this.bits.length];
-			for (int i = 0; i < bits.length; i++) {
-				bits[i] = this.bits[i].read(i, !readBit(ios, i));
-			}
-			return DataField.digital(category, data, bits);
-		}
-
-		@AllArgsConstructor
-		public static class Bit {
-			private final String name;
-			private final int color;
-
-			public DataField.DataFieldBit read(int bit, boolean inverted) {
-				return DataField.bit(name, bit, inverted);
-			}
-		}
+	private static int readColor(ByteBuffer data) {
+		return 0xFF000000 | (data.get() << 16) | (data.get() << 8) | data.get();
 	}
 
-	@AllArgsConstructor
-	private static class Enum implements FieldDef {
-
-		private final String category;
-		private final String name;
-		private final String[] values;
-
-		@Override
-		public DataFieldContainer read() {
-			return DataFieldContainer.multi(Arrays.stream(values).map(s -> new DataField<String>(category, name) {
-				@Override
-				public Value<String> getValue() {
-					return of(s);
-				}
-
-				@Override
-				public boolean isNumeric() {
-					return false;
-				}
-			}).collect(Collectors.toCollection(ArrayList::new)));
-		}
-
-		@Override
-		public boolean isEmpty() {
-			return true;
-		}
+	/**
+	 * @param end    offset of the first record
+	 * @param fields number of channels, a schema without any has no records
+	 */
+	record DtaSchema(int end, int fields, RecordLayout program) {
 	}
 }
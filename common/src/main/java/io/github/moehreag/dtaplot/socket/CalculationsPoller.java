@@ -0,0 +1,309 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.github.moehreag.dtaplot.Constants;
+import io.github.moehreag.dtaplot.socket.tcp.Calculations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the calculations of any number of controllers from a single thread.
+ * Every connection is non-blocking and driven by one {@link Selector}: a controller waits for its next poll,
+ * sends the request and then reads the response header and payload as far as they have arrived.
+ * <p>
+ * A failed connection is logged, closed and opened again at the next poll.
+ */
+public class CalculationsPoller implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CalculationsPoller.class.getSimpleName());
+
+	// cmd, stat and length
+	private static final int HEADER = 12;
+	private static final long CONNECT_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(Constants.CONNECT_TIMEOUT);
+	private static final long READ_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(Constants.READ_TIMEOUT);
+
+	private final long interval;
+	private final BiConsumer<InetSocketAddress, Calculations> callback;
+	private final Selector selector;
+	private final Thread thread;
+	// changes from other threads, run by the polling thread
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Map<InetSocketAddress, Controller> controllers = new HashMap<>();
+	private volatile boolean running = true;
+
+	private CalculationsPoller(Duration interval, BiConsumer<InetSocketAddress, Calculations> callback) throws IOException {
+		this.interval = interval.toNanos();
+		this.callback = callback;
+		selector = Selector.open();
+		thread = new Thread(this::run, "CalculationsPoller");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * @param callback receives the calculations of every poll. It is called on the polling thread, so it should return quickly.
+	 */
+	public static CalculationsPoller start(Duration interval, BiConsumer<InetSocketAddress, Calculations> callback) {
+		try {
+			CalculationsPoller poller = new CalculationsPoller(interval, callback);
+			poller.thread.start();
+			return poller;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Starts polling a controller, right away and then every interval.
+	 */
+	public void add(InetSocketAddress address) {
+		submit(() -> controllers.computeIfAbsent(address, Controller::new));
+	}
+
+	public void remove(InetSocketAddress address) {
+		submit(() -> {
+			Controller controller = controllers.remove(address);
+			if (controller != null) {
+				controller.disconnect();
+			}
+		});
+	}
+
+	private void submit(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
+				}
+				long now = System.nanoTime();
+				long next = Long.MAX_VALUE;
+				for (Controller controller : controllers.values()) {
+					next = Math.min(next, controller.tick(now) - now);
+				}
+				// 0 waits until woken up
+				selector.select(next == Long.MAX_VALUE ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(next) + 1));
+				for (SelectionKey key : selector.selectedKeys()) {
+					((Controller) key.attachment()).handle();
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException e) {
+			LOGGER.error("Polling failed: ", e);
+		} finally {
+			controllers.values().forEach(Controller::disconnect);
+			try {
+				selector.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close the selector", e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		selector.wakeup();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private enum State {
+		// waiting for the next poll, with or without a connection
+		IDLE,
+		CONNECTING,
+		WRITING,
+		READING_HEADER,
+		READING_PAYLOAD
+	}
+
+	private class Controller {
+		private final InetSocketAddress address;
+		private final ByteBuffer request = ByteBuffer.allocate(8).putInt(Constants.CALCULATIONS_READ).putInt(0);
+		private final ByteBuffer header = ByteBuffer.allocate(HEADER);
+		private ByteBuffer payload = ByteBuffer.allocate(0);
+		private SocketChannel channel;
+		private SelectionKey key;
+		private State state = State.IDLE;
+		private long due = System.nanoTime();
+		// of the pending connect or response
+		private long deadline;
+		// only the first of consecutive failures is worth a warning
+		private boolean failing;
+
+		private Controller(InetSocketAddress address) {
+			this.address = address;
+		}
+
+		/**
+		 * Starts a poll that is due and gives up on a controller that takes too long.
+		 *
+		 * @return when the controller wants to be ticked again
+		 */
+		private long tick(long now) {
+			if (state == State.IDLE) {
+				if (now - due >= 0) {
+					// polls missed while busy are skipped rather than caught up on
+					due += interval;
+					if (due - now < 0) {
+						due = now + interval;
+					}
+					try {
+						poll(now);
+					} catch (IOException e) {
+						fail(e);
+					}
+				}
+				if (state == State.IDLE) {
+					return due;
+				}
+			} else if (now - deadline >= 0) {
+				fail(new SocketTimeoutException("No response from " + address.getHostString() + " within "
+						+ TimeUnit.NANOSECONDS.toMillis(state == State.CONNECTING ? CONNECT_TIMEOUT : READ_TIMEOUT) + " ms"));
+				return due;
+			}
+			return deadline;
+		}
+
+		private void poll(long now) throws IOException {
+			if (channel == null) {
+				channel = SocketChannel.open();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+				key = channel.register(selector, 0, this);
+				if (!channel.connect(address)) {
+					state = State.CONNECTING;
+					deadline = now + CONNECT_TIMEOUT;
+					key.interestOps(SelectionKey.OP_CONNECT);
+					return;
+				}
+			}
+			send(now);
+		}
+
+		private void send(long now) throws IOException {
+			request.clear();
+			state = State.WRITING;
+			deadline = now + READ_TIMEOUT;
+			write();
+		}
+
+		private void handle() {
+			try {
+				switch (state) {
+					case CONNECTING -> {
+						if (channel.finishConnect()) {
+							send(System.nanoTime());
+						}
+					}
+					case WRITING -> write();
+					case READING_HEADER, READING_PAYLOAD -> read();
+				}
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+
+		private void write() throws IOException {
+			channel.write(request);
+			if (request.hasRemaining()) {
+				key.interestOps(SelectionKey.OP_WRITE);
+				return;
+			}
+			header.clear();
+			state = State.READING_HEADER;
+			key.interestOps(SelectionKey.OP_READ);
+		}
+
+		// reads what has arrived, the selector calls again for the rest
+		private void read() throws IOException {
+			while (true) {
+				ByteBuffer buf = state == State.READING_HEADER ? header : payload;
+				if (channel.read(buf) == -1) {
+					throw new EOFException("Connection closed by " + address.getHostString());
+				}
+				if (buf.hasRemaining()) {
+					return;
+				}
+				if (state == State.READING_HEADER) {
+					header.flip();
+					int cmd = header.getInt();
+					header.getInt();
+					int length = TcpSocket.checkLength(header.getInt());
+					if (cmd != Constants.CALCULATIONS_READ) {
+						throw new IOException("Unexpected response " + cmd + " from " + address.getHostString());
+					}
+					if (payload.capacity() < length * 4) {
+						payload = ByteBuffer.allocate(length * 4);
+					}
+					payload.clear().limit(length * 4);
+					state = State.READING_PAYLOAD;
+				} else {
+					complete();
+					return;
+				}
+			}
+		}
+
+		private void complete() {
+			payload.flip();
+			int[] data = new int[payload.remaining() / 4];
+			payload.asIntBuffer().get(data);
+			state = State.IDLE;
+			key.interestOps(0);
+			failing = false;
+
+			Calculations calculations = new Calculations();
+			calculations.read(data);
+			try {
+				callback.accept(address, calculations);
+			} catch (RuntimeException e) {
+				LOGGER.error("Callback failed: ", e);
+			}
+		}
+
+		private void fail(IOException e) {
+			if (!failing) {
+				LOGGER.warn("Failed to poll " + address.getHostString() + ": " + e);
+			}
+			failing = true;
+			disconnect();
+		}
+
+		private void disconnect() {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					LOGGER.warn("Failed to close the connection to " + address.getHostString(), e);
+				}
+			}
+			channel = null;
+			key = null;
+			state = State.IDLE;
+		}
+	}
+}
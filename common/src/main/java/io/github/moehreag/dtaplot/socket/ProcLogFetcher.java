@@ -0,0 +1,202 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.github.moehreag.dtaplot.Constants;
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.dta.DtaDecoder;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the proc log ({@code /NewProc}) of heat pumps and decodes it while it is still arriving.
+ * All downloads share one client, and its callbacks run on virtual threads where the runtime has them.
+ */
+public class ProcLogFetcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProcLogFetcher.class.getSimpleName());
+
+	// decoded records are handed out at most this often, so listeners do not redraw for every network packet
+	private static final long FLUSH_INTERVAL = 250;
+
+	private static final HttpClient client = HttpClient.newBuilder()
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.connectTimeout(Duration.ofMillis(Constants.CONNECT_TIMEOUT))
+			.executor(executor())
+			.build();
+
+	private static Executor executor() {
+		try {
+			// Java 21+, looked up reflectively as this module still targets 17
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			LOGGER.debug("Virtual threads are not available, using platform threads");
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "ProcLogFetcher");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	public static URI getUri(InetSocketAddress address) {
+		return URI.create("http://" + address.getHostString() + "/NewProc");
+	}
+
+	/**
+	 * Fetches the proc logs of several heat pumps at once, a failing one does not affect the others.
+	 *
+	 * @param records receives the decoded records of every heat pump, see {@link #fetch(URI, Consumer)}
+	 * @return the download of every address, in the order given
+	 */
+	public static Map<InetSocketAddress, CompletableFuture<ColumnarData>> fetchAll(Collection<InetSocketAddress> addresses,
+																				   BiConsumer<InetSocketAddress, List<Map<String, Value<?>>>> records) {
+		Map<InetSocketAddress, CompletableFuture<ColumnarData>> results = new LinkedHashMap<>();
+		for (InetSocketAddress address : addresses) {
+			results.computeIfAbsent(address, a -> fetch(getUri(a), r -> records.accept(a, r)));
+		}
+		return results;
+	}
+
+	public static Map<InetSocketAddress, CompletableFuture<ColumnarData>> fetchAll(Collection<InetSocketAddress> addresses) {
+		return fetchAll(addresses, (address, records) -> {
+		});
+	}
+
+	/**
+	 * @param records receives the decoded records in order, in batches, on the thread delivering the response
+	 * @return the whole file once the download is complete, fails if the heat pump does not respond
+	 * within {@link Constants#READ_TIMEOUT} or stops sending for as long
+	 */
+	public static CompletableFuture<ColumnarData> fetch(URI uri, Consumer<List<Map<String, Value<?>>>> records) {
+		return fetch(uri, DtaParser.options(), records);
+	}
+
+	/**
+	 * @param options the channels and time range to decode, records outside of it are skipped while downloading
+	 */
+	public static CompletableFuture<ColumnarData> fetch(URI uri, DtaParser.Options options, Consumer<List<Map<String, Value<?>>>> records) {
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.timeout(Duration.ofMillis(Constants.READ_TIMEOUT))
+				.GET().build();
+		return client.sendAsync(request, info -> {
+			if (info.statusCode() != 200) {
+				throw new RuntimeException("Unexpected response for " + uri + ": " + info.statusCode());
+			}
+			return new DecodingSubscriber(new DtaDecoder(options), records);
+		}).thenApply(HttpResponse::body);
+	}
+
+	private static class DecodingSubscriber implements HttpResponse.BodySubscriber<ColumnarData> {
+
+		private final CompletableFuture<ColumnarData> result = new CompletableFuture<>();
+		private final DtaDecoder decoder;
+		private final Consumer<List<Map<String, Value<?>>>> records;
+		private Flow.Subscription subscription;
+		private int flushed;
+		private long lastFlush = System.currentTimeMillis();
+		private volatile long lastData = lastFlush;
+
+		private DecodingSubscriber(DtaDecoder decoder, Consumer<List<Map<String, Value<?>>>> records) {
+			this.decoder = decoder;
+			this.records = records;
+		}
+
+		@Override
+		public CompletionStage<ColumnarData> getBody() {
+			return result;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			watch(Constants.READ_TIMEOUT);
+			subscription.request(1);
+		}
+
+		private void watch(long delay) {
+			CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				long idle = System.currentTimeMillis() - lastData;
+				if (idle < Constants.READ_TIMEOUT) {
+					watch(Constants.READ_TIMEOUT - idle);
+					return;
+				}
+				result.completeExceptionally(new HttpTimeoutException("No data received for " + idle + " ms"));
+				subscription.cancel();
+			});
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> item) {
+			lastData = System.currentTimeMillis();
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				for (ByteBuffer b : item) {
+					decoder.feed(b);
+				}
+				if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+					flush();
+				}
+			} catch (RuntimeException e) {
+				subscription.cancel();
+				result.completeExceptionally(e);
+				return;
+			}
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			result.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			if (result.isDone()) {
+				return;
+			}
+			if (decoder.getColumns() == null) {
+				result.completeExceptionally(new IllegalStateException("Truncated DTA header"));
+				return;
+			}
+			try {
+				flush();
+				result.complete(decoder.getColumns());
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+
+		private void flush() {
+			lastFlush = System.currentTimeMillis();
+			ColumnarData columns = decoder.getColumns();
+			if (columns == null || columns.getSize() == flushed) {
+				return;
+			}
+			List<Map<String, Value<?>>> batch = new ArrayList<>(columns.getSize() - flushed);
+			for (int i = flushed; i < columns.getSize(); i++) {
+				batch.add(columns.getRow(i));
+			}
+			flushed = columns.getSize();
+			records.accept(batch);
+		}
+	}
+}
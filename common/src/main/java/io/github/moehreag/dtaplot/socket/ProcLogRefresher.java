@@ -0,0 +1,50 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+
+/**
+ * Remembers the newest record of every heat pump, so repeated fetches only decode what was added since.
+ */
+public class ProcLogRefresher {
+
+	private final Map<URI, Integer> newest = new ConcurrentHashMap<>();
+
+	/**
+	 * Fetches the records of the heat pump that are newer than the ones fetched before.
+	 *
+	 * @see ProcLogFetcher#fetch(URI, Consumer)
+	 */
+	public CompletableFuture<ColumnarData> refresh(URI uri, Consumer<List<Map<String, Value<?>>>> records) {
+		Integer last = newest.get(uri);
+		DtaParser.Options options = DtaParser.options();
+		if (last != null) {
+			options.range(last + 1L, Long.MAX_VALUE);
+		}
+		return ProcLogFetcher.fetch(uri, options, records).thenApply(columns -> {
+			int max = Integer.MIN_VALUE;
+			for (int i = 0; i < columns.getSize(); i++) {
+				max = Math.max(max, columns.getTime(i));
+			}
+			if (columns.getSize() != 0) {
+				newest.merge(uri, max, Math::max);
+			}
+			return columns;
+		});
+	}
+
+	/**
+	 * Forgets all heat pumps, the next refresh of each fetches everything again.
+	 */
+	public void clear() {
+		newest.clear();
+	}
+}
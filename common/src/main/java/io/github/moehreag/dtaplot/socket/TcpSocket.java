@@ -1,13 +1,19 @@
 package io.github.moehreag.dtaplot.socket;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import io.github.moehreag.dtaplot.Constants;
 import io.github.moehreag.dtaplot.Value;
@@ -18,109 +24,278 @@ import io.github.moehreag.dtaplot.socket.tcp.Visibilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Connection to the TCP interface of one heat pump controller. It connects on the first request,
+ * and after a failed one the next request connects again.
+ * <p>
+ * {@link #of(InetSocketAddress)} keeps one connection per controller open, e.g. to {@link #poll(Duration) poll}
+ * its calculations, while {@link #readAll(InetSocketAddress)} and {@link #write(InetSocketAddress)} use it as well,
+ * but close it after the call unless someone else still uses it.
+ * The connection is shared by everyone who got it from {@link #of(InetSocketAddress)}, each of them closes it once,
+ * and it is only closed when the last of them does.
+ */
 public class TcpSocket implements AutoCloseable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger("TcpSocket");
 
-	private final ByteBuffer READ_BUFFER = ByteBuffer.allocateDirect(4);
-	private final ByteBuffer WRITE_BUFFER = ByteBuffer.allocateDirect(8);
+	// more ints than any of the vectors has by far, a larger length means the stream is out of step
+	private static final int MAX_LENGTH = 1 << 16;
+
+	// the controllers whose parameters write() can write back after their connection was closed
+	private static final int REMEMBERED = 16;
+
+	// package-private for the tests
+	static final Map<InetSocketAddress, TcpSocket> CONNECTIONS = new ConcurrentHashMap<>();
+	// the parameters read last per controller, which write() writes back, least recently used first
+	private static final Map<InetSocketAddress, Parameters> PARAMETERS = Collections.synchronizedMap(
+			new LinkedHashMap<>(REMEMBERED, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, Parameters> eldest) {
+					return size() > REMEMBERED;
+				}
+			});
+
+	private final InetSocketAddress address;
+	// the callers of of() that have not closed it yet, guarded by CONNECTIONS
+	private int references;
+
+	// grows to the largest payload read
+	private ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+	// the longest request is a parameter write with command, index and value
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(12);
 
 	private SocketChannel socket;
+	// the channel is non-blocking and waits for data here, so that a silent heat pump runs into a timeout
+	private Selector selector;
+	private SelectionKey key;
 
-	private static final TcpSocket INSTANCE = new TcpSocket();
+	private final List<Consumer<Calculations>> subscribers = new CopyOnWriteArrayList<>();
+	private ScheduledExecutorService poller;
 
-	private Parameters parameters;
+	private TcpSocket(InetSocketAddress address) {
+		this.address = address;
+	}
 
-	private TcpSocket() {
+	/**
+	 * @return the connection to the controller, shared by all callers and kept open until each of them has closed it
+	 */
+	public static TcpSocket of(InetSocketAddress address) {
+		return CONNECTIONS.compute(address, (a, socket) -> {
+			if (socket == null) {
+				socket = new TcpSocket(a);
+			}
+			socket.references++;
+			return socket;
+		});
 	}
 
-	public void connect(InetSocketAddress address){
-		LOGGER.info("Connecting to: {}:{}", address.getHostString(), address.getPort());
+	public synchronized void connect() {
 		try {
-			socket = SocketChannel.open(address);
+			ensureConnected();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private void ensureConnected() throws IOException {
+		if (socket != null) {
+			return;
+		}
+		LOGGER.info("Connecting to: {}:{}", address.getHostString(), address.getPort());
+		socket = SocketChannel.open();
+		try {
+			// connections are kept open while polling, keepalive notices a controller that went away meanwhile
+			socket.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+			socket.socket().connect(address, Constants.CONNECT_TIMEOUT);
+			socket.configureBlocking(false);
+			selector = Selector.open();
+			key = socket.register(selector, 0);
+		} catch (IOException e) {
+			disconnect();
+			throw e;
+		}
+	}
+
+	// after a failure the stream may be out of step, so the next request starts over with a new connection
+	private void disconnect() {
+		try {
+			if (selector != null) {
+				selector.close();
+			}
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close the connection to " + address, e);
+		}
+		selector = null;
+		socket = null;
+	}
+
 	public static Collection<Map<String, Value<?>>> readAll(InetSocketAddress address) {
-		try (TcpSocket socket = INSTANCE) {
-			socket.connect(address);
-			Parameters p = socket.readParameters();
-			Collection<Map<String, Value<?>>> data = new ArrayList<>(p.getValues());
-			Calculations c = socket.readCalculations();
-			data.addAll(c.getValues());
-			Visibilities v = socket.readVisibilities();
-			data.addAll(v.getValues());
-			return data;
+		try (TcpSocket socket = of(address)) {
+			return socket.readAll();
+		}
+	}
+
+	public synchronized Collection<Map<String, Value<?>>> readAll() {
+		Parameters p = readParameters();
+		Collection<Map<String, Value<?>>> data = new ArrayList<>(p.getValues());
+		Calculations c = readCalculations();
+		data.addAll(c.getValues());
+		Visibilities v = readVisibilities();
+		data.addAll(v.getValues());
+		return data;
+	}
+
+	public static Parameters write(InetSocketAddress address) {
+		try (TcpSocket socket = of(address)) {
+			return socket.write();
 		}
 	}
 
-	public static Parameters write(InetSocketAddress address){
-		try (TcpSocket socket = INSTANCE) {
-			socket.connect(address);
-			LOGGER.info("Writing all values to the heatpump!");
-			return socket.writeParameters(socket.parameters);
+	/**
+	 * Writes the parameters read last from this controller back to it.
+	 *
+	 * @throws IllegalStateException if none have been read yet
+	 */
+	public synchronized Parameters write() {
+		Parameters parameters = PARAMETERS.get(address);
+		if (parameters == null) {
+			throw new IllegalStateException("No parameters read from " + address.getHostString() + " to write back");
 		}
+		LOGGER.info("Writing all values to the heatpump!");
+		return writeParameters(parameters);
 	}
 
-	public Parameters readParameters() {
+	public synchronized Parameters readParameters() {
 		Parameters parameters = new Parameters();
 		try {
-			writeInts(socket, Constants.PARAMETERS_READ, 0);
-			int cmd = readInt(socket);
-			int length = readInt(socket);
+			ensureConnected();
+			writeInts(Constants.PARAMETERS_READ, 0);
+			int[] header = readInts(2);
+			int cmd = header[0];
+			int length = checkLength(header[1]);
 			LOGGER.info("CMD: " + cmd + " Length: " + length);
-			int[] data = read(socket, length);
+			int[] data = readInts(length);
 			parameters.read(data);
+			PARAMETERS.put(address, parameters);
 		} catch (IOException e) {
 			LOGGER.error("Failed to read: ", e);
+			disconnect();
 		}
 
-		return this.parameters = parameters;
+		return parameters;
 	}
 
-	public Visibilities readVisibilities() {
+	public synchronized Visibilities readVisibilities() {
 		Visibilities visibility = new Visibilities();
 		try {
-			writeInts(socket, Constants.VISIBILITIES_READ, 0);
-			int cmd = readInt(socket);
-			int length = readInt(socket);
+			ensureConnected();
+			writeInts(Constants.VISIBILITIES_READ, 0);
+			int[] header = readInts(2);
+			int cmd = header[0];
+			int length = checkLength(header[1]);
 			LOGGER.info("CMD: " + cmd + " Length: " + length);
-			int[] data = readChars(socket, length);
+			int[] data = readChars(length);
 			visibility.read(data);
 		} catch (IOException e) {
 			LOGGER.error("Failed to read: ", e);
+			disconnect();
 		}
 		return visibility;
 	}
 
-	public Calculations readCalculations() {
-		Calculations calculations = new Calculations();
+	public synchronized Calculations readCalculations() {
 		try {
-			writeInts(socket, Constants.CALCULATIONS_READ, 0);
-			int cmd = readInt(socket);
-			int stat = readInt(socket);
-			int length = readInt(socket);
-			LOGGER.info("CMD: " + cmd + " Stat: " + stat + " Length: " + length);
-			int[] data = read(socket, length);
-			calculations.read(data);
+			return requestCalculations();
 		} catch (IOException e) {
 			LOGGER.error("Failed to read: ", e);
+			disconnect();
+			return new Calculations();
 		}
+	}
+
+	private Calculations requestCalculations() throws IOException {
+		Calculations calculations = new Calculations();
+		ensureConnected();
+		writeInts(Constants.CALCULATIONS_READ, 0);
+		int[] header = readInts(3);
+		int cmd = header[0];
+		int stat = header[1];
+		int length = checkLength(header[2]);
+		// once a second while polling
+		LOGGER.debug("CMD: " + cmd + " Stat: " + stat + " Length: " + length);
+		int[] data = readInts(length);
+		calculations.read(data);
 		return calculations;
 	}
 
-	public Parameters writeParameters(Parameters params) {
+	/**
+	 * Requests the calculations every {@code interval} on a background thread and hands each of them to the subscribers,
+	 * replacing an earlier schedule. A failed request is logged and the next one connects again.
+	 */
+	public synchronized void poll(Duration interval) {
+		stopPolling();
+		poller = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "TcpSocket " + address.getHostString());
+			t.setDaemon(true);
+			return t;
+		});
+		poller.scheduleAtFixedRate(this::pollCalculations, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopPolling() {
+		if (poller != null) {
+			poller.shutdown();
+			poller = null;
+		}
+	}
+
+	private void pollCalculations() {
+		Calculations calculations;
+		synchronized (this) {
+			try {
+				calculations = requestCalculations();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to poll " + address.getHostString() + ": " + e);
+				disconnect();
+				return;
+			}
+		}
+		for (Consumer<Calculations> subscriber : subscribers) {
+			try {
+				subscriber.accept(calculations);
+			} catch (RuntimeException e) {
+				// an exception would cancel the schedule
+				LOGGER.error("Subscriber failed: ", e);
+			}
+		}
+	}
+
+	public void subscribe(Consumer<Calculations> subscriber) {
+		subscribers.add(subscriber);
+	}
+
+	public void unsubscribe(Consumer<Calculations> subscriber) {
+		subscribers.remove(subscriber);
+	}
+
+	public synchronized Parameters writeParameters(Parameters params) {
+		connect();
 		for (Map<String, Value<?>> map : params.getValues()) {
 			for (int i = 0; i < map.size(); i++) {
 				Datatype type = params.get(i);
 				Value<?> val = map.get(type.getName());
 
 				try {
-					writeInts(socket, Constants.PARAMETERS_WRITE, i, type.write(val));
+					writeInts(Constants.PARAMETERS_WRITE, i, type.write(val));
+					// the controller acknowledges each write with the command and the index
+					readInts(2);
 				} catch (IOException e) {
-					LOGGER.error("Failed to write parameter: " + type.getName() + " with value: " + val.get());
+					// the stream is out of step, the remaining parameters would not arrive either
+					disconnect();
+					throw new RuntimeException("Failed to write parameter: " + type.getName() + " with value: " + val.get(), e);
 				}
 			}
 		}
@@ -133,28 +308,51 @@ public class TcpSocket implements AutoCloseable {
 		return readParameters();
 	}
 
-	private int[] read(SocketChannel c, int length) throws IOException {
-		int[] data = new int[length];
-
-		for (int i = 0; i < length; i++) {
-			data[i] = readInt(c);
+	static int checkLength(int length) throws IOException {
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new IOException("Invalid length: " + length);
 		}
+		return length;
+	}
 
+	private int[] readInts(int length) throws IOException {
+		int[] data = new int[length];
+		fill(length * 4).asIntBuffer().get(data);
 		return data;
 	}
 
-	private int[] readChars(SocketChannel c, int length) throws IOException {
+	private int[] readChars(int length) throws IOException {
+		ByteBuffer buf = fill(length);
 		int[] data = new int[length];
-
 		for (int i = 0; i < length; i++) {
-			data[i] = readChar(c);
+			data[i] = (char) buf.get();
 		}
-
 		return data;
 	}
 
-	private void writeInts(SocketChannel out, int... values) throws IOException {
-		ByteBuffer buf = WRITE_BUFFER.clear();
+	/**
+	 * Reads exactly {@code bytes} bytes, however many reads the heat pump splits them into.
+	 *
+	 * @return the read buffer holding them
+	 */
+	private ByteBuffer fill(int bytes) throws IOException {
+		if (readBuffer.capacity() < bytes) {
+			readBuffer = ByteBuffer.allocateDirect(Math.max(bytes, readBuffer.capacity() * 2));
+		}
+		ByteBuffer buf = readBuffer.clear().limit(bytes);
+		while (buf.hasRemaining()) {
+			int read = socket.read(buf);
+			if (read == -1) {
+				throw new EOFException("Connection closed with " + buf.remaining() + " of " + bytes + " bytes missing");
+			} else if (read == 0) {
+				await(SelectionKey.OP_READ);
+			}
+		}
+		return buf.flip().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	private void writeInts(int... values) throws IOException {
+		ByteBuffer buf = writeBuffer.clear();
 		if (buf.remaining() < values.length * 4) {
 			throw new IllegalStateException("Write Buffer Overflow! " + buf.remaining() + " < " + (values.length * 4));
 		}
@@ -163,34 +361,44 @@ public class TcpSocket implements AutoCloseable {
 			buf.putInt(i);
 		}
 		buf.flip();
-		out.write(buf);
-	}
-
-	private int readInt(SocketChannel in) throws IOException {
-		ByteBuffer buf = READ_BUFFER.clear();
-		buf.limit(4);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		in.read(buf);
-		buf.flip();
-		return buf.getInt();
+		while (buf.hasRemaining()) {
+			if (socket.write(buf) == 0) {
+				await(SelectionKey.OP_WRITE);
+			}
+		}
 	}
 
-	private char readChar(SocketChannel in) throws IOException {
-		ByteBuffer buf = READ_BUFFER.clear();
-		buf.limit(1);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		in.read(buf);
-		buf.flip();
-		return (char) buf.get();
+	private void await(int op) throws IOException {
+		key.interestOps(op);
+		try {
+			if (selector.select(Constants.READ_TIMEOUT) == 0) {
+				throw new SocketTimeoutException("No response within " + Constants.READ_TIMEOUT + " ms");
+			}
+		} finally {
+			selector.selectedKeys().clear();
+			key.interestOps(0);
+		}
 	}
 
+	/**
+	 * Gives up the connection got from {@link #of(InetSocketAddress)}. Once every caller has closed it,
+	 * it stops polling, disconnects and is no longer shared. Subscribers stay subscribed until they unsubscribe.
+	 */
 	@Override
-	public void close() {
-		LOGGER.info("Closing socket..");
-		try {
-			socket.close();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	public synchronized void close() {
+		boolean[] shared = {false};
+		CONNECTIONS.computeIfPresent(address, (a, socket) -> {
+			if (socket != this) {
+				return socket;
+			}
+			shared[0] = --references > 0;
+			return shared[0] ? this : null;
+		});
+		if (shared[0]) {
+			return;
 		}
+		LOGGER.info("Closing socket..");
+		stopPolling();
+		disconnect();
 	}
 }
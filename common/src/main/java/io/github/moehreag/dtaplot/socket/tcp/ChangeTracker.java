@@ -0,0 +1,27 @@
+package io.github.moehreag.dtaplot.socket.tcp;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Subscribes to polled vectors and hands on only what changed since the previous one,
+ * so that a live view updates just the rows that moved. The first vector reports all of its values.
+ */
+public class ChangeTracker<T extends DataVector> implements Consumer<T> {
+
+	private final Consumer<List<DataVector.Change>> consumer;
+	private T previous;
+
+	public ChangeTracker(Consumer<List<DataVector.Change>> consumer) {
+		this.consumer = consumer;
+	}
+
+	@Override
+	public synchronized void accept(T vector) {
+		List<DataVector.Change> changes = vector.changes(previous);
+		previous = vector;
+		if (!changes.isEmpty()) {
+			consumer.accept(changes);
+		}
+	}
+}
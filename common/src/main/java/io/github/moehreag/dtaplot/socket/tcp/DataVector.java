@@ -12,6 +12,7 @@ import java.util.*;
 
 import io.github.moehreag.dtaplot.Translations;
 import io.github.moehreag.dtaplot.Value;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 @SuppressWarnings("SameParameterValue")
@@ -20,16 +21,20 @@ public abstract class DataVector {
 
 	private final Collection<Map<String, Value<?>>> values = new ArrayList<>();
 	protected final List<Datatype> data;
+	// the frame read last, kept to tell what the next one changed
+	@Getter(AccessLevel.NONE)
+	private int[] raw = new int[0];
 
 	protected DataVector(List<Datatype> data) {
 		this.data = data;
 	}
 
 	public void read(int[] data) {
+		// the caller may reuse the array for the next frame
+		raw = data.clone();
 		Map<String, Value<?>> map = new HashMap<>();
-		int size = this.data.size();
 		for (int i = 0; i < data.length; i++) {
-			Datatype type = i >= size ? unknown("Unknown_"+this.getClass().getSimpleName()+"_"+i) : this.data.get(i);
+			Datatype type = type(i);
 			if (!type.getUnit().isEmpty()){
 				map.put(type.getName(), type.read(data[i]));
 			} else {
@@ -39,6 +44,43 @@ public abstract class DataVector {
 		values.add(map);
 	}
 
+	/**
+	 * Compares the frame read last with the one of an earlier vector of the same kind, e.g. the previous poll,
+	 * so that a live view only has to update the values that moved.
+	 * Indices the earlier frame does not have are reported with an old value of 0, and those only the earlier frame has
+	 * with a new value of 0.
+	 *
+	 * @param previous the earlier vector, or {@code null} to report every value
+	 * @return the changed values in ascending order of index
+	 */
+	public List<Change> changes(DataVector previous) {
+		int[] old = previous == null ? new int[0] : previous.raw;
+		List<Change> changes = new ArrayList<>();
+		int common = Math.min(old.length, raw.length);
+		int i = 0;
+		while (i < common) {
+			// skips over runs of equal values many elements at a time
+			int mismatch = Arrays.mismatch(old, i, common, raw, i, common);
+			if (mismatch < 0) {
+				break;
+			}
+			i += mismatch;
+			changes.add(new Change(type(i), i, old[i], raw[i]));
+			i++;
+		}
+		for (i = common; i < raw.length; i++) {
+			changes.add(new Change(type(i), i, 0, raw[i]));
+		}
+		for (i = common; i < old.length; i++) {
+			changes.add(new Change(type(i), i, old[i], 0));
+		}
+		return changes;
+	}
+
+	private Datatype type(int index) {
+		return index >= data.size() ? unknown("Unknown_" + getClass().getSimpleName() + "_" + index) : data.get(index);
+	}
+
 	public Datatype get(String name){
 		for (Datatype type : data){
 			if (name.equals(type.getName())){
@@ -500,4 +542,14 @@ public abstract class DataVector {
 			return "0";
 		});
 	}
+
+	/**
+	 * A raw value that differs between two frames.
+	 */
+	public record Change(Datatype type, int index, int oldValue, int newValue) {
+
+		public Value<?> read() {
+			return type.read(newValue);
+		}
+	}
 }
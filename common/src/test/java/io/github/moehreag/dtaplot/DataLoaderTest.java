@@ -0,0 +1,135 @@
+package io.github.moehreag.dtaplot;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import io.github.moehreag.dtaplot.data.BitColumn;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import io.github.moehreag.dtaplot.data.ColumnarFile;
+import io.github.moehreag.dtaplot.data.DoubleColumn;
+import io.github.moehreag.dtaplot.data.Rollups;
+import io.toadlabs.jfgjds.JsonDeserializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLoaderTest {
+
+	private final DataLoader loader = DataLoader.getInstance();
+
+	@TempDir
+	Path dir;
+
+	private static List<Map<String, Value<?>>> records(int from, int to) {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(1_700_000_000.0 + 60 * i));
+			map.put("TVL", Value.of(20 + i * 0.5));
+			map.put("VD1", Value.of(i % 3 == 0));
+			list.add(map);
+		}
+		return list;
+	}
+
+	private static List<Double> times(Collection<Map<String, Value<?>>> records) {
+		return records.stream().map(map -> ((Number) map.get("time").get()).doubleValue()).toList();
+	}
+
+	@Test
+	void appendAddsOnlyNewTimes() throws IOException {
+		Path file = dir.resolve("data.json");
+
+		loader.append(records(0, 10), file);
+		loader.append(records(5, 20), file);
+
+		assertEquals(times(records(0, 20)), times(loader.load(file)));
+		assertFalse(Files.exists(file.resolveSibling("data.json.tmp")));
+	}
+
+	@Test
+	void failedAppendKeepsFile() throws IOException {
+		Path file = dir.resolve("data.json");
+		loader.save(records(0, 10), file);
+		byte[] before = Files.readAllBytes(file);
+
+		List<Map<String, Value<?>>> broken = records(10, 20);
+		broken.get(5).put("TVL", () -> {
+			throw new IllegalStateException("value not available");
+		});
+		assertThrows(IllegalStateException.class, () -> loader.append(broken, file));
+
+		assertArrayEquals(before, Files.readAllBytes(file));
+		assertFalse(Files.exists(file.resolveSibling("data.json.tmp")));
+		// the index is still valid, so only the good records of a retry are appended once
+		loader.append(records(10, 15), file);
+		loader.append(records(10, 15), file);
+		assertEquals(times(records(0, 15)), times(loader.load(file)));
+	}
+
+	@Test
+	void loadWritesNothing() throws IOException {
+		Path file = dir.resolve("data.json");
+		loader.save(records(0, 100), file);
+		Rollups.delete(file);
+		List<Path> before;
+		try (var files = Files.list(dir)) {
+			before = files.sorted().toList();
+		}
+
+		assertEquals(times(records(0, 100)), times(loader.load(file)));
+		try (var files = Files.list(dir)) {
+			assertEquals(before, files.sorted().toList());
+		}
+	}
+
+	// the types along with the values, arrays compared by content
+	private static List<Map<String, String>> typed(Collection<Map<String, Value<?>>> records) {
+		return records.stream().map(map -> {
+			Map<String, String> typed = new TreeMap<>();
+			map.forEach((key, value) -> typed.put(key, value.get().getClass().getSimpleName() + " "
+					+ Arrays.deepToString(new Object[]{value.get()})));
+			return typed;
+		}).toList();
+	}
+
+	@Test
+	void jsonArrayLoadsLikeTheStreamingReader() throws IOException {
+		String json = """
+				[{"time": 1700000000, "TVL": 21.5, "VD1": true, "name": "a", "none": null},
+				 {"time": 1700000060, "bits": [true, false, true], "numbers": [1, -2.5e3], "mixed": [1, true, "x", null],
+				  "nested": [[true], [1.5]], "empty": []}]""";
+
+		Collection<Map<String, Value<?>>> parsed = loader.load(JsonDeserializer.read(new StringReader(json)).asArray());
+
+		assertEquals(typed(loader.load(json)), typed(parsed));
+		assertInstanceOf(boolean[].class, parsed.stream().skip(1).findFirst().orElseThrow().get("bits").get());
+	}
+
+	@Test
+	void loadColumnsMarksRowsWithoutValue() throws IOException {
+		Path file = dir.resolve("data.json");
+		Files.writeString(file, """
+				[{"time": 0, "TVL": 20.0, "VD1": true},
+				 {"time": 60, "VD1": "on"},
+				 {"time": 120, "TVL": 22.0, "VD1": false, "TA": -3},
+				 {"time": 180, "TVL": "broken"}]""");
+
+		ColumnarFile loaded = loader.loadColumns(file);
+		ColumnarData columns = loaded.getColumns();
+
+		assertEquals(4, columns.getSize());
+		assertEquals(List.of(true, false, true, false), IntStream.range(0, 4).mapToObj(row -> loaded.isPresent("TVL", row)).toList());
+		assertEquals(List.of(true, false, true, false), IntStream.range(0, 4).mapToObj(row -> loaded.isPresent("VD1", row)).toList());
+		assertEquals(List.of(false, false, true, false), IntStream.range(0, 4).mapToObj(row -> loaded.isPresent("TA", row)).toList());
+		DoubleColumn tvl = (DoubleColumn) columns.getColumn("TVL");
+		assertEquals(22.0, tvl.get(2));
+		assertTrue(Double.isNaN(tvl.get(1)));
+		assertFalse(((BitColumn) columns.getColumn("VD1")).get(2));
+	}
+}
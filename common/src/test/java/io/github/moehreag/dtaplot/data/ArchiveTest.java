@@ -0,0 +1,103 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveTest {
+
+	private static final int DAY = 24 * 60 * 60;
+	// midnight UTC, so that the records fall into the days they are built for
+	private static final int START = 19_700 * DAY;
+
+	@TempDir
+	Path dir;
+
+	// a day of records every 10 minutes, TA only on some days, TVL missing from every seventh record
+	private static List<Map<String, Value<?>>> day(int day, boolean outside) {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		for (int i = 0; i < DAY / 600; i++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(START + day * DAY + i * 600));
+			if (i % 7 != 0) {
+				map.put("TVL", Value.of(30.0 + i));
+			}
+			if (outside) {
+				map.put("TA", Value.of((float) i));
+			}
+			map.put("VD1", Value.of(i % 12 < 4));
+			list.add(map);
+		}
+		return list;
+	}
+
+	@Test
+	void rangeMarksGaps() {
+		Archive archive = Archive.open(dir);
+		List<Map<String, Value<?>>> records = new ArrayList<>(day(0, true));
+		records.addAll(day(1, false));
+		records.addAll(day(2, true));
+		archive.add(records);
+
+		ColumnarFile range = archive.range(START, START + 3 * DAY, null);
+		ColumnarData columns = range.getColumns();
+		assertEquals(records.size(), columns.getSize());
+		for (int row = 0; row < columns.getSize(); row++) {
+			Map<String, Value<?>> record = records.get(row);
+			assertEquals(((Number) record.get("time").get()).intValue(), columns.getTime(row));
+			for (String channel : List.of("TVL", "TA", "VD1")) {
+				Value<?> value = record.get(channel);
+				assertEquals(value != null, range.isPresent(channel, row), channel + " in row " + row);
+				Column column = columns.getColumn(channel);
+				if (value != null) {
+					assertEquals(value.get(), column.getValue(row).get(), channel + " in row " + row);
+				} else {
+					assertTrue(Double.isNaN(column.getDouble(row)), channel + " in row " + row);
+				}
+			}
+		}
+		assertEquals(range.toDatapoints().stream().map(ColumnarFileTest::plain).toList(), ColumnarFileTest.plain(records));
+	}
+
+	@Test
+	void transitionsSkipRowsWithoutState() {
+		Archive archive = Archive.open(dir);
+		List<Map<String, Value<?>>> records = day(0, true);
+		// records without a state, the other channels keep the rows, must not read as off
+		for (Map<String, Value<?>> map : records) {
+			if (Boolean.FALSE.equals(map.get("VD1").get())) {
+				map.remove("VD1");
+			}
+		}
+		archive.add(records);
+
+		Transitions transitions = archive.transitions("VD1", START, START + DAY);
+		assertEquals(0, transitions.getToggleCount());
+		assertTrue(transitions.stateAt(START + DAY / 2));
+	}
+
+	@Test
+	void addDropsStringsAndArrays() {
+		Archive archive = Archive.open(dir);
+		List<Map<String, Value<?>>> records = day(0, true);
+		for (int i = 0; i < records.size(); i++) {
+			// a channel that is a number in some rows and a string in others keeps its numbers
+			records.get(i).put("state", i % 2 == 0 ? Value.of("defrosting") : Value.of(i * 1.0));
+			records.get(i).put("bits", Value.of(new boolean[]{true, false}));
+		}
+		archive.add(records);
+
+		ColumnarFile range = archive.range(START, START + DAY, null);
+		assertEquals(records.size(), range.getColumns().getSize());
+		assertEquals(Set.of("TVL", "TA", "VD1", "state"), range.getColumns().getChannels());
+		for (int row = 0; row < records.size(); row++) {
+			assertEquals(row % 2 != 0, range.isPresent("state", row), "state in row " + row);
+		}
+		assertEquals(3.0, range.getColumns().getColumn("state").getDouble(3));
+	}
+}
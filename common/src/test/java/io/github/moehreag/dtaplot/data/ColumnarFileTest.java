@@ -0,0 +1,92 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarFileTest {
+
+	@TempDir
+	Path dir;
+
+	static List<Map<String, Value<?>>> records(int count, int start) {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(start + 60 * i));
+			map.put("TVL", Value.of(20 + i * 0.1));
+			map.put("VD1", Value.of(i % 7 < 3));
+			if (i % 5 != 0) {
+				// a channel with gaps
+				map.put("TA", Value.of((float) i));
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	static Map<String, Object> plain(Map<String, Value<?>> record) {
+		Map<String, Object> map = new TreeMap<>();
+		record.forEach((name, value) -> map.put(name, value.get()));
+		return map;
+	}
+
+	static List<Map<String, Object>> plain(Collection<Map<String, Value<?>>> records) {
+		return records.stream().map(ColumnarFileTest::plain).toList();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {ColumnarFile.EXTENSION, ColumnarFile.COMPRESSED_EXTENSION})
+	void roundTrip(String extension) {
+		Path file = dir.resolve("data" + extension);
+		List<Map<String, Value<?>>> records = records(1000, 1_700_000_000);
+
+		ColumnarFile.of(records).write(file);
+
+		assertEquals(plain(records), plain(ColumnarFile.read(file).toDatapoints()));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {ColumnarFile.EXTENSION, ColumnarFile.COMPRESSED_EXTENSION})
+	void overwritesFileThatWasRead(String extension) throws IOException {
+		Path file = dir.resolve("data" + extension);
+		ColumnarFile.of(records(100, 1_700_000_000)).write(file);
+		ColumnarFile read = ColumnarFile.read(file);
+		List<Map<String, Value<?>>> longer = records(300, 1_700_000_000);
+
+		ColumnarFile.of(longer).write(file);
+
+		assertEquals(100, read.getColumns().getSize());
+		assertEquals(plain(longer), plain(ColumnarFile.read(file).toDatapoints()));
+		try (var files = Files.list(dir)) {
+			assertEquals(List.of(file), files.toList(), "no temporary file is left");
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {ColumnarFile.EXTENSION, ColumnarFile.COMPRESSED_EXTENSION})
+	void failedWriteKeepsOriginal(String extension) throws IOException {
+		Path file = dir.resolve("data" + extension);
+		ColumnarFile.of(records(100, 1_700_000_000)).write(file);
+		byte[] before = Files.readAllBytes(file);
+
+		assertThrows(RuntimeException.class, () -> ColumnarFile.replace(file, channel -> {
+			channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+			throw new IOException("disk full");
+		}));
+
+		assertArrayEquals(before, Files.readAllBytes(file));
+		try (var files = Files.list(dir)) {
+			assertEquals(List.of(file), files.toList(), "no temporary file is left");
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedFormatTest {
+
+	private static final int START = 1_700_000_000;
+
+	@TempDir
+	Path dir;
+
+	private ColumnarFile roundTrip(ColumnarFile file, Set<String> channels) {
+		Path path = dir.resolve("data" + ColumnarFile.COMPRESSED_EXTENSION);
+		CompressedFormat.write(file, path);
+		return CompressedFormat.read(path, channels);
+	}
+
+	private static ColumnarData data(int rows) {
+		ColumnarData data = new ColumnarData(rows);
+		data.addRows(rows);
+		for (int i = 0; i < rows; i++) {
+			data.setTime(i, START + 60 * i);
+		}
+		return data;
+	}
+
+	private static long[] bitmap(int rows, Random random, int runs) {
+		long[] words = new long[BitColumn.wordCount(rows)];
+		boolean set = random.nextBoolean();
+		for (int row = 0; row < rows; ) {
+			int end = Math.min(rows, row + 1 + random.nextInt(Math.max(1, 2 * rows / runs)));
+			for (; set && row < end; row++) {
+				words[row >>> 6] |= 1L << row;
+			}
+			row = end;
+			set = !set;
+		}
+		return words;
+	}
+
+	/**
+	 * Requires the same times, channels, presence and value bits, so that NaN payloads and -0.0 count.
+	 */
+	private static void assertIdentical(ColumnarFile expected, ColumnarFile actual) {
+		ColumnarData e = expected.getColumns(), a = actual.getColumns();
+		assertEquals(e.getSize(), a.getSize());
+		assertArrayEquals(Arrays.copyOf(e.getTimes(), e.getSize()), Arrays.copyOf(a.getTimes(), a.getSize()));
+		assertEquals(expected.all.size(), actual.all.size());
+		int rows = e.getSize();
+		for (int i = 0; i < expected.all.size(); i++) {
+			Column ec = expected.all.get(i), ac = actual.all.get(i);
+			String name = ec.getName();
+			assertEquals(name, ac.getName());
+			assertEquals(ec.getCategory(), ac.getCategory());
+			assertEquals(ColumnarFile.type(ec), ColumnarFile.type(ac), name);
+			for (int row = 0; row < rows; row++) {
+				assertEquals(expected.isPresent(i, row), actual.isPresent(i, row), name + " present in row " + row);
+				switch (ColumnarFile.type(ec)) {
+					case DOUBLE -> assertEquals(Double.doubleToRawLongBits(((DoubleColumn) ec).get(row)),
+							Double.doubleToRawLongBits(((DoubleColumn) ac).get(row)), name + " in row " + row);
+					case FLOAT -> assertEquals(Float.floatToRawIntBits(((FloatColumn) ec).get(row)),
+							Float.floatToRawIntBits(((FloatColumn) ac).get(row)), name + " in row " + row);
+					case BIT -> assertEquals(((BitColumn) ec).get(row), ((BitColumn) ac).get(row), name + " in row " + row);
+				}
+			}
+		}
+	}
+
+	@Test
+	void keepsSpecialValues() {
+		double[] doubles = {0.0, -0.0, Double.NaN, Double.longBitsToDouble(0x7FF8_0000_0000_0123L), Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, 1.0, 1.0, -0.0, 0.0, 21.5};
+		float[] floats = {0.0f, -0.0f, Float.NaN, Float.intBitsToFloat(0x7FC0_0123), Float.POSITIVE_INFINITY,
+				Float.NEGATIVE_INFINITY, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE, 1.0f, 1.0f, -0.0f, 0.0f, 21.5f};
+		ColumnarData data = data(doubles.length);
+		DoubleColumn d = new DoubleColumn("analog", "TVL", doubles.length);
+		FloatColumn f = new FloatColumn("analog", "TA", floats.length);
+		for (int i = 0; i < doubles.length; i++) {
+			d.set(i, doubles[i]);
+			f.set(i, floats[i]);
+		}
+		data.addColumn(d);
+		data.addColumn(f);
+		ColumnarFile file = ColumnarFile.of(data);
+
+		assertIdentical(file, roundTrip(file, null));
+	}
+
+	/**
+	 * Values that change in windows of every width and position, including XORs with more than 31 leading zeros,
+	 * which the encoder caps, and the full 32 and 64 bits.
+	 */
+	@ParameterizedTest
+	@ValueSource(longs = {1, 2, 3})
+	void keepsValuesChangingInAnyWindow(long seed) {
+		Random random = new Random(seed);
+		int rows = 5000;
+		ColumnarData data = data(rows);
+		DoubleColumn d = new DoubleColumn("analog", "TVL", rows);
+		FloatColumn f = new FloatColumn("analog", "TA", rows);
+		// counting in the lowest bits only, so that every window starts far beyond 31 leading zeros
+		DoubleColumn dCounter = new DoubleColumn("analog", "dCounter", rows);
+		FloatColumn fCounter = new FloatColumn("analog", "fCounter", rows);
+		long dBits = random.nextLong();
+		int fBits = random.nextInt();
+		for (int row = 0; row < rows; row++) {
+			dCounter.set(row, Double.longBitsToDouble(row * (1L + random.nextInt(3))));
+			fCounter.set(row, Float.intBitsToFloat(row * (1 + random.nextInt(3))));
+			int kind = random.nextInt(5);
+			if (kind > 0) {
+				// a window of 1 to 64 bits anywhere, or the same as the last one
+				int width = kind == 1 ? 64 : 1 + random.nextInt(kind == 2 ? 4 : 64);
+				int shift = random.nextInt(65 - width);
+				long mask = width == 64 ? -1L : ((1L << width) - 1) << shift;
+				dBits ^= random.nextLong() & mask;
+				int fWidth = Math.min(width, 32), fShift = random.nextInt(33 - fWidth);
+				int fMask = fWidth == 32 ? -1 : ((1 << fWidth) - 1) << fShift;
+				fBits ^= random.nextInt() & fMask;
+			}
+			d.set(row, Double.longBitsToDouble(dBits));
+			f.set(row, Float.intBitsToFloat(fBits));
+		}
+		data.addColumn(d);
+		data.addColumn(f);
+		data.addColumn(dCounter);
+		data.addColumn(fCounter);
+		ColumnarFile file = ColumnarFile.of(data);
+
+		assertIdentical(file, roundTrip(file, null));
+	}
+
+	@Test
+	void keepsTimesWithLargeJumps() {
+		int[] times = {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0, 0, -1, 1, START, START + 60, START + 120,
+				START + 180, START + 150, START + 3600 * 24 * 365, Integer.MAX_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1};
+		ColumnarData data = new ColumnarData(times.length);
+		data.addRows(times.length);
+		BitColumn bits = new BitColumn("digital", "VD1", times.length);
+		for (int i = 0; i < times.length; i++) {
+			data.setTime(i, times[i]);
+			bits.set(i, i % 3 == 0);
+		}
+		data.addColumn(bits);
+		ColumnarFile file = ColumnarFile.of(data);
+
+		assertIdentical(file, roundTrip(file, null));
+	}
+
+	/**
+	 * Runs of present rows and of bits that start either way, cross word boundaries and fill whole columns.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 63, 64, 65, 1000})
+	void keepsGapsAndBits(int rows) {
+		Random random = new Random(rows);
+		ColumnarData data = data(rows);
+		List<Column> all = new ArrayList<>();
+		List<long[]> present = new ArrayList<>();
+		int[] runs = {1, 2, 10, rows + 1};
+		for (int i = 0; i < runs.length; i++) {
+			BitColumn bits = new BitColumn("digital", "bits" + i, rows);
+			System.arraycopy(bitmap(rows, random, runs[i]), 0, bits.getWords(), 0, BitColumn.wordCount(rows));
+			all.add(bits);
+			present.add(null);
+
+			DoubleColumn values = new DoubleColumn("analog", "gaps" + i, rows);
+			long[] words = bitmap(rows, random, runs[i]);
+			for (int row = 0; row < rows; row++) {
+				boolean has = (words[row >>> 6] & (1L << row)) != 0;
+				values.set(row, has ? row * 0.5 : Double.NaN);
+			}
+			all.add(values);
+			present.add(words);
+		}
+		// flagged as having gaps, but without any row
+		all.add(new FloatColumn("analog", "empty", rows));
+		present.add(new long[BitColumn.wordCount(rows)]);
+		ColumnarFile file = ColumnarFile.of(data, all, present.toArray(long[][]::new));
+
+		assertIdentical(file, roundTrip(file, null));
+	}
+
+	@Test
+	void keepsMixedTypesWithGaps() {
+		List<Map<String, Value<?>>> records = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(START + 60 * i));
+			// the same channel as a bit on some rows, a number on others and missing on the rest
+			if (i % 3 == 0) {
+				map.put("mixed", Value.of(i % 2 == 0));
+			} else if (i % 3 == 1) {
+				map.put("mixed", Value.of(i * 0.25));
+			}
+			if (i % 7 != 0) {
+				map.put("TA", Value.of((float) -i));
+			}
+			records.add(map);
+		}
+		ColumnarFile file = ColumnarFile.of(records);
+		Path path = dir.resolve("mixed" + ColumnarFile.COMPRESSED_EXTENSION);
+		file.write(path);
+		ColumnarFile read = ColumnarFile.read(path);
+
+		assertIdentical(file, read);
+		assertEquals(ColumnarFileTest.plain(records), ColumnarFileTest.plain(read.toDatapoints()));
+	}
+
+	@Test
+	void readsOnlyTheChannelsAsked() {
+		Random random = new Random(5);
+		int rows = 700;
+		ColumnarData data = data(rows);
+		List<Column> all = new ArrayList<>();
+		List<long[]> present = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			Column column;
+			switch (i % 3) {
+				case 0 -> {
+					DoubleColumn c = new DoubleColumn("analog", "d" + i, rows);
+					for (int row = 0; row < rows; row++) {
+						c.set(row, random.nextGaussian());
+					}
+					column = c;
+				}
+				case 1 -> {
+					FloatColumn c = new FloatColumn("analog", "f" + i, rows);
+					for (int row = 0; row < rows; row++) {
+						c.set(row, (float) random.nextGaussian());
+					}
+					column = c;
+				}
+				default -> {
+					BitColumn c = new BitColumn("digital", "b" + i, rows);
+					System.arraycopy(bitmap(rows, random, 20), 0, c.getWords(), 0, BitColumn.wordCount(rows));
+					column = c;
+				}
+			}
+			all.add(column);
+			present.add(i < 3 ? bitmap(rows, random, 30) : null);
+		}
+		ColumnarFile file = ColumnarFile.of(data, all, present.toArray(long[][]::new));
+		Set<String> subset = Set.of("f1", "d3", "b5");
+
+		ColumnarFile read = roundTrip(file, subset);
+
+		assertEquals(subset, read.getColumns().getChannels());
+		List<Column> expected = new ArrayList<>();
+		List<long[]> expectedPresent = new ArrayList<>();
+		for (int i = 0; i < all.size(); i++) {
+			if (subset.contains(all.get(i).getName())) {
+				expected.add(all.get(i));
+				expectedPresent.add(present.get(i));
+			}
+		}
+		ColumnarData copy = data(rows);
+		assertIdentical(ColumnarFile.of(copy, expected, expectedPresent.toArray(long[][]::new)), read);
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlotWindowTest {
+
+	private static final int DAY = 24 * 60 * 60;
+	// midnight UTC, so that the buckets line up with the days
+	private static final int START = 19_700 * DAY;
+
+	// a record a minute for 60 days, shuffled
+	private static List<Map<String, Value<?>>> records() {
+		List<Map<String, Value<?>>> list = new ArrayList<>();
+		for (int i = 0; i < 60 * DAY / 60; i++) {
+			Map<String, Value<?>> map = new HashMap<>();
+			map.put("time", Value.of(START + 60 * i));
+			map.put("TVL", Value.of(20 + i % 100 * 0.1));
+			list.add(map);
+		}
+		Collections.shuffle(list, new Random(1));
+		return list;
+	}
+
+	private static int time(Map<String, Value<?>> map) {
+		return ((Number) map.get("time").get()).intValue();
+	}
+
+	@Test
+	void picksFinerPointsAsTheWindowNarrows() {
+		List<Map<String, Value<?>>> records = records();
+		PlotWindow window = PlotWindow.of(records, null);
+		int end = START + 60 * DAY - 60;
+		assertEquals(START, window.getStart());
+		assertEquals(end, window.getEnd());
+
+		// 60 days 1000 points wide: an hour per point
+		List<Map<String, Value<?>>> points = window.update(START, end, 1000);
+		assertEquals(Rollups.Tier.HOUR, window.getTier());
+		assertEquals(60 * 24, points.size());
+		// moving a bit within what was returned needs nothing new
+		assertNull(window.update(START + DAY, end, 1000));
+
+		// a week: ten minutes per point, a week to either side
+		points = window.update(START + 20 * DAY, START + 27 * DAY, 1000);
+		assertEquals(Rollups.Tier.TEN_MINUTES, window.getTier());
+		assertEquals(21 * 24 * 6 + 1, points.size());
+
+		// a day: the records themselves, in order
+		points = window.update(START + 20 * DAY, START + 21 * DAY, 1000);
+		assertNull(window.getTier());
+		assertEquals(3 * 24 * 60 + 1, points.size());
+		Set<Map<String, Value<?>>> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+		instances.addAll(records);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(START + 19 * DAY + 60 * i, time(points.get(i)));
+			assertTrue(instances.contains(points.get(i)));
+		}
+	}
+
+	@Test
+	void leavesTheRecordsAlone() {
+		List<Map<String, Value<?>>> records = records();
+		List<Map<String, Value<?>>> copy = new ArrayList<>(records);
+		PlotWindow window = PlotWindow.of(records, null);
+		window.update(START, START + 60 * DAY, 500);
+		window.update(START, START + DAY, 500);
+		assertEquals(copy, records);
+	}
+}
@@ -0,0 +1,142 @@
+package io.github.moehreag.dtaplot.data;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionsTest {
+
+	private static final int START = 1_700_000_000;
+
+	@TempDir
+	Path dir;
+
+	// a compressor that runs for a while every now and then, with a gap in the records
+	private static ColumnarData records(int count, long seed) {
+		Random random = new Random(seed);
+		ColumnarData data = new ColumnarData();
+		BitColumn column = new BitColumn("digital", "VD1", 0);
+		data.addColumn(column);
+		int time = START;
+		boolean state = random.nextBoolean();
+		for (int i = 0; i < count; i++) {
+			time += i == count / 2 ? 3600 : 60;
+			if (random.nextInt(20) == 0) {
+				state = !state;
+			}
+			column.set(data.addRow(time), state);
+		}
+		return data;
+	}
+
+	@ParameterizedTest
+	@ValueSource(longs = {1, 2, 3, 4, 5})
+	void queriesMatchScanningTheRecords(long seed) {
+		ColumnarData data = records(2000, seed);
+		Transitions transitions = Transitions.of(data, "VD1");
+		Scan scan = new Scan(data);
+		Random random = new Random(seed);
+		int end = data.getTime(data.getSize() - 1);
+		for (int i = 0; i < 500; i++) {
+			int from = START - 600 + random.nextInt(end - START + 1200);
+			int to = from + random.nextInt(i % 2 == 0 ? 3 * 3600 : end - START);
+			// on the records themselves as well as in between
+			if (i % 3 == 0) {
+				from = data.getTime(random.nextInt(data.getSize()));
+			}
+
+			assertEquals(scan.stateAt(from), transitions.stateAt(from), "state at " + from);
+			assertEquals(scan.runs(from, to), transitions.runs(from, to), "runs in " + from + ".." + to);
+			assertEquals(scan.countSwitchOns(from, to), transitions.countSwitchOns(from, to), "switch-ons in " + from + ".." + to);
+			assertEquals(scan.duration(true, from, to), transitions.duration(true, from, to), "on in " + from + ".." + to);
+			assertEquals(scan.duration(false, from, to), transitions.duration(false, from, to), "off in " + from + ".." + to);
+		}
+	}
+
+	@Test
+	void readsPlotData() {
+		ColumnarData data = records(500, 7);
+		List<Map<String, Value<?>>> records = new ArrayList<>(data.toDatapoints());
+		Collections.shuffle(records, new Random(7));
+		// records without the channel are skipped
+		records.add(Map.of("time", Value.of(START + 30)));
+
+		Transitions expected = Transitions.of(data, "VD1"), actual = Transitions.of(records, "VD1");
+		assertEquals(expected.getStart(), actual.getStart());
+		assertEquals(expected.getEnd(), actual.getEnd());
+		assertEquals(expected.runs(expected.getStart(), expected.getEnd()), actual.runs(actual.getStart(), actual.getEnd()));
+	}
+
+	@Test
+	void archiveQueriesSpanSegments() {
+		ColumnarData data = records(5000, 11);
+		Archive archive = Archive.open(dir);
+		archive.add(data.toDatapoints());
+
+		int from = data.getTime(100), to = data.getTime(4900);
+		Transitions expected = Transitions.of(data, "VD1");
+		Transitions actual = archive.transitions("VD1", from, to);
+		assertEquals(expected.runs(from, to), actual.runs(from, to));
+		assertEquals(expected.countSwitchOns(from, to), actual.countSwitchOns(from, to));
+		assertEquals(0, archive.transitions("VD1", 0, 1000).getToggleCount());
+	}
+
+	/**
+	 * Answers the queries by going through the records one by one.
+	 */
+	private record Scan(ColumnarData data) {
+
+		private BitColumn column() {
+			return (BitColumn) data.getColumn("VD1");
+		}
+
+		boolean stateAt(int time) {
+			boolean state = column().get(0);
+			for (int i = 0; i < data.getSize() && data.getTime(i) <= time; i++) {
+				state = column().get(i);
+			}
+			return state;
+		}
+
+		List<Transitions.Run> runs(int from, int to) {
+			List<Transitions.Run> runs = new ArrayList<>();
+			int lo = Math.max(from, data.getTime(0)), hi = Math.min(to, data.getTime(data.getSize() - 1));
+			for (int i = 0; i + 1 < data.getSize(); i++) {
+				int start = Math.max(lo, data.getTime(i)), end = Math.min(hi, data.getTime(i + 1));
+				if (start >= end) {
+					continue;
+				}
+				boolean state = column().get(i);
+				Transitions.Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+				if (last != null && last.state() == state) {
+					runs.set(runs.size() - 1, new Transitions.Run(last.start(), end, state));
+				} else {
+					runs.add(new Transitions.Run(start, end, state));
+				}
+			}
+			return runs;
+		}
+
+		int countSwitchOns(int from, int to) {
+			int count = 0;
+			for (int i = 1; i < data.getSize(); i++) {
+				int time = data.getTime(i);
+				if (time >= from && time <= to && column().get(i) && !column().get(i - 1)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		long duration(boolean state, int from, int to) {
+			return runs(from, to).stream().filter(run -> run.state() == state).mapToLong(Transitions.Run::duration).sum();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DatapointAssertions {
+
+	/**
+	 * Checks that two lists of records hold the same channels with values of the same type and bits.
+	 */
+	public static void assertIdentical(Collection<Map<String, Value<?>>> expected, Collection<Map<String, Value<?>>> actual) {
+		assertEquals(expected.size(), actual.size(), "records");
+		Iterator<Map<String, Value<?>>> it = actual.iterator();
+		int row = 0;
+		for (Map<String, Value<?>> record : expected) {
+			assertEquals(describe(record), describe(it.next()), "record " + row);
+			row++;
+		}
+	}
+
+	private static Map<String, String> describe(Map<String, Value<?>> record) {
+		Map<String, String> map = new TreeMap<>();
+		record.forEach((name, value) -> {
+			Object o = value.get();
+			String bits = o instanceof Double d ? Long.toHexString(Double.doubleToRawLongBits(d))
+					: o instanceof Float f ? Integer.toHexString(Float.floatToRawIntBits(f)) : String.valueOf(o);
+			map.put(name, (o == null ? "null" : o.getClass().getSimpleName()) + ":" + bits);
+		});
+		return map;
+	}
+}
@@ -0,0 +1,54 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import io.github.moehreag.dtaplot.data.Column;
+import io.github.moehreag.dtaplot.data.ColumnarData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DtaHeaderTest {
+
+	// several split tasks, and a last one that does not end on a 64 row boundary
+	private static final int RECORDS = 30_001;
+
+	@Test
+	void parallelDecodingMatchesSequential8209() {
+		assertSameDecoding(SampleFiles.dta8209(8209, RECORDS, 1), DtaParser.options());
+	}
+
+	@Test
+	void parallelDecodingMatchesSequential8208() {
+		assertSameDecoding(SampleFiles.dta8209(8208, RECORDS, 2), DtaParser.options());
+	}
+
+	@Test
+	void parallelDecodingMatchesSequential9001() {
+		assertSameDecoding(SampleFiles.dta9001(3, RECORDS, 3), DtaParser.options());
+	}
+
+	@Test
+	void parallelDecodingMatchesSequentialWithinRange() {
+		int from = SampleFiles.START + 60 * 1234, to = SampleFiles.START + 60 * 27_001;
+		assertSameDecoding(SampleFiles.dta8209(8209, RECORDS, 4), DtaParser.options().range(from, to).channels(Set.of("TVL", "VD1", "EVU")));
+	}
+
+	private static void assertSameDecoding(byte[] file, DtaParser.Options options) {
+		ColumnarData sequential = DtaParser.get(ByteBuffer.wrap(file), options.parallel(false)).getColumns();
+		ColumnarData parallel = DtaParser.get(ByteBuffer.wrap(file), options.parallel(true)).getColumns();
+
+		assertEquals(sequential.getSize(), parallel.getSize());
+		assertArrayEquals(sequential.getTimes(), parallel.getTimes());
+		assertEquals(sequential.getChannels(), parallel.getChannels());
+		for (Column column : sequential.getColumns()) {
+			Column other = parallel.getColumn(column.getName());
+			for (int row = 0; row < sequential.getSize(); row++) {
+				assertEquals(Double.doubleToRawLongBits(column.getDouble(row)), Double.doubleToRawLongBits(other.getDouble(row)),
+						column.getName() + " in row " + row);
+			}
+		}
+	}
+}
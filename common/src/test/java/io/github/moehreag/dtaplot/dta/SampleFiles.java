@@ -0,0 +1,61 @@
+package io.github.moehreag.dtaplot.dta;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Generates DTA files with random but reproducible content, shaped like the files controllers write.
+ */
+public class SampleFiles {
+
+	public static final int START = 1_700_000_000;
+
+	/**
+	 * @param version 8208 or 8209
+	 */
+	public static byte[] dta8209(int version, int records, long seed) {
+		Random random = new Random(seed);
+		int length = version == 8209 ? 168 : 188;
+		ByteBuffer buf = ByteBuffer.allocate(8 + records * length).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(version).putInt(0);
+		for (int i = 0; i < records; i++) {
+			int start = buf.position();
+			byte[] record = new byte[length];
+			random.nextBytes(record);
+			buf.put(record);
+			buf.putInt(start, START + 60 * i);
+			// sensor values within the range of the lookup tables
+			for (int offset : new int[]{52, 54, 56, 58, 60, 62, 64, 66, 70}) {
+				buf.putShort(start + offset, (short) (random.nextInt(1049) - 9));
+			}
+			for (int offset : new int[]{144, 146, 148, 150, 152}) {
+				buf.putShort(start + offset, (short) (random.nextInt(4199) - 39));
+			}
+		}
+		return buf.array();
+	}
+
+	/**
+	 * @param subVer 0 to 3
+	 */
+	public static byte[] dta9001(int subVer, int records, long seed) {
+		Random random = new Random(seed);
+		int length = switch (subVer) {
+			case 0 -> 54;
+			case 2 -> 72;
+			case 1 -> 80;
+			default -> 98;
+		};
+		ByteBuffer buf = ByteBuffer.allocate(10 + records * length).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(9001).putInt(subVer).putShort((short) records);
+		for (int i = 0; i < records; i++) {
+			int start = buf.position();
+			byte[] record = new byte[length];
+			random.nextBytes(record);
+			buf.put(record);
+			buf.putInt(start, START + 60 * i);
+		}
+		return buf.array();
+	}
+}
@@ -0,0 +1,50 @@
+package io.github.moehreag.dtaplot.dta.versioned;
+
+import io.github.moehreag.dtaplot.dta.DtaFile;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.LookUpTable;
+import io.github.moehreag.dtaplot.dta.SampleFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static io.github.moehreag.dtaplot.dta.DatapointAssertions.assertIdentical;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DtaFile8209Test {
+
+	@ParameterizedTest
+	@ValueSource(ints = {8208, 8209})
+	void layoutMatchesLegacyDecoding(int version) {
+		byte[] file = SampleFiles.dta8209(version, 2000, version);
+
+		DtaFile dta = DtaParser.get(file);
+
+		assertEquals(version, dta.getVersion());
+		assertIdentical(LegacyDecoders.decode8209(file), dta.getDatapoints());
+	}
+
+	@Test
+	void expandedLookUpTablesMatchInterpolation() {
+		for (LookUpTable table : DtaFile8209.lut) {
+			int covered = 0;
+			for (int value = Short.MIN_VALUE; value <= Short.MAX_VALUE; value++) {
+				double expected;
+				try {
+					expected = LegacyDecoders.lut(table, value);
+				} catch (ArrayIndexOutOfBoundsException e) {
+					// the legacy decoder failed on raw values past the table, which must not change
+					int v = value;
+					assertThrows(ArrayIndexOutOfBoundsException.class, () -> table.convert(v));
+					continue;
+				}
+				assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(table.convert(value)), "raw value " + value);
+				assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(table.interpolate(value)), "raw value " + value);
+				covered++;
+			}
+			// every value of the sensor range is converted
+			assertEquals(table.getDelta() * (table.getData().length - 1) + table.getDelta() - 1, covered);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package io.github.moehreag.dtaplot.dta.versioned;
+
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.SampleFiles;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static io.github.moehreag.dtaplot.dta.DatapointAssertions.assertIdentical;
+
+class DtaFile9001Test {
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2, 3})
+	void layoutMatchesLegacyDecoding(int subVer) {
+		byte[] file = SampleFiles.dta9001(subVer, 2000, subVer);
+
+		assertIdentical(LegacyDecoders.decode9001(file), DtaParser.get(file).getDatapoints());
+	}
+}
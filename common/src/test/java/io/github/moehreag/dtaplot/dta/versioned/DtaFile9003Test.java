@@ -0,0 +1,41 @@
+package io.github.moehreag.dtaplot.dta.versioned;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import io.github.moehreag.dtaplot.dta.DtaHeader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DtaFile9003Test {
+
+	// a header without records and a single analog field of the given name
+	private static ByteBuffer file(String name) {
+		ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+		definitions.write(0x01);
+		definitions.writeBytes(name.getBytes(StandardCharsets.US_ASCII));
+		definitions.write(0);
+		definitions.writeBytes(new byte[]{0x10, 0x20, 0x30});
+		byte[] bytes = definitions.toByteArray();
+		return ByteBuffer.allocate(12 + bytes.length).order(ByteOrder.LITTLE_ENDIAN)
+				.putInt(9003).putInt(bytes.length + 4).putShort((short) 0).putShort((short) 0).put(bytes).flip();
+	}
+
+	@Test
+	void keepsOnlyTheRecentSchemas() {
+		ByteBuffer first = file("TVL");
+		DtaHeader header = DtaFile9003.header(first);
+		for (int i = 0; i < 10 * DtaFile9003.CACHED_SCHEMAS; i++) {
+			DtaFile9003.header(file("Channel" + i));
+			assertTrue(DtaFile9003.schemas.size() <= DtaFile9003.CACHED_SCHEMAS);
+		}
+		// evicted long ago, read again and cached once more
+		ByteBuffer definitions = first.duplicate().position(12).slice();
+		assertFalse(DtaFile9003.schemas.containsKey(definitions));
+		assertEquals(header.getStart(), DtaFile9003.header(first).getStart());
+		assertTrue(DtaFile9003.schemas.containsKey(definitions));
+	}
+}
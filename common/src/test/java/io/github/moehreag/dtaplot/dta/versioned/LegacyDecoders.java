@@ -0,0 +1,290 @@
+package io.github.moehreag.dtaplot.dta.versioned;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.dta.DataField;
+import io.github.moehreag.dtaplot.dta.DataFieldContainer;
+import io.github.moehreag.dtaplot.dta.LookUpTable;
+
+/**
+ * The record decoding of DTA 8208/8209 and 9001 as it was before {@link io.github.moehreag.dtaplot.dta.RecordLayout},
+ * kept unchanged as the reference the layouts are compared against.
+ */
+class LegacyDecoders {
+
+	static List<Map<String, Value<?>>> decode8209(byte[] file) {
+		return new Legacy8209(ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN)).entries;
+	}
+
+	static List<Map<String, Value<?>>> decode9001(byte[] file) {
+		return new Legacy9001(ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN)).entries;
+	}
+
+	/**
+	 * @return what the legacy decoder made of a raw sensor value read through a lookup table
+	 */
+	static double lut(LookUpTable table, int value) {
+		ByteBuffer buf = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort(0, (short) value);
+		return ((Number) Legacy8209.lut(table, "", "", buf).get().iterator().next().getValue().get()).doubleValue();
+	}
+
+	private static class Legacy8209 {
+
+		private final ByteBuffer data;
+		private final int version;
+		private final List<Map<String, Value<?>>> entries = new ArrayList<>();
+
+		private Legacy8209(ByteBuffer data) {
+			this.data = data;
+			version = data.getInt(0);
+
+			data.position(8);
+			for (int i = 0; i < data.limit() / getEntryLength(); i++) {
+				entries.add(readEntry());
+			}
+		}
+
+		private static DataFieldContainer lut(LookUpTable table, String category, String name, ByteBuffer buffer){
+			int value = buffer.getShort();
+
+			// Position in Tabelle
+			int idx = (value - table.getOffset()) / table.getDelta();
+			int size = (table.getData().length*4) / 2;
+			if (idx > (size - 2)) idx = size - 2;
+
+			// linear approximation
+			int x1 = idx * table.getDelta() + table.getOffset();
+			int x2 = (idx + 1) * table.getDelta() + table.getOffset();
+			int y1 = table.getData()[idx];
+			int y2 = table.getData()[idx + 1];
+
+			double m = (float)(y2 - y1) / (x2 - x1);
+			double n = y1 - m * x1;
+
+			// calc value
+			double res = m * value + n;
+			Value<Number> val = Value.of((res) / (table.getPrecision()));
+			return DataFieldContainer.single(category, name, val);
+		}
+
+		private DataFieldContainer analogue(String category, String name, ByteBuffer buffer){
+			return analogue(category, name, 10, 10, buffer);
+		}
+
+		private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer){
+			return analogue(category, name, factor, precision, buffer, false);
+		}
+
+		private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer, boolean highbytes){
+
+			int val = highbytes ? buffer.getInt() : buffer.getShort();
+			double res = (val / factor * precision) / precision;
+
+			Value<Number> value = Value.of(res);
+			return DataFieldContainer.single(category, name, value);
+		}
+
+		private int getEntryLength() {
+			return version == 0x2011 ? 168 : 188;
+		}
+
+		private Map<String, Value<?>> readEntry(){
+			List<DataFieldContainer> fields = List.of(
+					DataField.time(data),																					// [0  :3  ] - Datum
+					DataField.unknown(4, data),																		// [4  :7  ]
+					DataField.digital("Digitale Ausgänge", data,													// [8  :9  ] - Status Ausgaenge
+						DataField.bit("HUP", 0),																	//   bit 0:  HUP  = Heizungsumwaelzpumpe
+						DataField.bit("ZUP", 1),																	//   bit 1:  ZUP  = Zusatzumwaelzpumpe
+						DataField.bit("BUP", 2),																	//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
+						DataField.bit("ZW2", 3),																	//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
+						DataField.bit("MA1", 4),																	//   bit 4:  MA1  = Mischer 1 auf
+						DataField.bit("MZ1", 5),																	//   bit 5:  MZ1  = Mischer 1 zu
+						DataField.bit("ZIP", 6),																	//   bit 6:  ZIP  = Zirkulationspumpe
+						DataField.bit("VD1", 7),																	//   bit 7:  VD1  = Verdichter 1
+						DataField.bit("VD2", 8),																	//   bit 8:  VD2  = Verdichter 2
+						DataField.bit("VENT", 9),																	//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
+						DataField.bit("AV", 10),																	//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
+						DataField.bit("VBS", 11),																	//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
+						DataField.bit("ZW1", 12)																	//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
+					),
+					DataField.unknown(34, data),																		// [10 :43 ]
+					DataField.digital("Digitale Eingänge", data,													// [44 :45 ] - Status Eingaenge
+							DataField.bit("HD", 0, true),													//   bit 0:  HD_  = Hochdruckpressostat
+							DataField.bit("ND", 1, true),													//   bit 1:  ND_  = Niederdruckpressostat
+							DataField.bit("MOT", 2, true),													//   bit 2:  MOT_ = Motorschutz
+							DataField.bit("ASD", 3, true),													//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
+							DataField.bit("EVU", 4)																//   bit 4:  EVU  = EVU Sperre
+					),
+					DataField.unknown(6, data),																		// [46 :51 ]
+					lut(DtaFile8209.lut[0], "Heizkreis",   "TFB1", data),													// [52 :53 ] - TFB1
+					lut(DtaFile8209.lut[0], "Heizkreis",    "TBW", data),													// [54 :55 ] - TBW
+					lut(DtaFile8209.lut[1], "Heizkreis",     "TA", data),													// [56 :57 ] - TA
+					lut(DtaFile8209.lut[0], "Heizkreis", "TRLext", data),													// [58 :59 ] - TRLext
+					lut(DtaFile8209.lut[0], "Heizkreis",    "TRL", data),													// [60 :61 ] - TRL
+					lut(DtaFile8209.lut[0], "Heizkreis",    "TVL", data),													// [62 :63 ] - TVL
+					lut(DtaFile8209.lut[2], "Heizkreis",    "THG", data),													// [64 :65 ] - THG
+					lut(DtaFile8209.lut[1], "Heizkreis", "TWQaus", data),													// [66 :67 ] - TWQaus
+					DataField.unknown(2, data),																		// [68 :69 ]
+					lut(DtaFile8209.lut[1], "Heizkreis", "TWQein", data),													// [70 :71 ] - TWQein
+					DataField.unknown(8, data),																		// [72 :79 ]
+					analogue("Heizkreis",  "TRLsoll", 10.0, 10, data, true),			// [80 :83 ] - TRLsoll
+					analogue("Heizkreis", "TMK1soll", 10.0, 10, data, true),			// [84 :87 ] - TMK1soll
+					DataField.unknown(40, data),																		// [88 :127]
+					DataField.unknown(2, data),																		// [128:129] - ComfortPlatine indikator
+					DataField.unknown(2, data),																		// [88 :131]
+					DataField.digital("Comfort-Platine EA", data,													// [132:133] - Status Ausgaenge ComfortPlatine
+							DataField.bit("AI1DIV", 6),															//    bit 6:  AI1DIV = Spannungsteiler an AI1: wann AI1DIV dann AI1 = AI1/2
+							DataField.bit("SUP", 7),																//    bit 7:  SUP = Schwimmbadumwaelzpumpe
+							DataField.bit("FUP2", 8),																//    bit 8:  FUP2 = Mischkreispumpe 2 / Kuehlsignal 2
+							DataField.bit("MA2", 9),																//    bit 9:  MA2 = Mischer 2 auf
+							DataField.bit("MZ2", 10),																//   bit 10:  MZ2 = Mischer 2 zu
+							DataField.bit("MA3", 11),																//   bit 11:  MA3 = Mischer 3 auf
+							DataField.bit("MZ3", 11),																//   bit 11:  MZ3 = Mischer 3 zu
+							DataField.bit("FUP3", 12),															//   bit 12:  FUP3 = Mischkreispumpe 3 / Kuehlsignal 3
+							DataField.bit("ZW3", 14),																//   bit 14:  ZW3 = Zusaetzlicher Waermeerzeuger 3
+							DataField.bit("SLP", 15)																//   bit 15:  SLP = Solarladepumpe
+					),
+					DataField.unknown(2, data),																		// [134:135]
+					analogue("Comfort-Platine", "AO1", 381.825, 100, data), 					// [136:137] - AO1
+					analogue("Comfort-Platine", "AO2", 381.825, 100, data),  					// [138:139] - AO2
+					DataField.digital("Comfort-Platine EA", data,													// [140:141] - Status Eingaenge ComfortPlatine
+							DataField.bit("SWT", 4, true)													//    bit 4:  SWT_ = Schwimmbadthermostat
+					),
+					DataField.unknown(2, data),																		// [142:143]
+					lut(DtaFile8209.lut[3], "Comfort-Platine",   "TSS", data),											// [144:145] - TSS
+					lut(DtaFile8209.lut[3], "Comfort-Platine",   "TSK", data),											// [146:147] - TSK
+					lut(DtaFile8209.lut[4], "Comfort-Platine",  "TFB2", data),											// [148:149] - TFB2
+					lut(DtaFile8209.lut[4], "Comfort-Platine",  "TFB3", data),											// [150:151] - TFB3
+					lut(DtaFile8209.lut[4], "Comfort-Platine",   "TEE", data),											// [152:153] - TEE
+					DataField.unknown(4, data),																		// [154:157]
+					analogue("Comfort-Platine",  "AI1", 275.406, 100, data), 					// [158:159] - AI1
+					analogue("Comfort-Platine", "TMK2soll", 10.0, 10, data, true), 	// [160:163] - TMK2soll
+					analogue("Comfort-Platine", "TMK3soll", 10.0, 10, data, true) 		// [164:167] - TMK3soll
+			);
+			if (version == 0x2010){
+				data.position(data.position() + 20);
+			}
+
+			Map<String, Value<?>> map = new HashMap<>();
+			fields.stream().filter(f -> !f.isVoid())
+							.forEach(c -> c.get().forEach(d -> map.put(d.getName(), d.getValue())));
+			return map;
+		}
+	}
+
+	private static class Legacy9001 {
+
+		private final ByteBuffer data;
+		private final int subVer;
+		private final List<Map<String, Value<?>>> entries = new ArrayList<>();
+
+		private Legacy9001(ByteBuffer data) {
+			this.data = data;
+
+			data.position(4);
+			subVer = data.getInt();
+			short count = data.getShort();
+
+			for (int i = 0; i < count; i++) {
+				Map<String, Value<?>> map = new HashMap<>();
+				List<DataFieldContainer> fields = readEntry();
+				fields.stream().filter(f -> !f.isVoid())
+						.forEach(c -> c.get()
+								.forEach(d -> map.put(d.getName(), d.getValue())));
+				entries.add(map);
+			}
+		}
+
+		private List<DataFieldContainer> readEntry() {
+			List<DataFieldContainer> list = new ArrayList<>(List.of(
+					DataField.time(data),
+					analogue("Heizkreis", "TVL", 10.0, 10, data),								// [4 :5 ] TVL
+					analogue("Heizkreis", "TRL", 10.0, 10, data),								// [6 :7 ] TRL
+					analogue("Heizkreis", "TWQein", 10.0, 10, data),							// [8 :9 ] TWQein
+					analogue("Heizkreis", "TWQaus", 10.0, 10, data),							// [10:11] TWQaus
+					analogue("Heizkreis", "THG", 10.0, 10, data),								// [12:13] THG
+					analogue("Heizkreis", "TBW", 10.0, 10, data),								// [14:15] TBW
+					analogue("Heizkreis", "TFB1", 10.0, 10, data),								// [16:17] TFB1
+					analogue("Heizkreis", "TA", 10.0, 10, data),								// [18:19] TA
+					analogue("Heizkreis", "TRLext", 10.0, 10, data),							// [20:21] TRLext
+					analogue("Heizkreis", "TRLsoll", 10.0, 10, data),							// [22:23] TRLsoll
+					analogue("Heizkreis", "TMK1soll", 10.0, 10, data),							// [24:25] TMK1soll
+					DataField.digital("Digitale Eingänge", data,													// [26:27] StatusE = Status der Eingaenge (die Bits sind invertiert zur Funktion)
+							DataField.bit("HD", 0),																//   bit 0:  HD_  = Hochdruckpressostat
+							DataField.bit("ND", 1),																//   bit 1:  ND_  = Niederdruckpressostat
+							DataField.bit("MOT", 2),																//   bit 2:  MOT_ = Motorschutz			/* Die Angaben zur Invertierung sind wiedersprüchlich zur Dokumentation! */
+							DataField.bit("ASD", 3),																//   bit 3:  ASD_ = Abtau/Soledruck/Durchfluss
+							DataField.bit("EVU", 4, true)													//   bit 4:  EVU  = EVU Sperre
+							),
+					DataField.digital("Digitale Ausgänge", data,													// [28:29]   StatusA = Status der Ausgaenge
+							DataField.bit("HUP", 0),																//   bit 0:  HUP  = Heizungsumwaelzpumpe
+							DataField.bit("ZUP", 1),																//   bit 1:  ZUP  = Zusatzumwaelzpumpe
+							DataField.bit("BUP", 2),																//   bit 2:  BUP  = Brauswarmwasserumwaelzpumpe oder Drei-Wege-Ventil auf Brauchwassererwaermung
+							DataField.bit("ZW2", 3),																//   bit 3:  ZW2  = Zusaetzlicher Waermeerzeuger 2 / Sammelstoerung
+							DataField.bit("MA1", 4),																//   bit 4:  MA1  = Mischer 1 auf
+							DataField.bit("MZ1", 5),																//   bit 5:  MZ1  = Mischer 1 zu
+							DataField.bit("ZIP", 6),																//   bit 6:  ZIP  = Zirkulationspumpe
+							DataField.bit("VD1", 7),																//   bit 7:  VD1  = Verdichter 1
+							DataField.bit("VD2", 8),																//   bit 8:  VD2  = Verdichter 2
+							DataField.bit("VENT", 9),																//   bit 9:  VENT = Ventilation des WP Gehaeses / 2. Stufe des Ventilators
+							DataField.bit("AV", 10),																//   bit 10: AV   = Abtauventil (Kreislaufumkehr)
+							DataField.bit("VBS", 11),																//   bit 11: VBS  = Ventilator, Brunnen- oder Soleumwaelzpumpe
+							DataField.bit("ZW1", 12)																//   bit 12: ZW1  = Zusaetzlicher Waermeerzeuger 1
+					),
+					DataField.unknown(2, data),																		// [30:31]
+					analogue("Heizkreis", "TSS", 10.0, 10, data),								// [32:33] TSS
+					analogue("Heizkreis", "TSK", 10.0, 10, data),								// [34:35] TSK
+					analogue("Heizkreis", "TFB2", 10.0, 10, data),								// [36:37] TFB2
+					analogue("Heizkreis", "TFB3", 10.0, 10, data),								// [38:39] TFB3
+					analogue("Heizkreis", "TEE", 10.0, 10, data),								// [40:41] TEE
+					DataField.unknown(4, data),																		// [42:45]
+					analogue("Heizkreis", "TMK2soll", 10.0, 10, data),							// [46:47] TMK2soll
+					analogue("Heizkreis", "TMK3soll", 10.0, 10, data),							// [48:49] TMK3soll
+					analogue("Heizkreis", "AI1", 1000.0, 1000, data),							// [50:51] AI
+					analogue("Heizkreis", "AO1", 1000.0, 1000, data)							// [52:53] AO1
+			));
+
+			if (subVer > 0 && subVer <= 3) {
+				list.addAll(List.of(
+						analogue("Heizkreis", "AO2", 1000.0, 1000, data),						// [54:55] AO2
+						DataField.unknown(2, data),																	// [56:57]
+						analogue("Heizkreis", "Asg.VDi", 10.0, 10, data),						// [58:59] Ansaug Verdichter
+						analogue("Heizkreis", "Asg.VDa", 10.0, 10, data),						// [60:61] Ansaug Verdampfer
+						analogue("Heizkreis", "VDHz", 10.0, 10, data),							// [62:63] VD Heizung
+						DataField.unknown(8, data)																	// [64:71]
+				));
+			}
+
+			if (subVer == 1 || subVer == 3) {
+				list.addAll(List.of(
+						DataField.unknown(2, data),																	// [72:73]
+						analogue("Heizkreis", "UeHz", 10.0, 10, data),							// [74:75] Ueberhitzung
+						analogue("Heizkreis", "UeHzsoll", 10.0, 10, data),						// [76:77] Ueberhiztung Sollwert
+						DataField.unknown(2, data)																	// [78:79]
+				));
+			}
+
+			if (subVer == 3) {
+				list.add(DataField.unknown(18, data));
+			}
+
+			return list;
+		}
+
+		private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer) {
+			return analogue(category, name, factor, precision, buffer, false);
+		}
+
+		private DataFieldContainer analogue(String category, String name, double factor, int precision, ByteBuffer buffer, boolean highbytes) {
+
+			int val = highbytes ? buffer.getInt() : buffer.getShort();
+			double res = (val / factor * precision) / precision;
+
+			Value<Number> value = Value.of(res/10);
+			return DataFieldContainer.single(category, name, value);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package io.github.moehreag.dtaplot.dta.versioned;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.dta.DtaParser;
+import io.github.moehreag.dtaplot.dta.SampleFiles;
+
+/**
+ * Compares decoding with the precompiled record layouts against the legacy per-record decoding,
+ * on the same sample files the tests use. Run with {@code gradle :common:benchmark}.
+ */
+public class RecordLayoutBenchmark {
+
+	private static final int RUNS = 15;
+
+	public static void main(String[] args) {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		for (int version : new int[]{8208, 8209}) {
+			byte[] file = SampleFiles.dta8209(version, records, version);
+			compare("DTA " + version, records, file, LegacyDecoders::decode8209);
+		}
+		for (int subVer = 0; subVer < 4; subVer++) {
+			// the header holds the number of records in a short
+			byte[] file = SampleFiles.dta9001(subVer, Math.min(records, Short.MAX_VALUE), subVer);
+			compare("DTA 9001." + subVer, Math.min(records, Short.MAX_VALUE), file, LegacyDecoders::decode9001);
+		}
+	}
+
+	private static void compare(String name, int records, byte[] file, Function<byte[], List<Map<String, Value<?>>>> legacy) {
+		long before = best(() -> legacy.apply(file));
+		long columns = best(() -> DtaParser.get(file));
+		// the legacy decoders build the datapoints right away, the layouts only on request
+		long datapoints = best(() -> DtaParser.get(file).getDatapoints());
+		System.out.printf("%-13s %7d records: legacy %6d ms, layout %6d ms, with datapoints %6d ms%n",
+				name, records, before, columns, datapoints);
+	}
+
+	// the best of several runs, the first ones warm up the JIT
+	private static long best(Runnable parse) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			parse.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1_000_000;
+	}
+}
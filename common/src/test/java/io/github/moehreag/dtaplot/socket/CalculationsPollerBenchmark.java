@@ -0,0 +1,51 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls fake controllers as fast as they answer, once with the single thread of the {@link CalculationsPoller}
+ * and once with a polling thread per {@link TcpSocket}, and prints the frames per second of both.
+ * Run with {@code gradle :common:pollerBenchmark}.
+ */
+public class CalculationsPollerBenchmark {
+
+	// a new poll as soon as the last one is done
+	private static final Duration INTERVAL = Duration.ofMillis(1);
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		try (FakeControllers controllers = new FakeControllers(count)) {
+			AtomicInteger frames = new AtomicInteger();
+			long start = System.nanoTime();
+			try (CalculationsPoller poller = CalculationsPoller.start(INTERVAL, (address, calculations) -> frames.incrementAndGet())) {
+				controllers.getAddresses().forEach(poller::add);
+				Thread.sleep(seconds * 1000L);
+			}
+			report("CalculationsPoller", count, frames.get(), start);
+
+			frames.set(0);
+			start = System.nanoTime();
+			List<TcpSocket> sockets = new ArrayList<>();
+			for (InetSocketAddress address : controllers.getAddresses()) {
+				TcpSocket socket = TcpSocket.of(address);
+				socket.subscribe(calculations -> frames.incrementAndGet());
+				socket.poll(INTERVAL);
+				sockets.add(socket);
+			}
+			Thread.sleep(seconds * 1000L);
+			sockets.forEach(TcpSocket::close);
+			report("TcpSocket.poll", count, frames.get(), start);
+		}
+	}
+
+	private static void report(String name, int controllers, int frames, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-18s %4d controllers: %8d frames in %.1f s, %8.0f frames/s%n",
+				name, controllers, frames, seconds, frames / seconds);
+	}
+}
@@ -0,0 +1,173 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import io.github.moehreag.dtaplot.Constants;
+import io.github.moehreag.dtaplot.socket.tcp.Calculations;
+import org.junit.jupiter.api.Test;
+
+import static io.github.moehreag.dtaplot.socket.FakeControllers.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalculationsPollerTest {
+
+	private static final Duration INTERVAL = Duration.ofMillis(200);
+	private static final int CONTROLLERS = 120;
+
+	private static Map<String, Object> plain(Calculations calculations) {
+		Map<String, Object> map = new HashMap<>();
+		calculations.getValues().forEach(values -> values.forEach((key, value) -> map.put(key, value.get())));
+		return map;
+	}
+
+	private static Map<String, Object> expected(int id) {
+		Calculations calculations = new Calculations();
+		calculations.read(FakeControllers.calculations(id));
+		return plain(calculations);
+	}
+
+	private static int count(Map<InetSocketAddress, AtomicInteger> frames, InetSocketAddress address) {
+		AtomicInteger count = frames.get(address);
+		return count == null ? 0 : count.get();
+	}
+
+	@Test
+	void pollsEveryController() throws Exception {
+		try (FakeControllers controllers = new FakeControllers(CONTROLLERS)) {
+			Map<InetSocketAddress, Integer> ids = new HashMap<>();
+			for (int id = 0; id < CONTROLLERS; id++) {
+				ids.put(controllers.get(id).getAddress(), id);
+			}
+			Map<InetSocketAddress, AtomicInteger> frames = new ConcurrentHashMap<>();
+			List<String> wrong = Collections.synchronizedList(new ArrayList<>());
+
+			try (CalculationsPoller poller = CalculationsPoller.start(INTERVAL, (address, calculations) -> {
+				frames.computeIfAbsent(address, a -> new AtomicInteger()).incrementAndGet();
+				Map<String, Object> values = plain(calculations);
+				if (!values.equals(expected(ids.get(address)))) {
+					wrong.add(address + ": " + values.get("Unknown_Calculation_0"));
+				}
+			})) {
+				controllers.getAddresses().forEach(poller::add);
+				await("five polls of every controller",
+						() -> ids.keySet().stream().allMatch(address -> count(frames, address) >= 5));
+			}
+
+			assertEquals(List.of(), wrong);
+			assertEquals(ids.keySet(), frames.keySet());
+		}
+	}
+
+	@Test
+	void failuresStayWithTheirController() throws Exception {
+		try (FakeControllers controllers = new FakeControllers(4);
+			 // accepts connections but never answers
+			 ServerSocket silent = new ServerSocket(0, 8, InetAddress.getLoopbackAddress())) {
+			List<Socket> accepted = Collections.synchronizedList(new ArrayList<>());
+			Thread acceptor = new Thread(() -> {
+				try {
+					while (true) {
+						accepted.add(silent.accept());
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			});
+			acceptor.setDaemon(true);
+			acceptor.start();
+
+			FakeControllers.Controller broken = controllers.get(3);
+			broken.setBroken(true);
+			// nothing listens on the port of a closed server socket
+			InetSocketAddress refused;
+			try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+				refused = new InetSocketAddress(InetAddress.getLoopbackAddress(), closed.getLocalPort());
+			}
+
+			Map<InetSocketAddress, AtomicInteger> frames = new ConcurrentHashMap<>();
+			InetSocketAddress first = controllers.get(0).getAddress(), removed = controllers.get(1).getAddress();
+			try (CalculationsPoller poller = CalculationsPoller.start(INTERVAL, (address, calculations) -> {
+				frames.computeIfAbsent(address, a -> new AtomicInteger()).incrementAndGet();
+				if (address.equals(first)) {
+					throw new IllegalStateException("a callback that fails");
+				}
+			})) {
+				controllers.getAddresses().forEach(poller::add);
+				poller.add(refused);
+				poller.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), silent.getLocalPort()));
+
+				await("four polls of the healthy controllers",
+						() -> IntStream.range(0, 3).allMatch(id -> count(frames, controllers.get(id).getAddress()) >= 4));
+				// connected, but still waiting for the first response
+				await("a connection to the silent controller", () -> !accepted.isEmpty());
+				assertEquals(0, count(frames, broken.getAddress()));
+				assertEquals(0, count(frames, refused));
+
+				// connects again once the controller is back
+				broken.setBroken(false);
+				await("a poll of the repaired controller", () -> count(frames, broken.getAddress()) > 0);
+
+				// a poll may still be under way when the controller is removed, none starts after that
+				poller.remove(removed);
+				int polls = count(frames, first);
+				await("two more polls", () -> count(frames, first) >= polls + 2);
+				int polled = count(frames, removed);
+				await("two more polls", () -> count(frames, first) >= polls + 4);
+				assertEquals(polled, count(frames, removed));
+			}
+			for (Socket socket : accepted) {
+				socket.close();
+			}
+		}
+	}
+
+	@Test
+	void readsFramesSplitAcrossReads() throws Exception {
+		// answers byte by byte, so the header and the payload arrive in pieces
+		byte[] frame = ByteBuffer.allocate(12 + FakeControllers.CALCULATIONS * 4)
+				.putInt(Constants.CALCULATIONS_READ).putInt(0).putInt(FakeControllers.CALCULATIONS)
+				.put(toBytes(FakeControllers.calculations(7))).array();
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Thread thread = new Thread(() -> {
+				try (Socket socket = server.accept()) {
+					socket.setTcpNoDelay(true);
+					while (true) {
+						socket.getInputStream().readNBytes(8);
+						for (byte b : frame) {
+							socket.getOutputStream().write(b);
+							socket.getOutputStream().flush();
+						}
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+
+			List<Map<String, Object>> received = Collections.synchronizedList(new ArrayList<>());
+			try (CalculationsPoller poller = CalculationsPoller.start(INTERVAL,
+					(address, calculations) -> received.add(plain(calculations)))) {
+				poller.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+				await("two frames", () -> received.size() >= 2);
+			}
+			received.forEach(values -> assertEquals(expected(7), values));
+		}
+	}
+
+	private static byte[] toBytes(int[] data) {
+		ByteBuffer buf = ByteBuffer.allocate(data.length * 4);
+		buf.asIntBuffer().put(data);
+		return buf.array();
+	}
+}
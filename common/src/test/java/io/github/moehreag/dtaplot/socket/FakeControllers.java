@@ -0,0 +1,237 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import io.github.moehreag.dtaplot.Constants;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Heat pump controllers on local ports that answer the TCP requests like real ones, all served by one selector thread.
+ * <p>
+ * The values alternate between 0 and 1, which every datatype reads, except for the first parameter and calculation,
+ * which hold the id of the controller.
+ */
+public class FakeControllers implements AutoCloseable {
+
+	public static final int PARAMETERS = 1108, CALCULATIONS = 267, VISIBILITIES = 325;
+	// far longer than the conditions take, only a hanging client runs into it
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	private final List<Controller> controllers = new ArrayList<>();
+	private final Selector selector;
+	private final Thread thread;
+
+	public FakeControllers(int count) throws IOException {
+		selector = Selector.open();
+		for (int i = 0; i < count; i++) {
+			ServerSocketChannel server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress("127.0.0.1", 0), 64);
+			server.configureBlocking(false);
+			Controller controller = new Controller(i, (InetSocketAddress) server.getLocalAddress());
+			server.register(selector, SelectionKey.OP_ACCEPT, controller);
+			controllers.add(controller);
+		}
+		thread = new Thread(this::serve, "FakeControllers");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public Controller get(int id) {
+		return controllers.get(id);
+	}
+
+	public List<InetSocketAddress> getAddresses() {
+		return controllers.stream().map(Controller::getAddress).toList();
+	}
+
+	/**
+	 * Waits until the condition holds, checking it every few milliseconds.
+	 */
+	public static void await(String what, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() - deadline > 0) {
+				fail("Timed out waiting for " + what);
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * @return the calculations the controller with the id answers with
+	 */
+	public static int[] calculations(int id) {
+		int[] data = new int[CALCULATIONS];
+		for (int i = 0; i < CALCULATIONS; i++) {
+			data[i] = i == 0 ? id : i % 2;
+		}
+		return data;
+	}
+
+	private void serve() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				selector.select();
+				for (SelectionKey key : selector.selectedKeys()) {
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+						if (channel != null) {
+							channel.configureBlocking(false);
+							channel.register(selector, SelectionKey.OP_READ, new Connection((Controller) key.attachment()));
+						}
+					} else if (key.isReadable()) {
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (!connection.read((SocketChannel) key.channel())) {
+								key.channel().close();
+							}
+						} catch (IOException e) {
+							key.channel().close();
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			// closed
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		thread.interrupt();
+		for (SelectionKey key : selector.keys()) {
+			key.channel().close();
+		}
+		selector.close();
+	}
+
+	public static class Controller {
+
+		private final int id;
+		private final InetSocketAddress address;
+		private final int[] parameters = new int[PARAMETERS];
+		private final List<int[]> writes = new CopyOnWriteArrayList<>();
+		private final AtomicInteger requests = new AtomicInteger();
+		private volatile boolean broken;
+
+		private Controller(int id, InetSocketAddress address) {
+			this.id = id;
+			this.address = address;
+			for (int i = 0; i < PARAMETERS; i++) {
+				parameters[i] = i == 0 ? id : i % 2;
+			}
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public InetSocketAddress getAddress() {
+			return address;
+		}
+
+		/**
+		 * @return the index and value of every parameter written, in order
+		 */
+		public List<int[]> getWrites() {
+			return writes;
+		}
+
+		public int getRequests() {
+			return requests.get();
+		}
+
+		/**
+		 * A broken controller closes every connection on the next request instead of answering it.
+		 */
+		public void setBroken(boolean broken) {
+			this.broken = broken;
+		}
+
+		private ByteBuffer answer(int cmd, int index, int value) {
+			ByteBuffer out;
+			switch (cmd) {
+				case Constants.PARAMETERS_READ -> {
+					out = ByteBuffer.allocate(8 + PARAMETERS * 4).putInt(cmd).putInt(PARAMETERS);
+					synchronized (parameters) {
+						for (int parameter : parameters) {
+							out.putInt(parameter);
+						}
+					}
+				}
+				case Constants.CALCULATIONS_READ -> {
+					out = ByteBuffer.allocate(12 + CALCULATIONS * 4).putInt(cmd).putInt(0).putInt(CALCULATIONS);
+					for (int calculation : calculations(id)) {
+						out.putInt(calculation);
+					}
+				}
+				case Constants.VISIBILITIES_READ -> {
+					out = ByteBuffer.allocate(8 + VISIBILITIES).putInt(cmd).putInt(VISIBILITIES);
+					for (int i = 0; i < VISIBILITIES; i++) {
+						out.put((byte) (i % 2));
+					}
+				}
+				case Constants.PARAMETERS_WRITE -> {
+					writes.add(new int[]{index, value});
+					synchronized (parameters) {
+						parameters[index] = value;
+					}
+					out = ByteBuffer.allocate(8).putInt(cmd).putInt(index);
+				}
+				default -> throw new IllegalArgumentException("Unknown command: " + cmd);
+			}
+			return out.flip();
+		}
+	}
+
+	private static class Connection {
+
+		private final Controller controller;
+		private final ByteBuffer in = ByteBuffer.allocate(12);
+
+		private Connection(Controller controller) {
+			this.controller = controller;
+		}
+
+		/**
+		 * @return whether the connection stays open
+		 */
+		private boolean read(SocketChannel channel) throws IOException {
+			if (channel.read(in) == -1) {
+				return false;
+			}
+			while (in.position() >= 8) {
+				int cmd = in.getInt(0);
+				int length = cmd == Constants.PARAMETERS_WRITE ? 12 : 8;
+				if (in.position() < length) {
+					break;
+				}
+				if (controller.broken) {
+					return false;
+				}
+				controller.requests.incrementAndGet();
+				ByteBuffer out = controller.answer(cmd, in.getInt(4), length == 12 ? in.getInt(8) : 0);
+				// the answers are small enough for the socket buffer
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+				in.flip().position(length);
+				in.compact();
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package io.github.moehreag.dtaplot.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import io.github.moehreag.dtaplot.socket.tcp.Calculations;
+import io.github.moehreag.dtaplot.socket.tcp.Parameters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.github.moehreag.dtaplot.socket.FakeControllers.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpSocketTest {
+
+	private FakeControllers controllers;
+
+	@BeforeEach
+	void start() throws IOException {
+		controllers = new FakeControllers(3);
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		controllers.getAddresses().forEach(address -> TcpSocket.of(address).close());
+		controllers.close();
+	}
+
+	@Test
+	void writesTheParametersBackToTheControllerTheyCameFrom() {
+		FakeControllers.Controller a = controllers.get(1), b = controllers.get(2);
+		TcpSocket.readAll(a.getAddress());
+		TcpSocket.readAll(b.getAddress());
+
+		Parameters written = TcpSocket.write(a.getAddress());
+		List<int[]> writes = a.getWrites();
+		assertEquals(FakeControllers.PARAMETERS, writes.size());
+		for (int i = 0; i < writes.size(); i++) {
+			assertEquals(i, writes.get(i)[0]);
+		}
+		assertEquals(a.getId(), writes.get(0)[1]);
+		assertTrue(b.getWrites().isEmpty());
+		// read again afterwards, over a connection that is still in step
+		assertEquals(a.getId(), written.getValues().iterator().next().get("ID_Transfert_LuxNet").get());
+	}
+
+	@Test
+	void writeFailsWithoutParametersRead() {
+		InetSocketAddress address = controllers.get(0).getAddress();
+		assertThrows(IllegalStateException.class, () -> TcpSocket.write(address));
+		assertEquals(0, controllers.get(0).getRequests());
+	}
+
+	@Test
+	void sharedConnectionStaysOpenUntilTheLastClose() throws InterruptedException {
+		FakeControllers.Controller controller = controllers.get(0);
+		InetSocketAddress address = controller.getAddress();
+		TcpSocket first = TcpSocket.of(address), second = TcpSocket.of(address);
+		assertSame(first, second);
+		AtomicInteger polls = new AtomicInteger();
+		Consumer<Calculations> subscriber = calculations -> polls.incrementAndGet();
+		second.subscribe(subscriber);
+		second.poll(Duration.ofMillis(20));
+		await("a poll", () -> polls.get() > 0);
+
+		// a view that goes away, the other one keeps being polled
+		first.close();
+		int before = polls.get();
+		await("polls after the first close", () -> polls.get() >= before + 3);
+		second.close();
+
+		TcpSocket again = TcpSocket.of(address);
+		assertNotSame(second, again);
+		again.close();
+		second.unsubscribe(subscriber);
+	}
+
+	@Test
+	void oneOffCallsLeaveNoConnectionBehind() {
+		FakeControllers.Controller a = controllers.get(1), b = controllers.get(2);
+		TcpSocket.readAll(a.getAddress());
+		TcpSocket.readAll(b.getAddress());
+		TcpSocket.write(a.getAddress());
+		assertFalse(TcpSocket.CONNECTIONS.containsKey(a.getAddress()));
+		assertFalse(TcpSocket.CONNECTIONS.containsKey(b.getAddress()));
+
+		// while a view uses the connection it stays shared
+		TcpSocket view = TcpSocket.of(a.getAddress());
+		TcpSocket.readAll(a.getAddress());
+		assertSame(view, TcpSocket.CONNECTIONS.get(a.getAddress()));
+		view.close();
+		assertFalse(TcpSocket.CONNECTIONS.containsKey(a.getAddress()));
+	}
+}
@@ -0,0 +1,100 @@
+package io.github.moehreag.dtaplot.socket.tcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataVectorTest {
+
+	private static final int LENGTH = 267;
+
+	// a poll that differs from the previous one in a few places, and sometimes in length,
+	// with values of 0 and 1 that every datatype reads
+	private static int[] next(int[] frame, Random random) {
+		int length = switch (random.nextInt(4)) {
+			case 0 -> LENGTH - random.nextInt(20);
+			case 1 -> LENGTH + random.nextInt(20);
+			default -> frame.length;
+		};
+		int[] next = new int[length];
+		for (int i = 0; i < length; i++) {
+			next[i] = i < frame.length ? frame[i] : random.nextInt(2);
+		}
+		for (int i = random.nextInt(length / 10); i >= 0; i--) {
+			int index = random.nextInt(length);
+			next[index] = 1 - next[index];
+		}
+		return next;
+	}
+
+	private static List<String> compare(int[] old, int[] current) {
+		List<String> changes = new ArrayList<>();
+		for (int i = 0; i < Math.max(old.length, current.length); i++) {
+			int oldValue = i < old.length ? old[i] : 0, newValue = i < current.length ? current[i] : 0;
+			if (i >= old.length || i >= current.length || oldValue != newValue) {
+				changes.add(i + ": " + oldValue + " -> " + newValue);
+			}
+		}
+		return changes;
+	}
+
+	private static List<String> plain(List<DataVector.Change> changes) {
+		return changes.stream().map(change -> change.index() + ": " + change.oldValue() + " -> " + change.newValue()).toList();
+	}
+
+	@ParameterizedTest
+	@ValueSource(longs = {1, 2, 3, 4, 5})
+	void changesMatchComparingElementByElement(long seed) {
+		Random random = new Random(seed);
+		int[] frame = new int[LENGTH];
+		Calculations previous = null;
+		int[] old = new int[0];
+		for (int poll = 0; poll < 200; poll++) {
+			frame = next(frame, random);
+			Calculations calculations = new Calculations();
+			calculations.read(frame);
+
+			List<DataVector.Change> changes = calculations.changes(previous);
+			assertEquals(compare(old, frame), plain(changes), "poll " + poll);
+			for (DataVector.Change change : changes) {
+				assertEquals(calculations.get(change.index()) == null ? "Unknown_Calculations_" + change.index()
+						: calculations.get(change.index()).getName(), change.type().getName());
+			}
+			previous = calculations;
+			old = frame;
+		}
+	}
+
+	@Test
+	void keepsTheFrameApartFromTheArrayRead() {
+		int[] frame = new int[LENGTH];
+		Calculations previous = new Calculations();
+		previous.read(frame);
+		// a poller that reads the next frame into the same array
+		frame[12] = 5;
+		Calculations current = new Calculations();
+		current.read(frame);
+
+		assertEquals(List.of("12: 0 -> 5"), plain(current.changes(previous)));
+	}
+
+	@Test
+	void trackerHandsOnWhatChanged() {
+		List<List<String>> received = new ArrayList<>();
+		ChangeTracker<Calculations> tracker = new ChangeTracker<>(changes -> received.add(plain(changes)));
+		int[] frame = new int[3];
+		for (int value : new int[]{0, 0, 7}) {
+			frame[1] = value;
+			Calculations calculations = new Calculations();
+			calculations.read(frame);
+			tracker.accept(calculations);
+		}
+		assertEquals(List.of(List.of("0: 0 -> 0", "1: 0 -> 0", "2: 0 -> 0"), List.of("1: 0 -> 7")), received);
+	}
+}
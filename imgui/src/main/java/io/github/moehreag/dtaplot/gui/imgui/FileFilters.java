@@ -4,16 +4,23 @@ import javax.imageio.ImageIO;
 import java.util.Locale;
 
 import io.github.moehreag.dtaplot.Translations;
+import io.github.moehreag.dtaplot.data.ColumnarFile;
 
 public class FileFilters {
 
 	public static final String ALL = ".*";
-	public static final String OPEN = Dialogs.concatFileFilters(Dialogs.buildFileFilter(tr("filter.supported"), "json", "dta"),
+	private static final String COLUMNAR = ColumnarFile.EXTENSION.substring(1);
+	private static final String COMPRESSED = ColumnarFile.COMPRESSED_EXTENSION.substring(1);
+	public static final String OPEN = Dialogs.concatFileFilters(Dialogs.buildFileFilter(tr("filter.supported"), "json", "dta", COLUMNAR, COMPRESSED),
 			Dialogs.buildFileFilter(tr("filter.json"), "json"),
-			Dialogs.buildFileFilter(tr("filter.dta"), "dta"));
+			Dialogs.buildFileFilter(tr("filter.dta"), "dta"),
+			Dialogs.buildFileFilter(tr("filter.columnar"), COLUMNAR),
+			Dialogs.buildFileFilter(tr("filter.compressed"), COMPRESSED));
 
 	public static final String EXPORT = buildImageFileFilter();
 	public static final String SAVE = Dialogs.buildFileFilter(tr("filter.json"), "json");
+	public static final String SAVE_PLOT = Dialogs.concatFileFilters(SAVE, Dialogs.buildFileFilter(tr("filter.columnar"), COLUMNAR),
+			Dialogs.buildFileFilter(tr("filter.compressed"), COMPRESSED));
 
 	private static String buildImageFileFilter(){
 		String[] suffixes = ImageIO.getWriterFileSuffixes();
@@ -1,10 +1,5 @@
 package io.github.moehreag.dtaplot.gui.imgui;
 
-import java.net.InetSocketAddress;
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.HashSet;
@@ -13,6 +8,10 @@ import java.util.Set;
 
 import io.github.moehreag.dtaplot.DataLoader;
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.Archive;
+import io.github.moehreag.dtaplot.data.ColumnarFile;
+import io.github.moehreag.dtaplot.data.Rollups;
+import io.github.moehreag.dtaplot.dta.DtaParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,19 +19,25 @@ public class FileHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger("FileHandler");
 
-	public static URL getNewProcUri(InetSocketAddress address){
-		try {
-			return URI.create("http://"+address.getHostString()+"/NewProc").toURL();
-		} catch (MalformedURLException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
 	public static void open(Path file) {
 		if (file.getFileName().toString().endsWith(".dta")) {
 			try {
-				byte[] bytes = Files.readAllBytes(file);
-				App.View.PLOT.getComponent().load(bytes);
+				App.View.PLOT.getComponent().load(DtaParser.get(file, DtaParser.options().parallel(true)));
+				App.getInstance().setView(App.View.PLOT);
+			} catch (Exception ex) {
+				LOGGER.error("Failed to load file: ", ex);
+			}
+		} else if (Archive.isArchive(file)) {
+			try {
+				LOGGER.info("Loading the last " + Archive.RECENT_DAYS + " days of the archive..");
+				App.View.PLOT.getComponent().load(Archive.open(file.toAbsolutePath().getParent()));
+				App.getInstance().setView(App.View.PLOT);
+			} catch (Exception ex) {
+				LOGGER.error("Failed to load file: ", ex);
+			}
+		} else if (ColumnarFile.isColumnarFile(file)) {
+			try {
+				App.View.PLOT.getComponent().load(ColumnarFile.read(file).toDatapoints());
 				App.getInstance().setView(App.View.PLOT);
 			} catch (Exception ex) {
 				LOGGER.error("Failed to load file: ", ex);
@@ -46,7 +51,7 @@ public class FileHandler {
 			if (keys.contains("time")) {
 				LOGGER.info("Loading plot..");
 				App.getInstance().setView(App.View.PLOT);
-				App.View.PLOT.getComponent().load(data);
+				App.View.PLOT.getComponent().load(data, Rollups.read(file));
 			} else if (keys.stream().anyMatch(s -> s.startsWith("ID"))) {
 				LOGGER.info("Loading tcp table..");
 				App.getInstance().setView(App.View.TCP);
@@ -27,7 +27,8 @@ public class MenuBar {
 						});
 					}),
 					MenuEntry.handler(tr("action.save"), open -> {
-						Dialogs.showSaveDialog("menu_save", () -> open, FileFilters.SAVE)
+						Dialogs.showSaveDialog("menu_save", () -> open,
+										App.getInstance().getCurrentView() == App.View.PLOT ? FileFilters.SAVE_PLOT : FileFilters.SAVE)
 								.ifPresent(path ->
 										DataLoader.getInstance().save(App.getInstance()
 												.getCurrentView().getComponent().getData(), path));
@@ -18,5 +18,6 @@ public class SocketLoader {
 	public static void loadTCP(InetSocketAddress address, TcpComponent component) {
 
 		component.load(TcpSocket.readAll(address));
+		component.follow(address);
 	}
 }
@@ -1,32 +1,43 @@
 package io.github.moehreag.dtaplot.gui.imgui.component;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 import imgui.ImGui;
 import imgui.ImVec2;
 import imgui.extension.implot.ImPlot;
+import imgui.extension.implot.ImPlotRange;
 import imgui.extension.implot.flag.ImPlotAxisFlags;
 import imgui.extension.implot.flag.ImPlotFlags;
 import imgui.extension.implot.flag.ImPlotLocation;
 import imgui.extension.implot.flag.ImPlotOrientation;
+import imgui.extension.implot.flag.ImPlotYAxis;
 import imgui.flag.ImGuiDataType;
 import imgui.flag.ImGuiSliderFlags;
+import imgui.flag.ImGuiWindowFlags;
 import imgui.type.ImInt;
+import imgui.type.ImString;
 import io.github.moehreag.dtaplot.DataLoader;
 import io.github.moehreag.dtaplot.Pair;
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.Archive;
+import io.github.moehreag.dtaplot.data.PlotWindow;
+import io.github.moehreag.dtaplot.data.Rollups;
+import io.github.moehreag.dtaplot.data.Transitions;
 import io.github.moehreag.dtaplot.dta.DtaFile;
 import io.github.moehreag.dtaplot.dta.DtaParser;
 import io.github.moehreag.dtaplot.gui.imgui.*;
+import io.github.moehreag.dtaplot.socket.ProcLogFetcher;
+import io.github.moehreag.dtaplot.socket.ProcLogRefresher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,16 +47,36 @@ public class PlotComponent extends ViewComponent {
 	private static final NumberFormat timeFormat = new DecimalFormat("00");
 
 	private final Map<String, Pair<Double[], Double[]>> displayedDatasets = new HashMap<>();
+	// of the digital datasets, which name their switch-on count
+	private final Map<String, String> legends = new HashMap<>();
 	private final Map<Integer, List<Pair<String, String>>> tableData = new HashMap<>();
 	private final Collection<Map<String, Value<?>>> data = new ArrayList<>();
+	// records of running downloads, handed over to the render thread
+	private final Queue<Collection<Map<String, Value<?>>>> pending = new ConcurrentLinkedQueue<>();
+	private final ProcLogRefresher refresher = new ProcLogRefresher();
 	private List<String> setNames = new ArrayList<>();
 	private final ImInt currentTime = new ImInt();
 	private int minTime, maxTime;
 	private final ImInt currentSet = new ImInt();
 	private boolean updated;
 	private final ImVec2 plotPos = new ImVec2(), plotSize = new ImVec2();
+	// the archive the plot shows a span of, null if it shows something else
+	private Archive archive;
+	private int archiveFrom, archiveTo;
+	private final ImString rangeFrom = new ImString(16), rangeTo = new ImString(16);
+	private boolean chooseRange;
+	private String rangeMessage;
+	// the rollups stored with the loaded file, dropped once other records are added
+	private Rollups rollups;
+	// what the plot draws of the records, the records themselves or rollups of them
+	private PlotWindow window;
+	private List<Map<String, Value<?>>> plotted = List.of();
 
 	public void draw(float width, float height) {
+		Collection<Map<String, Value<?>>> batch;
+		while ((batch = pending.poll()) != null) {
+			load(batch);
+		}
 		ImPlot.getStyle().setUseLocalTime(true);
 		ImPlot.getStyle().setUse24HourClock(true);
 		int autofit = 0;
@@ -55,8 +86,17 @@ public class PlotComponent extends ViewComponent {
 		}
 		if (ImPlot.beginPlot("##PlotGraph", tr("label.time"), "°C", new ImVec2(width * 2 / 3, height - 45), ImPlotFlags.NoTitle, ImPlotAxisFlags.Time | autofit, autofit)) {
 			ImPlot.setLegendLocation(ImPlotLocation.NorthEast, ImPlotOrientation.Vertical, false);
+			// the limits only follow the data after fitting it
+			if (window != null && autofit == 0) {
+				ImPlotRange x = ImPlot.getPlotLimits(ImPlotYAxis.YAxis_1).getX();
+				List<Map<String, Value<?>>> points = window.update((int) x.getMin(), (int) x.getMax(), (int) (width * 2 / 3));
+				if (points != null) {
+					plotted = points;
+					new ArrayList<>(displayedDatasets.keySet()).forEach(this::plotDataset);
+				}
+			}
 			displayedDatasets.forEach((s, data) -> {
-				ImPlot.plotLine(tr(s), data.getLeft(), data.getRight());
+				ImPlot.plotLine(legends.getOrDefault(s, tr(s)), data.getLeft(), data.getRight());
 			});
 
 			ImPlot.getPlotSize(plotSize);
@@ -104,6 +144,7 @@ public class PlotComponent extends ViewComponent {
 		ImGui.sameLine();
 		if (ImGui.button(tr("button.display"))) {
 			displayedDatasets.clear();
+			legends.clear();
 			displayDataset(setNames.get(currentSet.get()));
 		}
 		ImGui.sameLine();
@@ -114,6 +155,7 @@ public class PlotComponent extends ViewComponent {
 		if (ImGui.button(tr("button.remove"))) {
 			LOGGER.info("removing dataset: " + setNames.get(currentSet.get()));
 			displayedDatasets.remove(setNames.get(currentSet.get()));
+			legends.remove(setNames.get(currentSet.get()));
 		}
 	}
 
@@ -128,10 +170,17 @@ public class PlotComponent extends ViewComponent {
 		for (String key : keys) {
 			List<Double> values = new ArrayList<>();
 			for (Map<String, Value<?>> map : entries) {
-				if (!map.containsKey(key) || !(map.get(key).get() instanceof Number)) {
+				if (!map.containsKey(key)) {
+					continue;
+				}
+				double val;
+				if (map.get(key).get() instanceof Number n) {
+					val = n.doubleValue();
+				} else if (map.get(key).get() instanceof Boolean b) {
+					val = b ? 1 : 0;
+				} else {
 					continue;
 				}
-				double val = ((Number) map.get(key).get()).doubleValue();
 				if (!values.contains(val)) {
 					values.add(val);
 				}
@@ -147,45 +196,145 @@ public class PlotComponent extends ViewComponent {
 
 	private void displayDataset(String name) {
 		LOGGER.info("Adding set: " + name);
+		if (window == null) {
+			window = PlotWindow.of(data, rollups);
+			plotted = window.update(window.getStart(), window.getEnd(), (int) (ImGui.getIO().getDisplaySizeX() * 2 / 3));
+		}
+		if (isDigital(name)) {
+			Transitions transitions = Transitions.of(data, name);
+			legends.put(name, tr("label.switchOns", tr(name), transitions.countSwitchOns(transitions.getStart(), transitions.getEnd())));
+		}
+		plotDataset(name);
+		updated = true;
+	}
 
+	private void plotDataset(String name) {
 		List<Double> times = new ArrayList<>();
 		List<Double> values = new ArrayList<>();
 
-		getValidData(data).stream()
-				.sorted(Comparator.comparingInt(map -> ((Number) map.get("time").get()).intValue()))
-				.forEachOrdered((stringValueMap) -> {
-					int time = ((Number) stringValueMap.get("time").get()).intValue();
-
-					Value<?> value = stringValueMap.get(name);
-					if (value == null) {
-						return;
-					}
-					if (value.get() instanceof Number) {
-
-						double val = ((Number) value.get()).doubleValue();
-						times.add((double) time);
-						values.add(val);
-					}
-				});
+		if (isDigital(name)) {
+			// digital channels are drawn as steps between their toggles
+			Transitions transitions = Transitions.of(plotted, name);
+			for (Transitions.Run run : transitions.runs(transitions.getStart(), transitions.getEnd())) {
+				times.add((double) run.start());
+				values.add(run.state() ? 1d : 0d);
+				times.add((double) run.end());
+				values.add(run.state() ? 1d : 0d);
+			}
+		} else {
+			for (Map<String, Value<?>> map : plotted) {
+				Value<?> value = map.get(name);
+				if (value != null && value.get() instanceof Number n) {
+					times.add((double) ((Number) map.get("time").get()).intValue());
+					values.add(n.doubleValue());
+				}
+			}
+		}
 
 		displayedDatasets.put(name, Pair.of(times.toArray(Double[]::new), values.toArray(Double[]::new)));
-		updated = true;
+	}
+
+	private boolean isDigital(String name) {
+		return data.stream().map(map -> map.get(name)).filter(Objects::nonNull).findFirst()
+				.map(value -> value.get() instanceof Boolean).orElse(false);
 	}
 
 	public void clear() {
 		data.clear();
 		displayedDatasets.clear();
+		legends.clear();
 		setNames.clear();
 		currentSet.set(0);
 		tableData.clear();
+		refresher.clear();
+		archive = null;
+		rollups = null;
+		window = null;
+		plotted = List.of();
+	}
+
+	/**
+	 * Shows the last {@link Archive#RECENT_DAYS} days of an archive, the menu moves on to other spans.
+	 */
+	public void load(Archive archive) {
+		load(archive.loadRecent());
+		this.archive = archive;
+		archiveFrom = archive.getRecentStart();
+		archiveTo = archive.getEnd();
+	}
+
+	/**
+	 * Replaces the plotted records with those of the open archive within {@code [from, to]}.
+	 *
+	 * @return whether there were any
+	 */
+	private boolean showArchive(int from, int to) {
+		List<Map<String, Value<?>>> records = archive.load(from, to);
+		if (records.isEmpty()) {
+			LOGGER.info("No records in the archive between " + from + " and " + to);
+			return false;
+		}
+		Archive archive = this.archive;
+		clear();
+		load(records);
+		this.archive = archive;
+		archiveFrom = from;
+		archiveTo = to;
+		return true;
+	}
+
+	private void drawRangeDialog() {
+		String name = tr("dialog.range.title") + "##archiveRange";
+		if (chooseRange) {
+			chooseRange = false;
+			ImGui.openPopup(name);
+		}
+		if (ImGui.beginPopupModal(name, ImGuiWindowFlags.AlwaysAutoResize)) {
+			ImGui.inputText(tr("label.from"), rangeFrom);
+			ImGui.inputText(tr("label.to"), rangeTo);
+			if (rangeMessage != null) {
+				ImGui.text(tr(rangeMessage));
+			}
+			if (ImGui.button(tr("action.select"))) {
+				try {
+					ZoneId zone = ZoneId.systemDefault();
+					// whole days, the last one included
+					if (showArchive((int) LocalDate.parse(rangeFrom.get().trim()).atStartOfDay(zone).toEpochSecond(),
+							(int) LocalDate.parse(rangeTo.get().trim()).plusDays(1).atStartOfDay(zone).toEpochSecond() - 1)) {
+						ImGui.closeCurrentPopup();
+					} else {
+						rangeMessage = "dialog.range.empty";
+					}
+				} catch (DateTimeParseException e) {
+					rangeMessage = "dialog.range.invalid";
+				}
+			}
+			ImGui.sameLine();
+			if (ImGui.button(tr("action.cancel"))) {
+				ImGui.closeCurrentPopup();
+			}
+			ImGui.endPopup();
+		}
 	}
 
 	public void load(byte[] data) {
-		DtaFile file = DtaParser.get(data);
+		load(DtaParser.get(data));
+	}
+
+	public void load(DtaFile file) {
 		load(file.getDatapoints());
 	}
 
 	public void load(Collection<Map<String, Value<?>>> data) {
+		load(data, null);
+	}
+
+	/**
+	 * @param rollups the rollups stored with the records, used to draw them if nothing else is plotted yet
+	 */
+	public void load(Collection<Map<String, Value<?>>> data, Rollups rollups) {
+		this.rollups = this.data.isEmpty() ? rollups : null;
+		window = null;
 
 		String selected;
 		if (!setNames.isEmpty()) {
@@ -202,8 +351,13 @@ public class PlotComponent extends ViewComponent {
 
 		updateTableData(data);
 		if (displayedDatasets.isEmpty()) {
-			currentSet.set(0);
-			displayDataset(setNames.get(0));
+			if (!setNames.isEmpty()) {
+				currentSet.set(0);
+				displayDataset(setNames.get(0));
+			}
+		} else {
+			legends.clear();
+			new ArrayList<>(displayedDatasets.keySet()).forEach(this::displayDataset);
 		}
 	}
 
@@ -271,6 +425,21 @@ public class PlotComponent extends ViewComponent {
 					Dialogs.showOpenMultipleDialog("plot.addFile", () -> load, FileFilters.OPEN)
 							.ifPresent(c -> c.forEach(FileHandler::open));
 				}),
+				MenuBar.MenuEntry.simple(tr("action.archive.earlier"), () -> {
+					int span = archiveTo - archiveFrom;
+					showArchive(archiveFrom - span - 1, archiveFrom - 1);
+				}).enableIf(() -> archive != null && archiveFrom > archive.getStart()),
+				MenuBar.MenuEntry.simple(tr("action.archive.later"), () -> {
+					int span = archiveTo - archiveFrom;
+					showArchive(archiveTo + 1, archiveTo + span + 1);
+				}).enableIf(() -> archive != null && archiveTo < archive.getEnd()),
+				MenuBar.MenuEntry.of(tr("action.archive.range"), () -> {
+					ZoneId zone = ZoneId.systemDefault();
+					rangeFrom.set(LocalDate.ofInstant(Instant.ofEpochSecond(archiveFrom), zone).toString());
+					rangeTo.set(LocalDate.ofInstant(Instant.ofEpochSecond(archiveTo), zone).toString());
+					rangeMessage = null;
+					chooseRange = true;
+				}, this::drawRangeDialog).enableIf(() -> archive != null),
 				MenuBar.MenuEntry.handler(tr("action.append"), load -> {
 					Dialogs.showSaveDialog("plot.append", () -> load, FileFilters.OPEN)
 							.ifPresent(p -> DataLoader.getInstance().append(data, p));
@@ -284,12 +453,15 @@ public class PlotComponent extends ViewComponent {
 		);
 	}
 
-	private void load(InetSocketAddress address){
-		try (InputStream in = FileHandler.getNewProcUri(address).openStream()) {
-			load(in.readAllBytes());
-		} catch (IOException e) {
+	/**
+	 * Downloads the proc log of a heat pump, the records show up while the download is still running.
+	 * A heat pump that was loaded before only adds the records that are new since.
+	 */
+	public void load(InetSocketAddress address){
+		refresher.refresh(ProcLogFetcher.getUri(address), pending::add).exceptionally(e -> {
 			LOGGER.error("Failed to load file: ", e);
-		}
+			return null;
+		});
 	}
 
 	@Override
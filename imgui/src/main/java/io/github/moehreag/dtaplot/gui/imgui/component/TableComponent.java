@@ -10,12 +10,15 @@ import imgui.flag.ImGuiTableFlags;
 import imgui.type.ImString;
 import io.github.moehreag.dtaplot.Pair;
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.socket.tcp.DataVector;
 
 public class TableComponent extends ViewComponent {
 	protected final List<Pair<String, ?>> content = new ArrayList<>();
 	protected final ImString filter = new ImString();
 	private final String id = this.getClass().getSimpleName();
 	private final Collection<Map<String, Value<?>>> data = new ArrayList<>();
+	// the row of every key, for updating single values
+	private final Map<String, Integer> rows = new HashMap<>();
 
 	@Override
 	public void draw(float width, float height) {
@@ -59,7 +62,7 @@ public class TableComponent extends ViewComponent {
 			content.clear();
 			data.forEach(map -> {
 				map.forEach((s, value) -> {
-					String val = value.getUnit() != null ? String.valueOf(value.get()) : value.get() + value.getUnit();
+					String val = format(value);
 					if (value instanceof Value.Mutable<?> mut) {
 						ImString string = new ImString(val);
 						content.add(Pair.of(s, Pair.of(string, (Runnable) () -> {
@@ -71,9 +74,42 @@ public class TableComponent extends ViewComponent {
 				});
 			});
 			content.sort(Comparator.comparing(Pair::getLeft));
+			rows.clear();
+			for (int i = 0; i < content.size(); i++) {
+				rows.put(content.get(i).getLeft(), i);
+			}
+		}
+	}
+
+	/**
+	 * Updates the values that changed since the last poll, leaving the other rows as they are.
+	 */
+	public void update(List<DataVector.Change> changes) {
+		synchronized (content) {
+			for (DataVector.Change change : changes) {
+				String key = change.type().getName();
+				Integer row = rows.get(key);
+				if (row == null) {
+					continue;
+				}
+				Value<?> value = change.read();
+				for (Map<String, Value<?>> map : data) {
+					map.replace(key, value);
+				}
+				String val = format(value);
+				if (content.get(row).getRight() instanceof Pair<?, ?> pair) {
+					((ImString) pair.getLeft()).set(val);
+				} else {
+					content.set(row, Pair.of(key, val));
+				}
+			}
 		}
 	}
 
+	private static String format(Value<?> value) {
+		return value.getUnit() != null ? String.valueOf(value.get()) : value.get() + value.getUnit();
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T, B> void set(Value.Mutable<B> mut, T newVal) {
 		if (newVal instanceof String s) {
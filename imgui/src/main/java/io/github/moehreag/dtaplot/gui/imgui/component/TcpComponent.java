@@ -1,14 +1,48 @@
 package io.github.moehreag.dtaplot.gui.imgui.component;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.function.Consumer;
+
 import imgui.ImGui;
 import imgui.flag.ImGuiCond;
+import io.github.moehreag.dtaplot.Constants;
 import io.github.moehreag.dtaplot.gui.imgui.Dialogs;
 import io.github.moehreag.dtaplot.gui.imgui.DiscoveryDialog;
 import io.github.moehreag.dtaplot.gui.imgui.MenuBar;
 import io.github.moehreag.dtaplot.gui.imgui.SocketLoader;
 import io.github.moehreag.dtaplot.socket.TcpSocket;
+import io.github.moehreag.dtaplot.socket.tcp.Calculations;
+import io.github.moehreag.dtaplot.socket.tcp.ChangeTracker;
 
 public class TcpComponent extends TableComponent {
+	private TcpSocket socket;
+	private Consumer<Calculations> subscriber;
+
+	/**
+	 * Keeps the calculations of the controller up to date while the view is shown.
+	 */
+	public synchronized void follow(InetSocketAddress address) {
+		TcpSocket next = TcpSocket.of(address);
+		// leaves the connection open for the other views of the controller
+		if (socket != null) {
+			socket.unsubscribe(subscriber);
+			socket.close();
+		}
+		socket = next;
+		subscriber = new ChangeTracker<>(this::update);
+		socket.subscribe(subscriber);
+		socket.poll(Duration.ofMillis(Constants.POLL_INTERVAL));
+	}
+
+	@Override
+	public synchronized void unload() {
+		if (socket != null) {
+			socket.unsubscribe(subscriber);
+			socket.close();
+			socket = null;
+		}
+	}
 
 	@Override
 	public MenuBar.Menu getMenu() {
@@ -1,7 +1,5 @@
 package io.github.moehreag.dtaplot.gui.imgui.component;
 
-import java.io.InputStream;
-
 import imgui.ImColor;
 import imgui.ImGui;
 import imgui.flag.ImGuiCol;
@@ -40,12 +38,8 @@ public class WelcomeComponent extends ViewComponent {
 		Dialogs.showOpenDialog("welcome.open", () -> ImGui.button(ViewComponent.tr("action.open")), FileFilters.OPEN).ifPresent(FileHandler::open);
 		ImGui.sameLine();
 		Dialogs.showConnectDialog("w.load", () -> ImGui.button(ViewComponent.tr("action.load"))).ifPresent(address -> {
-			try (InputStream in = FileHandler.getNewProcUri(address).openStream()) {
-				App.View.PLOT.getComponent().load(in.readAllBytes());
-				App.getInstance().setView(App.View.PLOT);
-			} catch (Exception ex) {
-				LOGGER.error("Failed to load file: ", ex);
-			}
+			App.View.PLOT.getComponent().load(address);
+			App.getInstance().setView(App.View.PLOT);
 		});
 		ImGui.sameLine();
 		Dialogs.showConnectDialog("w.connect.ws", () -> ImGui.button(ViewComponent.tr("action.connect.ws"))).ifPresent(address -> {
@@ -18,8 +18,10 @@ import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -30,9 +32,15 @@ import io.github.moehreag.dtaplot.Constants;
 import io.github.moehreag.dtaplot.DataLoader;
 import io.github.moehreag.dtaplot.Translations;
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.data.Archive;
+import io.github.moehreag.dtaplot.data.ColumnarFile;
+import io.github.moehreag.dtaplot.data.PlotWindow;
+import io.github.moehreag.dtaplot.data.Rollups;
+import io.github.moehreag.dtaplot.data.Transitions;
 import io.github.moehreag.dtaplot.dta.DtaFile;
 import io.github.moehreag.dtaplot.dta.DtaParser;
 import io.github.moehreag.dtaplot.gui.swing.ptolemy.plot.Plot;
+import io.github.moehreag.dtaplot.socket.ProcLogRefresher;
 import io.github.moehreag.dtaplot.socket.TcpSocket;
 import io.github.moehreag.dtaplot.socket.WebSocket;
 import org.slf4j.Logger;
@@ -46,8 +54,11 @@ public class DtaPlot {
 			() -> "http://" + DiscoveryDialog.getHeatpump(this.frame).getHostString() + "/NewProc");
 
 	private static final NumberFormat timeFormat = new DecimalFormat("00");
+	private static final String COLUMNAR = ColumnarFile.EXTENSION.substring(1);
+	private static final String COMPRESSED = ColumnarFile.COMPRESSED_EXTENSION.substring(1);
 
 	private final Collection<Map<String, Value<?>>> data = new ArrayList<>();
+	private final ProcLogRefresher refresher = new ProcLogRefresher();
 	private final Plot plot = new Plot();
 	private final Map<String, Integer> datasets = new HashMap<>();
 	private final List<String> displayedDatasets = new ArrayList<>();
@@ -59,6 +70,14 @@ public class DtaPlot {
 	private final JFrame frame = new JFrame();
 	private final JPanel side = new JPanel();
 	private View currentView = View.WELCOME;
+	// the archive the plot shows a span of, null if it shows something else
+	private Archive archive;
+	private int archiveFrom, archiveTo;
+	// the rollups stored with the opened file, dropped once other records are added
+	private Rollups rollups;
+	// what the plot draws of the records, the records themselves or rollups of them
+	private PlotWindow window;
+	private Collection<Map<String, Value<?>>> plotted = List.of();
 	private final Map<View, AbstractAction> viewMenuActions = Map.of(
 			View.PLOT, new AbstractAction(tr("view.plot")) {
 				@Override
@@ -73,12 +92,7 @@ public class DtaPlot {
 						if (url.trim().isEmpty()) {
 							return;
 						}
-						try (InputStream in = URI.create(url).toURL().openStream()) {
-							byte[] bytes = in.readAllBytes();
-							addToGraph(bytes);
-						} catch (IOException ex) {
-							LOGGER.error("Failed to load file: ", ex);
-						}
+						fetch(url);
 					});
 					display();
 				}
@@ -105,6 +119,10 @@ public class DtaPlot {
 				}
 			});
 
+	public DtaPlot() {
+		plot.addXRangeListener((min, max) -> EventQueue.invokeLater(() -> redraw((int) min, (int) max)));
+	}
+
 	public void display() {
 		display(false);
 	}
@@ -129,6 +147,8 @@ public class DtaPlot {
 						return;
 					if (currentView == View.PLOT) {
 						data.clear();
+						refresher.clear();
+						archive = null;
 					}
 					open(chooser.getSelectedFile().toPath());
 				}
@@ -141,6 +161,10 @@ public class DtaPlot {
 						JFileChooser chooser = new JFileChooser(new File("."));
 						FileFilter json = new FileNameExtensionFilter(tr("filter.json"), "json");
 						chooser.setFileFilter(json);
+						if (currentView == View.PLOT) {
+							chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.columnar"), COLUMNAR));
+							chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.compressed"), COMPRESSED));
+						}
 						if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION)
 							return;
 						switch (currentView) {
@@ -191,13 +215,10 @@ public class DtaPlot {
 							if (url.trim().isEmpty()) {
 								return;
 							}
-							try (InputStream in = URI.create(url).toURL().openStream()) {
-								byte[] bytes = in.readAllBytes();
-								data.clear();
-								addToGraph(bytes);
-							} catch (Exception ex) {
-								LOGGER.error("Failed to load file: ", ex);
-							}
+							data.clear();
+							refresher.clear();
+							archive = null;
+							fetch(url);
 						});
 					}
 				});
@@ -209,12 +230,7 @@ public class DtaPlot {
 							if (url.trim().isEmpty()) {
 								return;
 							}
-							try (InputStream in = URI.create(url).toURL().openStream()) {
-								byte[] bytes = in.readAllBytes();
-								addToGraph(bytes);
-							} catch (Exception ex) {
-								LOGGER.error("Failed to load file: ", ex);
-							}
+							fetch(url);
 						});
 					}
 				});
@@ -234,12 +250,34 @@ public class DtaPlot {
 						});
 					}
 				});
+				plotMenu.add(new AbstractAction(tr("action.archive.earlier")) {
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						int span = archiveTo - archiveFrom;
+						showArchive(archiveFrom - span - 1, archiveFrom - 1);
+					}
+				}).setEnabled(archive != null && archiveFrom > archive.getStart());
+				plotMenu.add(new AbstractAction(tr("action.archive.later")) {
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						int span = archiveTo - archiveFrom;
+						showArchive(archiveTo + 1, archiveTo + span + 1);
+					}
+				}).setEnabled(archive != null && archiveTo < archive.getEnd());
+				plotMenu.add(new AbstractAction(tr("action.archive.range")) {
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						chooseArchiveRange();
+					}
+				}).setEnabled(archive != null);
 				plotMenu.add(new AbstractAction(tr("action.append")) {
 					@Override
 					public void actionPerformed(ActionEvent e) {
 						JFileChooser chooser = new JFileChooser(new File("."));
 						FileFilter json = new FileNameExtensionFilter(tr("filter.json"), "json");
 						chooser.setFileFilter(json);
+						chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.columnar"), COLUMNAR));
+						chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.compressed"), COMPRESSED));
 						if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION)
 							return;
 						DataLoader.getInstance().append(data, chooser.getSelectedFile().toPath());
@@ -438,6 +476,8 @@ public class DtaPlot {
 				if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
 					return;
 				data.clear();
+				refresher.clear();
+				archive = null;
 				frame.getContentPane().removeAll();
 				open(chooser.getSelectedFile().toPath());
 			}
@@ -453,12 +493,7 @@ public class DtaPlot {
 						return;
 					}
 					frame.getContentPane().removeAll();
-					try (InputStream in = URI.create(url).toURL().openStream()) {
-						byte[] bytes = in.readAllBytes();
-						addToGraph(bytes);
-					} catch (Exception ex) {
-						LOGGER.error("Failed to load file: ", ex);
-					}
+					fetch(url);
 				});
 			}
 		});
@@ -512,10 +547,33 @@ public class DtaPlot {
 		return bottomText;
 	}
 
+	/**
+	 * Loads a proc log, adding its records to the graph while they are still being downloaded.
+	 * Heat pumps that were loaded before only add the records that are new since.
+	 */
+	private void fetch(String url) {
+		try {
+			URI uri = URI.create(url);
+			if ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme())) {
+				refresher.refresh(uri, records -> EventQueue.invokeLater(() -> addToGraph(records))).join();
+			} else {
+				try (InputStream in = uri.toURL().openStream()) {
+					addToGraph(in.readAllBytes());
+				}
+			}
+		} catch (Exception ex) {
+			LOGGER.error("Failed to load file: ", ex);
+		}
+	}
+
 	private void addToGraph(byte[] bytes) {
+		addToGraph(() -> DtaParser.get(bytes));
+	}
+
+	private void addToGraph(Supplier<DtaFile> parser) {
 		CompletableFuture.runAsync(() -> {
 			try {
-				DtaFile dta = DtaParser.get(bytes);
+				DtaFile dta = parser.get();
 				EventQueue.invokeLater(() -> addToGraph(dta.getDatapoints()));
 			} catch (Exception e) {
 				LOGGER.error("Error while loading file: ", e);
@@ -525,13 +583,18 @@ public class DtaPlot {
 
 	public void open(Path file) {
 		if (file.getFileName().toString().endsWith(".dta")) {
-			try {
-				byte[] bytes = Files.readAllBytes(file);
-				CompletableFuture.runAsync(() ->
-						addToGraph(bytes));
-			} catch (Exception ex) {
-				LOGGER.error("Failed to load file: ", ex);
-			}
+			addToGraph(() -> DtaParser.get(file, DtaParser.options().parallel(true)));
+		} else if (Archive.isArchive(file)) {
+			LOGGER.info("Loading the last " + Archive.RECENT_DAYS + " days of the archive..");
+			setView(View.PLOT);
+			archive = Archive.open(file.toAbsolutePath().getParent());
+			archiveFrom = archive.getRecentStart();
+			archiveTo = archive.getEnd();
+			addToGraph(archive.loadRecent());
+		} else if (ColumnarFile.isColumnarFile(file)) {
+			LOGGER.info("Loading plot..");
+			setView(View.PLOT);
+			addToGraph(ColumnarFile.read(file).toDatapoints());
 		} else if (file.getFileName().toString().endsWith(".json")) {
 			Collection<Map<String, Value<?>>> data = DataLoader.getInstance().load(file);
 			Set<String> keys = data.stream().map(Map::keySet).reduce(new HashSet<>(), (strings, strings2) -> {
@@ -541,7 +604,7 @@ public class DtaPlot {
 			if (keys.contains("time")) {
 				LOGGER.info("Loading plot..");
 				setView(View.PLOT);
-				addToGraph(data);
+				addToGraph(data, Rollups.read(file));
 			} else if (keys.stream().anyMatch(s -> s.startsWith("ID"))) {
 				LOGGER.info("Loading tcp table..");
 				setView(View.TCP);
@@ -556,6 +619,44 @@ public class DtaPlot {
 		}
 	}
 
+	/**
+	 * Replaces the plotted records with those of the open archive within {@code [from, to]}.
+	 */
+	private void showArchive(int from, int to) {
+		List<Map<String, Value<?>>> records = archive.load(from, to);
+		if (records.isEmpty()) {
+			JOptionPane.showMessageDialog(frame, tr("dialog.range.empty"), tr("dialog.range.title"), JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		LOGGER.info("Loading " + records.size() + " records of the archive..");
+		archiveFrom = from;
+		archiveTo = to;
+		data.clear();
+		addToGraph(records);
+	}
+
+	private void chooseArchiveRange() {
+		ZoneId zone = ZoneId.systemDefault();
+		JTextField from = new JTextField(LocalDate.ofInstant(Instant.ofEpochSecond(archiveFrom), zone).toString());
+		JTextField to = new JTextField(LocalDate.ofInstant(Instant.ofEpochSecond(archiveTo), zone).toString());
+		JPanel panel = new JPanel(new GridLayout(2, 2));
+		panel.add(new JLabel(tr("label.from")));
+		panel.add(from);
+		panel.add(new JLabel(tr("label.to")));
+		panel.add(to);
+		if (JOptionPane.showConfirmDialog(frame, panel, tr("dialog.range.title"),
+				JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+			return;
+		}
+		try {
+			// whole days, the last one included
+			showArchive((int) LocalDate.parse(from.getText().trim()).atStartOfDay(zone).toEpochSecond(),
+					(int) LocalDate.parse(to.getText().trim()).plusDays(1).atStartOfDay(zone).toEpochSecond() - 1);
+		} catch (DateTimeParseException e) {
+			JOptionPane.showMessageDialog(frame, tr("dialog.range.invalid"), tr("dialog.range.title"), JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
 	private void addTable(Collection<Map<String, Value<?>>> data) {
 		JTable text = new JTable();
 		text.setShowGrid(true);
@@ -568,7 +669,16 @@ public class DtaPlot {
 	}
 
 	public void addToGraph(Collection<Map<String, Value<?>>> data) {
+		addToGraph(data, null);
+	}
+
+	/**
+	 * @param rollups the rollups stored with the records, used to draw them if nothing else is plotted yet
+	 */
+	private void addToGraph(Collection<Map<String, Value<?>>> data, Rollups rollups) {
 		LOGGER.info("Adding " + data.size() + " points to the graph");
+		this.rollups = this.data.isEmpty() ? rollups : null;
+		window = null;
 		Set<Integer> times = this.data.stream().map(map -> ((Number) map.get("time").get()).intValue()).collect(Collectors.toSet());
 		this.data.addAll(data.stream()
 				.filter(stringValueMap -> !times.contains(((Number) stringValueMap.get("time").get()).intValue())).toList());
@@ -630,7 +740,11 @@ public class DtaPlot {
 		plot.clearLegends();
 		plot.setXLabel(tr("label.time"));
 		plot.setYLabel("°C");
-		LOGGER.info("Plotting " + data.size() + " data points!");
+		if (window == null) {
+			window = PlotWindow.of(data, rollups);
+			plotted = window.update(window.getStart(), window.getEnd(), plotWidth());
+		}
+		LOGGER.info("Plotting " + plotted.size() + " of " + data.size() + " data points!");
 		if (displayedDatasets.isEmpty()) {
 			displayedDatasets.add((String) selections.getSelectedItem());
 		}
@@ -654,10 +768,17 @@ public class DtaPlot {
 		for (String key : keys) {
 			List<Double> values = new ArrayList<>();
 			for (Map<String, Value<?>> map : entries) {
-				if (!map.containsKey(key) || !(map.get(key).get() instanceof Number)) {
+				if (!map.containsKey(key)) {
+					continue;
+				}
+				double val;
+				if (map.get(key).get() instanceof Number n) {
+					val = n.doubleValue();
+				} else if (map.get(key).get() instanceof Boolean b) {
+					val = b ? 1 : 0;
+				} else {
 					continue;
 				}
-				double val = ((Number) map.get(key).get()).doubleValue();
 				if (!values.contains(val)) {
 					values.add(val);
 				}
@@ -675,37 +796,93 @@ public class DtaPlot {
 		LOGGER.info("Adding dataset: " + setName);
 		int set = plot.getNumDataSets();
 		datasets.put(setName, set);
-		plot.addLegend(set, setName);
 
-		getValidData().stream()
-				.sorted(Comparator.comparingInt(map -> ((Number) map.get("time").get()).intValue()))
-				.forEachOrdered((stringValueMap) -> {
-					int time = ((Number) stringValueMap.get("time").get()).intValue();
-
-					Value<?> value = stringValueMap.get(setName);
-					if (value == null) {
-						return;
-					}
-					if (value.get() instanceof Number) {
-						ZonedDateTime zTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(time),
-								ZoneId.systemDefault());
-						String label = tr("date.format",
-								timeFormat.format(zTime.getHour()),
-								timeFormat.format(zTime.getMinute()),
-								timeFormat.format(zTime.getDayOfMonth()),
-								timeFormat.format(zTime.getMonthValue()),
-								timeFormat.format(zTime.getYear())
-						);
-						double val = ((Number) value.get()).doubleValue();
-						plot.addXTick(label, time);
-						plot.addPoint(set, time, val, true);
-					}
-				});
+		if (isDigital(setName)) {
+			Transitions transitions = Transitions.of(data, setName);
+			plot.addLegend(set, tr("label.switchOns", setName, transitions.countSwitchOns(transitions.getStart(), transitions.getEnd())));
+		} else {
+			plot.addLegend(set, setName);
+		}
+		plotDataset(set, setName);
 
 		plot.fillPlot();
 		plot.repaint();
 	}
 
+	/**
+	 * Draws the points of another tier or time span once zooming or moving the plot needs them.
+	 */
+	private void redraw(int from, int to) {
+		if (window == null) {
+			return;
+		}
+		Collection<Map<String, Value<?>>> points = window.update(from, to, plotWidth());
+		if (points == null) {
+			return;
+		}
+		LOGGER.info("Plotting " + points.size() + " of " + data.size() + " data points, " +
+				(window.getTier() == null ? "as recorded" : "by " + window.getTier()));
+		plotted = points;
+		plot.clearXTicks();
+		for (String s : displayedDatasets) {
+			Integer set = datasets.get(s);
+			if (set != null) {
+				plot.clear(set.intValue());
+				plotDataset(set, s);
+			}
+		}
+		plot.repaint();
+	}
+
+	// before its first layout the plot has no width yet
+	private int plotWidth() {
+		return plot.getWidth() > 0 ? plot.getWidth() : frame.getWidth();
+	}
+
+	private void plotDataset(int set, String setName) {
+		if (isDigital(setName)) {
+			// digital channels are drawn as steps between their toggles
+			Transitions transitions = Transitions.of(plotted, setName);
+			for (Transitions.Run run : transitions.runs(transitions.getStart(), transitions.getEnd())) {
+				plot.addPoint(set, run.start(), run.state() ? 1 : 0, true);
+				plot.addPoint(set, run.end(), run.state() ? 1 : 0, true);
+			}
+			return;
+		}
+
+		// records without a value of the set, as in archives of days that did not record it, leave a gap in the line
+		boolean gap = false;
+		for (Map<String, Value<?>> stringValueMap : plotted) {
+			int time = ((Number) stringValueMap.get("time").get()).intValue();
+
+			Value<?> value = stringValueMap.get(setName);
+			if (value == null || value.get() instanceof Number n && Double.isNaN(n.doubleValue())) {
+				gap = true;
+				continue;
+			}
+			if (value.get() instanceof Number) {
+				ZonedDateTime zTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(time),
+						ZoneId.systemDefault());
+				String label = tr("date.format",
+						timeFormat.format(zTime.getHour()),
+						timeFormat.format(zTime.getMinute()),
+						timeFormat.format(zTime.getDayOfMonth()),
+						timeFormat.format(zTime.getMonthValue()),
+						timeFormat.format(zTime.getYear())
+				);
+				double val = ((Number) value.get()).doubleValue();
+				plot.addXTick(label, time);
+				plot.addPoint(set, time, val, !gap);
+				gap = false;
+			}
+		}
+	}
+
+	private boolean isDigital(String setName) {
+		return data.stream().map(map -> map.get(setName)).filter(Objects::nonNull).findFirst()
+				.map(value -> value.get() instanceof Boolean).orElse(false);
+	}
+
 	private synchronized void addInfos() {
 		side.setVisible(false);
 		data.stream()
@@ -749,12 +926,14 @@ public class DtaPlot {
 	}
 
 	private static void addFileFilters(JFileChooser chooser) {
-		FileFilter supported = new FileNameExtensionFilter(tr("filter.supported"), "dta", "json");
+		FileFilter supported = new FileNameExtensionFilter(tr("filter.supported"), "dta", "json", COLUMNAR, COMPRESSED);
 		FileFilter dta = new FileNameExtensionFilter(tr("filter.dta"), "dta");
 		FileFilter json = new FileNameExtensionFilter(tr("filter.json"), "json");
 		chooser.setFileFilter(supported);
 		chooser.addChoosableFileFilter(dta);
 		chooser.addChoosableFileFilter(json);
+		chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.columnar"), COLUMNAR));
+		chooser.addChoosableFileFilter(new FileNameExtensionFilter(tr("filter.compressed"), COMPRESSED));
 	}
 
 
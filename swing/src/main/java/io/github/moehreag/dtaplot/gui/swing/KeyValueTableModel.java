@@ -15,6 +15,7 @@ import java.util.*;
 
 import io.github.moehreag.dtaplot.Translations;
 import io.github.moehreag.dtaplot.Value;
+import io.github.moehreag.dtaplot.socket.tcp.DataVector;
 import lombok.Getter;
 
 public class KeyValueTableModel extends AbstractTableModel {
@@ -23,6 +24,8 @@ public class KeyValueTableModel extends AbstractTableModel {
 	private Collection<Map<String, Value<?>>> original;
 
 	private final Map<Integer, Value<?>> rowIndexes = new HashMap<>();
+	// the row of every key, for updating single values
+	private final Map<String, Integer> rows = new HashMap<>();
 
 	public KeyValueTableModel() {
 		for (int i = 0; i < getColumnCount(); i++) {
@@ -37,18 +40,42 @@ public class KeyValueTableModel extends AbstractTableModel {
 		for (Map<String, Value<?>> map : data) {
 			for (Map.Entry<String, Value<?>> entry : map.entrySet().stream().sorted(Map.Entry.comparingByKey()).toList()) {
 				this.data.getFirst().add(Translations.translate(entry.getKey()));
-				Object val = entry.getValue().get();
-				if (!entry.getValue().getUnit().isEmpty()) {
-					val = val + " " + entry.getValue().getUnit();
-				}
 				rowIndexes.put(index, entry.getValue());
-				this.data.get(1).add(val);
+				rows.put(entry.getKey(), index);
+				this.data.get(1).add(format(entry.getValue()));
 				index++;
 			}
 		}
 		fireTableDataChanged();
 	}
 
+	/**
+	 * Updates the values that changed since the last poll and repaints only their rows.
+	 */
+	public void update(List<DataVector.Change> changes) {
+		for (DataVector.Change change : changes) {
+			String key = change.type().getName();
+			Integer row = rows.get(key);
+			if (row == null) {
+				continue;
+			}
+			Value<?> value = change.read();
+			for (Map<String, Value<?>> map : original) {
+				map.replace(key, value);
+			}
+			rowIndexes.put(row, value);
+			data.get(1).set(row, format(value));
+			fireTableCellUpdated(row, 1);
+		}
+	}
+
+	private static Object format(Value<?> value) {
+		if (!value.getUnit().isEmpty()) {
+			return value.get() + " " + value.getUnit();
+		}
+		return value.get();
+	}
+
 	public void insert(String key, String value) {
 		this.data.get(0).add(key);
 		this.data.get(1).add(value);
@@ -57,6 +84,7 @@ public class KeyValueTableModel extends AbstractTableModel {
 
 	public void clear() {
 		rowIndexes.clear();
+		rows.clear();
 		this.data.get(0).clear();
 		this.data.get(1).clear();
 	}
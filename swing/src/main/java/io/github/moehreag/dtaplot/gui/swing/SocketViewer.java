@@ -6,11 +6,19 @@ import javax.swing.table.TableCellRenderer;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import io.github.moehreag.dtaplot.Constants;
 import io.github.moehreag.dtaplot.Translations;
 import io.github.moehreag.dtaplot.socket.TcpSocket;
 import io.github.moehreag.dtaplot.socket.WebSocket;
+import io.github.moehreag.dtaplot.socket.tcp.Calculations;
+import io.github.moehreag.dtaplot.socket.tcp.ChangeTracker;
 
 public class SocketViewer {
 
@@ -24,7 +32,25 @@ public class SocketViewer {
 		pane.setViewportView(text);
 		panel.revalidate();
 
-		tableModel.insert(TcpSocket.readAll(DiscoveryDialog.getHeatpump(null)));
+		InetSocketAddress address = DiscoveryDialog.getHeatpump(null);
+		tableModel.insert(TcpSocket.readAll(address));
+
+		// keeps the calculations up to date while the table is shown
+		TcpSocket socket = TcpSocket.of(address);
+		Consumer<Calculations> subscriber = new ChangeTracker<>(changes -> EventQueue.invokeLater(() -> tableModel.update(changes)));
+		pane.addHierarchyListener(new HierarchyListener() {
+			@Override
+			public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !pane.isDisplayable()) {
+					// closes only this view's share of the connection, once
+					pane.removeHierarchyListener(this);
+					socket.unsubscribe(subscriber);
+					socket.close();
+				}
+			}
+		});
+		socket.subscribe(subscriber);
+		socket.poll(Duration.ofMillis(Constants.POLL_INTERVAL));
 	}
 
 	@SuppressWarnings("BusyWait")
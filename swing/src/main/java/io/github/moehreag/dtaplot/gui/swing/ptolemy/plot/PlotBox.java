@@ -264,6 +264,16 @@ public class PlotBox extends JPanel implements Printable, PlotBoxInterface {
         _legendDatasets.addElement(dataset);
     }
 
+    /** Remove the ticks added by addXTick().
+     *  For the change to take effect, call repaint().
+     */
+    public synchronized void clearXTicks() {
+        // Changing ticks means we need to repaint the offscreen buffer.
+        _plotImage = null;
+        _xticks = null;
+        _xticklabels = null;
+    }
+
     /** Specify a tick mark for the X axis.  The label given is placed
      *  on the axis at the position given by <i>position</i>. If this
      *  is called once or more, automatic generation of tick marks is
@@ -1586,6 +1596,26 @@ public class PlotBox extends JPanel implements Printable, PlotBoxInterface {
         _xlowgiven = min;
         _xhighgiven = max;
         _setXRange(min, max);
+        for (XRangeListener listener : _xRangeListeners) {
+            listener.xRangeChanged(min, max);
+        }
+    }
+
+    /** Add a listener to be notified whenever the X range is set,
+     *  including by zooming, moving and filling the plot.
+     *  @param listener The listener.
+     */
+    public void addXRangeListener(XRangeListener listener) {
+        _xRangeListeners.add(listener);
+    }
+
+    /** Notified of the X range set on a plot. */
+    public interface XRangeListener {
+        /** Called with the new X range, before the plot is repainted.
+         *  @param min The left extent of the range.
+         *  @param max The right extent of the range.
+         */
+        void xRangeChanged(double min, double max);
     }
 
     /** Set the label for the Y (vertical) axis.
@@ -4205,6 +4235,9 @@ public class PlotBox extends JPanel implements Printable, PlotBoxInterface {
     private transient boolean _moving = false;
     private transient boolean _control = false;
 
+    // Notified of changes of the X range.
+    private transient Vector<XRangeListener> _xRangeListeners = new Vector<>();
+
     /** Handle mouse pressed events to provide zoom functionality. */
     public class ZoomListener implements MouseListener {
         /** Request the focus.